@@ -0,0 +1,79 @@
+package com.opensef.auth.authc;
+
+import com.opensef.auth.config.TokenStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token生成：各token风格、签名token与JDK的UUID.randomUUID对比<br/>
+ * 可以通过 -t 指定线程数测试并发生成
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StyleState {
+
+        @Param({"UUID", "UUID_NO_DASH", "RANDOM_32", "RANDOM_64", "RANDOM_128", "BASE64_128", "BASE64_256"})
+        private TokenStyle tokenStyle;
+
+        private TokenHandler tokenHandler;
+
+        @Setup
+        public void setUp() {
+            tokenHandler = new DefaultTokenHandler(tokenStyle);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class SignedState {
+
+        private SignedTokenHandler tokenHandler;
+
+        @Setup
+        public void setUp() {
+            byte[] key = new byte[SignedTokenHandler.MIN_KEY_LENGTH];
+            Arrays.fill(key, (byte) 1);
+            tokenHandler = new SignedTokenHandler("1", key);
+        }
+
+    }
+
+    @Benchmark
+    public String createToken(StyleState state) {
+        return state.tokenHandler.createToken();
+    }
+
+    @Benchmark
+    public String createSignedToken(SignedState state) {
+        long now = System.currentTimeMillis();
+        return state.tokenHandler.createToken("10001", now, now + 60 * 60 * 1000L);
+    }
+
+    /**
+     * 对比用：JDK的UUID.randomUUID，共用一个SecureRandom
+     */
+    @Benchmark
+    public String jdkRandomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+}
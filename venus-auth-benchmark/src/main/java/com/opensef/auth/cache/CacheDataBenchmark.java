@@ -0,0 +1,144 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.cache.CacheMap.CacheData;
+import com.opensef.auth.constant.AuthConstant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存数据：到期时间使用基本类型long原子更新，与使用Long装箱并通过setter修改的对比<br/>
+ * 配合 -prof gc 查看每次操作分配的字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheDataBenchmark {
+
+    private final Object key = "auth:token:0f8c2b7e";
+
+    private final Object value = "value";
+
+    private long deadline;
+
+    private CacheData cacheData;
+
+    private BoxedCacheData boxedCacheData;
+
+    private MemoryCache<Object, Object> memoryCache;
+
+    @Setup
+    public void setUp() {
+        deadline = System.currentTimeMillis() + 60 * 60 * 1000L;
+        cacheData = new CacheData(key, value, deadline);
+        boxedCacheData = new BoxedCacheData();
+        boxedCacheData.setData(value);
+        boxedCacheData.setTimeout(deadline);
+        memoryCache = new MemoryCache<>();
+        memoryCache.put(key, value, 60 * 60 * 1000L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        memoryCache.close();
+    }
+
+    @Benchmark
+    public CacheData allocate() {
+        return new CacheData(key, value, ++deadline);
+    }
+
+    @Benchmark
+    public BoxedCacheData allocateBoxed() {
+        BoxedCacheData data = new BoxedCacheData();
+        data.setData(value);
+        data.setTimeout(++deadline);
+        return data;
+    }
+
+    /**
+     * 续期：比较并设置基本类型的到期时间
+     */
+    @Benchmark
+    public boolean renew() {
+        return cacheData.renew(++deadline);
+    }
+
+    /**
+     * 续期：写入新的Long
+     */
+    @Benchmark
+    public BoxedCacheData renewBoxed() {
+        boxedCacheData.setTimeout(++deadline);
+        return boxedCacheData;
+    }
+
+    @Benchmark
+    public boolean isExpired() {
+        return cacheData.isExpired(deadline);
+    }
+
+    @Benchmark
+    public boolean isExpiredBoxed() {
+        Long timeout = boxedCacheData.getTimeout();
+        return timeout != AuthConstant.NEVER_EXPIRE && timeout <= deadline;
+    }
+
+    /**
+     * MemoryCache判断是否有效，不产生装箱对象
+     */
+    @Benchmark
+    public boolean memoryCacheIsUnExpired() {
+        return memoryCache.isUnExpired(key);
+    }
+
+    /**
+     * 通过剩余过期时间判断是否有效，返回Long
+     */
+    @Benchmark
+    public boolean memoryCacheGetExpire() {
+        Long expire = memoryCache.getExpire(key);
+        return expire != null && expire != AuthConstant.EXPIRED_DATA_NOT_EXIST;
+    }
+
+    /**
+     * 对比用：到期时间为Long、通过setter修改的缓存数据
+     */
+    public static class BoxedCacheData {
+
+        private Object data;
+
+        private Long timeout;
+
+        public Object getData() {
+            return data;
+        }
+
+        public void setData(Object data) {
+            this.data = data;
+        }
+
+        public Long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Long timeout) {
+            this.timeout = timeout;
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.opensef.auth.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存key：CacheKey与拼接字符串的对比<br/>
+ * 每次操作使用新创建的token字符串，与每次请求从Header中解析出token相同
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+    private static final int SIZE = 10_000;
+
+    private static final String PREFIX = "auth:token";
+
+    private final CacheKey.Namespace namespace = new CacheKey.Namespace(PREFIX);
+
+    private final char[][] tokens = new char[SIZE][];
+
+    private MemoryCache<Object, Object> cacheKeyCache;
+
+    private MemoryCache<Object, Object> stringKeyCache;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        cacheKeyCache = new MemoryCache<>();
+        stringKeyCache = new MemoryCache<>();
+        for (int i = 0; i < SIZE; i++) {
+            String token = UUID.randomUUID().toString();
+            tokens[i] = token.toCharArray();
+            cacheKeyCache.put(cacheKeyCache.resolveKey(namespace.key(token)), "value", 60 * 60 * 1000L);
+            stringKeyCache.put(PREFIX + ":" + token, "value", 60 * 60 * 1000L);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cacheKeyCache.close();
+        stringKeyCache.close();
+    }
+
+    @Benchmark
+    public Object getByCacheKey() {
+        return cacheKeyCache.get(cacheKeyCache.resolveKey(namespace.key(nextToken())));
+    }
+
+    @Benchmark
+    public Object getByStringKey() {
+        return stringKeyCache.get(PREFIX + ":" + nextToken());
+    }
+
+    /**
+     * 远程缓存的key编码，前缀使用预先编码的字节
+     */
+    @Benchmark
+    public byte[] cacheKeyBytes() {
+        return namespace.key(nextToken()).toBytes();
+    }
+
+    @Benchmark
+    public byte[] stringKeyBytes() {
+        return (PREFIX + ":" + nextToken()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String nextToken() {
+        index = (index + 1) % SIZE;
+        return new String(tokens[index]);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.authc.AuthTokenValue;
+import com.opensef.auth.session.AuthSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存数据编码：二进制编码与Jackson JSON编码的对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    /**
+     * tokenValue：带附加信息的token值信息；session：包含5个token的session
+     */
+    @Param({"tokenValue", "session"})
+    private String type;
+
+    private final AuthCodec binaryCodec = new BinaryAuthCodec(new JacksonAuthCodec());
+
+    private final AuthCodec jacksonCodec = new JacksonAuthCodec();
+
+    private Object value;
+
+    private byte[] binaryBytes;
+
+    private byte[] jacksonBytes;
+
+    @Setup
+    public void setUp() {
+        long now = System.currentTimeMillis();
+        if ("session".equals(type)) {
+            AuthSession session = new AuthSession();
+            session.setSessionId("auth:session:10001");
+            session.setCreatedTime(now);
+            session.setExpireTime(now + 60 * 60 * 1000L);
+            for (int i = 0; i < 5; i++) {
+                session.addToken(UUID.randomUUID().toString());
+            }
+            value = session;
+        } else {
+            Map<String, Object> addInfo = new HashMap<>();
+            addInfo.put("userName", "admin");
+            addInfo.put("deptId", 1001L);
+            value = new AuthTokenValue("10001", 3600L, now, now + 60 * 60 * 1000L, addInfo);
+        }
+        binaryBytes = binaryCodec.encode(value);
+        jacksonBytes = jacksonCodec.encode(value);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binaryCodec.encode(value);
+    }
+
+    @Benchmark
+    public Object binaryDecode() {
+        return binaryCodec.decode(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode() {
+        return jacksonCodec.encode(value);
+    }
+
+    @Benchmark
+    public Object jacksonDecode() {
+        return jacksonCodec.decode(jacksonBytes);
+    }
+
+}
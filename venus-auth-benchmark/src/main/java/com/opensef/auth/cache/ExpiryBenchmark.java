@@ -0,0 +1,102 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.cache.CacheMap.CacheData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过期清理：时间轮推进一个tick与全量扫描数据表的对比<br/>
+ * 每次调用推进1秒，到期的数据按新的随机到期时间续期，保持数据数量和每秒到期数量不变
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpiryBenchmark {
+
+    private static final long TICK = 1000L;
+
+    /**
+     * 到期时间在30分钟内随机分布
+     */
+    private static final long TTL = 30 * 60 * 1000L;
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private final Map<Object, CacheData> dataMap = new ConcurrentHashMap<>();
+
+    private final List<CacheData> expired = new ArrayList<>();
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private TimingWheel timingWheel;
+
+    private long now;
+
+    @Setup
+    public void setUp() {
+        now = 1_000_000_000L;
+        timingWheel = new TimingWheel(TICK, now);
+        for (int i = 0; i < size; i++) {
+            CacheData cacheData = new CacheData(i, "value", nextDeadline());
+            dataMap.put(i, cacheData);
+            timingWheel.schedule(cacheData);
+        }
+    }
+
+    /**
+     * 时间轮只处理已到期的时间槽
+     */
+    @Benchmark
+    public int timingWheel() {
+        now += TICK;
+        timingWheel.advance(now, expired);
+        int count = expired.size();
+        for (CacheData cacheData : expired) {
+            cacheData.renew(nextDeadline());
+            timingWheel.schedule(cacheData);
+        }
+        expired.clear();
+        return count;
+    }
+
+    /**
+     * 遍历全部数据判断是否到期，即时间轮之前的清理方式
+     */
+    @Benchmark
+    public int sweep() {
+        now += TICK;
+        int count = 0;
+        for (CacheData cacheData : dataMap.values()) {
+            if (cacheData.isExpired(now)) {
+                cacheData.renew(nextDeadline());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long nextDeadline() {
+        return now + 1 + random.nextLong(TTL);
+    }
+
+}
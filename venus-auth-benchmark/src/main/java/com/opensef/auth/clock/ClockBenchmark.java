@@ -0,0 +1,54 @@
+package com.opensef.auth.clock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取当前时间：每次读取系统时间与后台线程缓存时间的对比<br/>
+ * 全部线程共用同一个时钟，可以通过 -t 指定线程数测试并发读取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClockBenchmark {
+
+    private AuthClock systemClock;
+
+    private CachedClock cachedClock;
+
+    @Setup
+    public void setUp() {
+        systemClock = AuthClock.system();
+        cachedClock = new CachedClock(CachedClock.DEFAULT_PRECISION);
+    }
+
+    @TearDown
+    public void tearDown() {
+        cachedClock.close();
+    }
+
+    @Benchmark
+    public long systemClock() {
+        return systemClock.currentTimeMillis();
+    }
+
+    @Benchmark
+    public long cachedClock() {
+        return cachedClock.currentTimeMillis();
+    }
+
+}
@@ -7,6 +7,8 @@ import com.opensef.auth.session.AuthSession;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class AuthUtil {
 
@@ -172,7 +174,8 @@ public class AuthUtil {
     }
 
     /**
-     * 更新token和session的过期时间
+     * 更新token和session的过期时间<br/>
+     * 剩余有效期低于有效期的renewThreshold比例时才续期，同一token在renewWindow内只续期一次
      */
     public static void updateTokenAndSessionTimeout() {
         authManager.updateTokenAndSessionTimeout();
@@ -348,4 +351,90 @@ public class AuthUtil {
         authManager.checkPermissionOr(permissions);
     }
 
+    /**
+     * 异步登录
+     *
+     * @param loginId 登录唯一标识
+     * @return token信息
+     */
+    public static CompletableFuture<AuthToken> loginAsync(String loginId) {
+        return authManager.loginAsync(loginId);
+    }
+
+    /**
+     * 异步登录
+     *
+     * @param loginId    登录唯一标识
+     * @param addInfo    附加信息，可将此信息存储到token缓存中
+     * @param expireTime 过期时间（秒）
+     * @return token信息
+     */
+    public static CompletableFuture<AuthToken> loginAsync(String loginId, Map<String, Object> addInfo, long expireTime) {
+        return authManager.loginAsync(loginId, addInfo, expireTime);
+    }
+
+    /**
+     * 根据登录唯一标识异步退出登录
+     *
+     * @param loginId 登录唯一标识
+     */
+    public static CompletableFuture<Void> logoutAsync(String loginId) {
+        return authManager.logoutAsync(loginId);
+    }
+
+    /**
+     * 异步判断是否通过认证
+     *
+     * @param token token
+     * @return true/false
+     */
+    public static CompletableFuture<Boolean> isLoginByTokenAsync(String token) {
+        return authManager.isLoginByTokenAsync(token);
+    }
+
+    /**
+     * 异步登录检查，检查不通过时future以NoAuthenticationException异常结束
+     */
+    public static CompletableFuture<Void> checkLoginAsync() {
+        return authManager.checkLoginAsync();
+    }
+
+    /**
+     * 异步角色检查，检查不通过时future以NoPermissionException异常结束
+     *
+     * @param role 角色
+     */
+    public static CompletableFuture<Void> checkRoleAsync(String role) {
+        return authManager.checkRoleAsync(role);
+    }
+
+    /**
+     * 异步角色检查，检查不通过时future以NoPermissionException异常结束
+     *
+     * @param role     角色
+     * @param executor 调用PermissionHandler的线程池
+     */
+    public static CompletableFuture<Void> checkRoleAsync(String role, Executor executor) {
+        return authManager.checkRoleAsync(role, executor);
+    }
+
+    /**
+     * 异步权限检查，检查不通过时future以NoPermissionException异常结束
+     *
+     * @param permission 权限
+     */
+    public static CompletableFuture<Void> checkPermissionAsync(String permission) {
+        return authManager.checkPermissionAsync(permission);
+    }
+
+    /**
+     * 异步权限检查，检查不通过时future以NoPermissionException异常结束
+     *
+     * @param permission 权限
+     * @param executor   调用PermissionHandler的线程池
+     */
+    public static CompletableFuture<Void> checkPermissionAsync(String permission, Executor executor) {
+        return authManager.checkPermissionAsync(permission, executor);
+    }
+
 }
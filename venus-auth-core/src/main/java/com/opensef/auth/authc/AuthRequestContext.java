@@ -0,0 +1,136 @@
+package com.opensef.auth.authc;
+
+import com.opensef.auth.session.AuthSession;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 请求内的认证信息<br/>
+ * 同一请求中token只解析一次，token值信息、session、角色及权限只读取一次，之后的登录检查、续期及角色权限检查直接使用；
+ * 由{@link TokenAnalysisHandler#getRequestContext()}提供，生命周期与请求相同，不需要考虑线程安全
+ */
+public class AuthRequestContext {
+
+    private String token;
+
+    private boolean tokenResolved;
+
+    private AuthTokenValue tokenValue;
+
+    private boolean tokenValueResolved;
+
+    private AuthSession session;
+
+    private boolean sessionResolved;
+
+    private List<String> roles;
+
+    private boolean rolesResolved;
+
+    private List<String> permissions;
+
+    private boolean permissionsResolved;
+
+    /**
+     * 获取token，首次获取时解析
+     *
+     * @param loader 解析token
+     * @return token
+     */
+    public String getToken(Supplier<String> loader) {
+        if (!tokenResolved) {
+            token = loader.get();
+            tokenResolved = true;
+        }
+        return token;
+    }
+
+    /**
+     * 获取token值信息，首次获取时读取
+     *
+     * @param loader 读取token值信息
+     * @return token值信息，未登录时为null
+     */
+    public AuthTokenValue getTokenValue(Supplier<AuthTokenValue> loader) {
+        if (!tokenValueResolved) {
+            tokenValue = loader.get();
+            tokenValueResolved = true;
+        }
+        return tokenValue;
+    }
+
+    /**
+     * 续期后更新token值信息
+     *
+     * @param tokenValue token值信息
+     */
+    public void setTokenValue(AuthTokenValue tokenValue) {
+        this.tokenValue = tokenValue;
+        this.tokenValueResolved = true;
+    }
+
+    /**
+     * 获取session信息，首次获取时读取
+     *
+     * @param loader 读取session信息
+     * @return session信息
+     */
+    public AuthSession getSession(Supplier<AuthSession> loader) {
+        if (!sessionResolved) {
+            session = loader.get();
+            sessionResolved = true;
+        }
+        return session;
+    }
+
+    /**
+     * 获取当前登录用户的角色，首次获取时读取
+     *
+     * @param loader 读取角色
+     * @return 角色集合
+     */
+    public List<String> getRoles(Supplier<List<String>> loader) {
+        if (!rolesResolved) {
+            roles = loader.get();
+            rolesResolved = true;
+        }
+        return roles;
+    }
+
+    /**
+     * 获取当前登录用户的权限，首次获取时读取
+     *
+     * @param loader 读取权限
+     * @return 权限集合
+     */
+    public List<String> getPermissions(Supplier<List<String>> loader) {
+        if (!permissionsResolved) {
+            permissions = loader.get();
+            permissionsResolved = true;
+        }
+        return permissions;
+    }
+
+    /**
+     * 清除已读取的session信息，请求中修改了session数据时调用
+     */
+    public void invalidateSession() {
+        session = null;
+        sessionResolved = false;
+    }
+
+    /**
+     * 清除已读取的token值信息、session、角色及权限，请求中退出登录时调用；token不清除
+     */
+    public void invalidate() {
+        tokenValue = null;
+        tokenValueResolved = false;
+        invalidateSession();
+        roles = null;
+        rolesResolved = false;
+        permissions = null;
+        permissionsResolved = false;
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.opensef.auth.authc;
 
 import java.util.Map;
+import java.util.Objects;
 
 /**
- * Token对象（token缓存中的value值）
+ * Token对象（token缓存中的value值）<br/>
+ * 续期时复制出新的对象后通过比较并设置写回缓存，equals用于比较当前值是否已被修改；
+ * 附加信息登录后不再修改，且经过序列化后数值类型可能变化，equals只比较登录ID、有效期、创建时间和过期时间
  */
 public class AuthTokenValue {
 
@@ -83,6 +86,24 @@ public class AuthTokenValue {
         this.addInfo = addInfo;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AuthTokenValue that = (AuthTokenValue) o;
+        return Objects.equals(loginId, that.loginId) && Objects.equals(timeout, that.timeout)
+                && Objects.equals(createdTime, that.createdTime) && Objects.equals(expireTime, that.expireTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(loginId, createdTime, expireTime);
+    }
+
     @Override
     public String toString() {
         return "AuthTokenValue{" +
@@ -1,33 +1,40 @@
 package com.opensef.auth.authc;
 
 import com.opensef.auth.config.TokenStyle;
-import com.opensef.auth.util.AuthRandomUtil;
-
-import java.util.UUID;
+import com.opensef.auth.exception.AuthException;
 
 public class DefaultTokenHandler implements TokenHandler {
 
     private final TokenStyle tokenStyle;
 
     public DefaultTokenHandler(TokenStyle tokenStyle) {
+        if (tokenStyle == TokenStyle.SIGNED) {
+            throw new AuthException("签名token需要使用SignedTokenHandler");
+        }
         this.tokenStyle = tokenStyle;
     }
 
+    /**
+     * 随机数均来自SecureRandom
+     */
     @Override
     public String createToken() {
         switch (tokenStyle) {
-            case UUID:
-                return UUID.randomUUID().toString();
             case UUID_NO_DASH:
-                return UUID.randomUUID().toString().replaceAll("-", "");
+                return TokenGenerator.uuid(false);
             case RANDOM_32:
-                return AuthRandomUtil.randomAlphabetic(32);
+                return TokenGenerator.alphabetic(32);
             case RANDOM_64:
-                return AuthRandomUtil.randomAlphabetic(64);
+                return TokenGenerator.alphabetic(64);
             case RANDOM_128:
-                return AuthRandomUtil.randomAlphabetic(128);
+                return TokenGenerator.alphabetic(128);
+            case BASE64_128:
+                return TokenGenerator.base64Url(16);
+            case BASE64_256:
+                return TokenGenerator.base64Url(32);
+            case UUID:
             default:
-                return UUID.randomUUID().toString();
+                return TokenGenerator.uuid(true);
         }
     }
 
@@ -0,0 +1,139 @@
+package com.opensef.auth.authc;
+
+import com.opensef.auth.exception.AuthException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 路由token处理器<br/>
+ * 在其他处理器创建的token前加上路由标识：分片(4位十六进制) + base64url(HMAC-SHA256(密钥, 登录唯一标识)的前16字节) + "." + token。<br/>
+ * 路由标识由登录唯一标识和密钥计算，token中不包含登录唯一标识；根据token即可得到session的key，token和session可以在一次批量读取中获取；
+ * 缓存key中包含相同的分片标签（{分片}），Redis Cluster等分区存储会将同一用户的token和session放在同一分片上
+ */
+public class RoutingTokenHandler implements TokenHandler {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 分片数量，与Redis Cluster的槽数量相同
+     */
+    private static final int SHARDS = 16384;
+
+    private static final int SHARD_LENGTH = 4;
+
+    /**
+     * 路由标识中使用的HMAC字节数
+     */
+    private static final int HASH_LENGTH = 16;
+
+    /**
+     * 路由标识长度，分片 + 16字节的base64url编码
+     */
+    private static final int ROUTING_ID_LENGTH = SHARD_LENGTH + 22;
+
+    /**
+     * 密钥最小长度（字节）
+     */
+    public static final int MIN_KEY_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final TokenHandler tokenHandler;
+
+    private final SecretKeySpec secretKey;
+
+    /**
+     * Mac不是线程安全的，每个线程使用各自的实例
+     */
+    private final ThreadLocal<Mac> mac;
+
+    /**
+     * @param tokenHandler 创建token随机部分的处理器
+     * @param key          计算路由标识的密钥，长度不能少于32字节；多节点及重启后需要使用相同的密钥，更换后之前签发的token失效
+     */
+    public RoutingTokenHandler(TokenHandler tokenHandler, byte[] key) {
+        if (tokenHandler instanceof SignedTokenHandler || tokenHandler instanceof RoutingTokenHandler) {
+            throw new AuthException("路由token不能包装签名token或路由token");
+        }
+        if (key == null || key.length < MIN_KEY_LENGTH) {
+            throw new AuthException("路由密钥长度不能少于" + MIN_KEY_LENGTH + "字节");
+        }
+        this.tokenHandler = tokenHandler;
+        this.secretKey = new SecretKeySpec(key.clone(), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        newMac();
+    }
+
+    /**
+     * 路由token需要登录唯一标识，使用{@link #createToken(String)}
+     */
+    @Override
+    public String createToken() {
+        throw new AuthException("路由token需要登录唯一标识，请通过AuthManager登录");
+    }
+
+    @Override
+    public String createToken(String loginId) {
+        return routingId(loginId) + '.' + tokenHandler.createToken(loginId);
+    }
+
+    /**
+     * 计算登录唯一标识的路由标识，用作session缓存key中的标识
+     *
+     * @param loginId 登录唯一标识
+     * @return 分片(4位十六进制) + 22位base64url
+     */
+    public String routingId(String loginId) {
+        byte[] hash = mac.get().doFinal(loginId.getBytes(StandardCharsets.UTF_8));
+        return shard(hash) + ENCODER.encodeToString(Arrays.copyOf(hash, HASH_LENGTH));
+    }
+
+    /**
+     * 解析token中的路由标识
+     *
+     * @param token token
+     * @return 路由标识，不是路由token时返回null
+     */
+    public String getRoutingId(String token) {
+        if (token == null || token.length() <= ROUTING_ID_LENGTH || token.charAt(ROUTING_ID_LENGTH) != '.') {
+            return null;
+        }
+        return token.substring(0, ROUTING_ID_LENGTH);
+    }
+
+    /**
+     * 缓存key中使用的分片标签
+     *
+     * @param routingId 路由标识
+     * @return {分片}
+     */
+    public static String shardTag(String routingId) {
+        return '{' + routingId.substring(0, SHARD_LENGTH) + '}';
+    }
+
+    /**
+     * 使用HMAC的前两个字节计算分片
+     */
+    private static String shard(byte[] hash) {
+        int shard = (((hash[0] & 0xFF) << 8) | (hash[1] & 0xFF)) & (SHARDS - 1);
+        return new String(new char[]{HEX[(shard >> 12) & 0xF], HEX[(shard >> 8) & 0xF], HEX[(shard >> 4) & 0xF], HEX[shard & 0xF]});
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new AuthException("路由密钥初始化失败", e);
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.opensef.auth.authc;
+
+import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.exception.AuthException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 签名token处理器<br/>
+ * token中包含登录唯一标识、创建时间、过期时间及密钥ID，使用HMAC-SHA256签名，校验时不需要读取token缓存。<br/>
+ * 格式：base64url(内容).base64url(签名)，内容为 版本(1) + 创建时间(8) + 过期时间(8) + 随机数(8) + 密钥ID长度(1) + 密钥ID + 登录唯一标识<br/>
+ * 更换密钥时，使用新的密钥签发，旧的密钥通过addVerificationKey保留到旧token全部过期
+ */
+public class SignedTokenHandler implements TokenHandler {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final byte VERSION_1 = 1;
+
+    /**
+     * 版本 + 创建时间 + 过期时间 + 随机数 + 密钥ID长度
+     */
+    private static final int HEADER_LENGTH = 1 + 8 + 8 + 8 + 1;
+
+    /**
+     * 密钥最小长度（字节），与HMAC-SHA256的输出长度相同
+     */
+    public static final int MIN_KEY_LENGTH = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String keyId;
+
+    private final byte[] keyIdBytes;
+
+    /**
+     * 密钥ID -> 密钥
+     */
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyId 签发token使用的密钥ID，写入token中，长度不能超过255字节
+     * @param key   签发token使用的密钥，长度不能少于32字节
+     */
+    public SignedTokenHandler(String keyId, byte[] key) {
+        this.keyId = keyId;
+        this.keyIdBytes = keyId.getBytes(StandardCharsets.UTF_8);
+        if (keyIdBytes.length > 255) {
+            throw new AuthException("签名密钥ID长度不能超过255字节");
+        }
+        addVerificationKey(keyId, key);
+    }
+
+    /**
+     * 添加只用于校验的密钥，更换密钥时保留旧的密钥
+     *
+     * @param keyId 密钥ID
+     * @param key   密钥
+     * @return 当前处理器
+     */
+    public SignedTokenHandler addVerificationKey(String keyId, byte[] key) {
+        if (key == null || key.length < MIN_KEY_LENGTH) {
+            throw new AuthException("签名密钥长度不能少于" + MIN_KEY_LENGTH + "字节");
+        }
+        keys.put(keyId, new SigningKey(key));
+        return this;
+    }
+
+    /**
+     * 签名token需要登录信息，使用{@link #createToken(String, long, long)}
+     */
+    @Override
+    public String createToken() {
+        throw new AuthException("签名token需要登录信息，请通过AuthManager登录");
+    }
+
+    /**
+     * 创建签名token
+     *
+     * @param loginId     登录唯一标识
+     * @param createdTime 创建时间（毫秒）
+     * @param expireTime  过期时间（毫秒），-1为永不过期
+     * @return token
+     */
+    public String createToken(String loginId, long createdTime, long expireTime) {
+        byte[] loginIdBytes = loginId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_LENGTH + keyIdBytes.length + loginIdBytes.length);
+        payload.put(VERSION_1).putLong(createdTime).putLong(expireTime).putLong(RANDOM.nextLong());
+        payload.put((byte) keyIdBytes.length).put(keyIdBytes).put(loginIdBytes);
+        byte[] bytes = payload.array();
+        return ENCODER.encodeToString(bytes) + '.' + ENCODER.encodeToString(keys.get(keyId).sign(bytes));
+    }
+
+    /**
+     * 校验签名并解析token，不校验是否过期
+     *
+     * @param token token
+     * @return token值信息，格式错误、密钥不存在或签名不一致时返回null
+     */
+    public AuthTokenValue verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        byte[] bytes;
+        byte[] signature;
+        try {
+            bytes = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != VERSION_1) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        payload.position(1);
+        long createdTime = payload.getLong();
+        long expireTime = payload.getLong();
+        payload.getLong();
+        int keyIdLength = payload.get() & 0xFF;
+        if (payload.remaining() < keyIdLength) {
+            return null;
+        }
+        SigningKey key = keys.get(new String(bytes, payload.position(), keyIdLength, StandardCharsets.UTF_8));
+        // 常量时间比较，避免通过响应时间推测签名
+        if (key == null || !MessageDigest.isEqual(key.sign(bytes), signature)) {
+            return null;
+        }
+        int loginIdOffset = payload.position() + keyIdLength;
+        String loginId = new String(bytes, loginIdOffset, bytes.length - loginIdOffset, StandardCharsets.UTF_8);
+        Long timeout = expireTime == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : (expireTime - createdTime) / 1000;
+        return new AuthTokenValue(loginId, timeout, createdTime, expireTime, null);
+    }
+
+    /**
+     * 读取token中的随机数，同一毫秒签发的token随机数不同，用于逐个吊销token；不校验签名，需要先通过verify校验
+     *
+     * @param token 已校验的token
+     * @return 随机数，格式错误时返回0
+     */
+    public long getNonce(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return 0;
+        }
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(token.substring(0, dot));
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+        return bytes.length < HEADER_LENGTH ? 0 : ByteBuffer.wrap(bytes).getLong(1 + 8 + 8);
+    }
+
+    private static final class SigningKey {
+
+        private final SecretKeySpec secretKey;
+
+        /**
+         * Mac不是线程安全的，每个线程使用各自的实例
+         */
+        private final ThreadLocal<Mac> mac;
+
+        private SigningKey(byte[] key) {
+            this.secretKey = new SecretKeySpec(key.clone(), ALGORITHM);
+            this.mac = ThreadLocal.withInitial(this::newMac);
+            newMac();
+        }
+
+        private Mac newMac() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(secretKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new AuthException("签名密钥初始化失败", e);
+            }
+        }
+
+        private byte[] sign(byte[] bytes) {
+            return mac.get().doFinal(bytes);
+        }
+
+    }
+
+}
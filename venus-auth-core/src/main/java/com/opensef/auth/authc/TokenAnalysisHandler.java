@@ -7,4 +7,13 @@ public interface TokenAnalysisHandler {
 
     String getToken();
 
+    /**
+     * 获取当前请求的认证信息，同一请求中应返回同一对象
+     *
+     * @return 请求内的认证信息，不在请求中或不需要时返回null，此时每次调用都解析token并读取缓存
+     */
+    default AuthRequestContext getRequestContext() {
+        return null;
+    }
+
 }
@@ -0,0 +1,149 @@
+package com.opensef.auth.authc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * token生成器<br/>
+ * 随机字节来自每个线程各自的SecureRandom，按块预取到缓冲区中；按查表方式直接编码为字节数组后创建字符串，不经过正则和逐字符判断
+ */
+final class TokenGenerator {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ALPHABETIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 每次从SecureRandom预取的字节数
+     */
+    private static final int BUFFER_SIZE = 512;
+
+    private static final ThreadLocal<RandomBuffer> BUFFER = ThreadLocal.withInitial(RandomBuffer::new);
+
+    private TokenGenerator() {
+    }
+
+    /**
+     * 随机UUID（版本4）
+     *
+     * @param dash 是否包含分隔符
+     * @return UUID字符串
+     */
+    static String uuid(boolean dash) {
+        byte[] random = BUFFER.get().next(16);
+        random[6] = (byte) ((random[6] & 0x0F) | 0x40);
+        random[8] = (byte) ((random[8] & 0x3F) | 0x80);
+        byte[] out = new byte[dash ? 36 : 32];
+        int position = 0;
+        for (int i = 0; i < 16; i++) {
+            if (dash && (i == 4 || i == 6 || i == 8 || i == 10)) {
+                out[position++] = '-';
+            }
+            out[position++] = HEX[(random[i] >> 4) & 0x0F];
+            out[position++] = HEX[random[i] & 0x0F];
+        }
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 随机字母字符串
+     *
+     * @param length 长度
+     * @return 字符串
+     */
+    static String alphabetic(int length) {
+        RandomBuffer buffer = BUFFER.get();
+        byte[] out = new byte[length];
+        int position = 0;
+        while (position < length) {
+            // 取6位，超出字母表的值丢弃，保证每个字母的概率相同
+            int index = buffer.nextByte() & 0x3F;
+            if (index < ALPHABETIC.length) {
+                out[position++] = ALPHABETIC[index];
+            }
+        }
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 随机字节的base64url编码，不包含填充字符
+     *
+     * @param byteLength 随机字节数
+     * @return 字符串
+     */
+    static String base64Url(int byteLength) {
+        byte[] random = BUFFER.get().next(byteLength);
+        byte[] out = new byte[(byteLength * 8 + 5) / 6];
+        int position = 0;
+        int i = 0;
+        for (; i + 3 <= byteLength; i += 3) {
+            int bits = (random[i] & 0xFF) << 16 | (random[i + 1] & 0xFF) << 8 | (random[i + 2] & 0xFF);
+            out[position++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            out[position++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            out[position++] = BASE64_URL[(bits >>> 6) & 0x3F];
+            out[position++] = BASE64_URL[bits & 0x3F];
+        }
+        int remaining = byteLength - i;
+        if (remaining > 0) {
+            int bits = (random[i] & 0xFF) << 16 | (remaining == 2 ? (random[i + 1] & 0xFF) << 8 : 0);
+            out[position++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            out[position++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            if (remaining == 2) {
+                out[position] = BASE64_URL[(bits >>> 6) & 0x3F];
+            }
+        }
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 优先使用DRBG，每个实例独立加锁；默认的NativePRNG在所有实例间共享同一把锁
+     */
+    private static SecureRandom newSecureRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * 线程独占的随机字节缓冲区
+     */
+    private static final class RandomBuffer {
+
+        private final SecureRandom random = newSecureRandom();
+
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+
+        private int position = BUFFER_SIZE;
+
+        private int nextByte() {
+            if (position == BUFFER_SIZE) {
+                random.nextBytes(bytes);
+                position = 0;
+            }
+            return bytes[position++];
+        }
+
+        private byte[] next(int length) {
+            byte[] out = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                if (position == BUFFER_SIZE) {
+                    random.nextBytes(bytes);
+                    position = 0;
+                }
+                int count = Math.min(length - copied, BUFFER_SIZE - position);
+                System.arraycopy(bytes, position, out, copied, count);
+                position += count;
+                copied += count;
+            }
+            return out;
+        }
+
+    }
+
+}
@@ -7,4 +7,14 @@ public interface TokenHandler {
 
     String createToken();
 
+    /**
+     * 根据登录唯一标识创建token，默认与登录唯一标识无关
+     *
+     * @param loginId 登录唯一标识
+     * @return token
+     */
+    default String createToken(String loginId) {
+        return createToken();
+    }
+
 }
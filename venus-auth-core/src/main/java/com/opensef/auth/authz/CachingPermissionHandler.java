@@ -0,0 +1,289 @@
+package com.opensef.auth.authz;
+
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.config.PermissionCacheConfig;
+import com.opensef.auth.exception.AuthException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * 缓存角色和权限的PermissionHandler<br/>
+ * 按登录唯一标识缓存被包装的PermissionHandler返回的角色和权限：过期后访问时重新加载，同一登录唯一标识的并发加载只执行一次；
+ * 超过提前刷新时间、未过期时访问，直接返回当前数据并在后台刷新。角色或权限变更后调用invalidate立即生效
+ */
+public class CachingPermissionHandler implements PermissionHandler {
+
+    private final PermissionHandler delegate;
+
+    private final long ttl;
+
+    private final long refreshAfter;
+
+    private final long maximumSize;
+
+    private final AuthClock clock;
+
+    /**
+     * 执行后台刷新
+     */
+    private final Executor executor;
+
+    private final Store roles = new Store(PermissionHandler::getRoles);
+
+    private final Store permissions = new Store(PermissionHandler::getPermissions);
+
+    public CachingPermissionHandler(PermissionHandler delegate, PermissionCacheConfig config) {
+        this(delegate, config, AuthClock.system(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param delegate 被包装的PermissionHandler
+     * @param config   缓存配置
+     * @param clock    时钟
+     * @param executor 执行后台刷新的线程池
+     */
+    public CachingPermissionHandler(PermissionHandler delegate, PermissionCacheConfig config, AuthClock clock, Executor executor) {
+        if (config.getTtl() <= 0) {
+            throw new AuthException("角色权限缓存有效期必须大于0");
+        }
+        this.delegate = delegate;
+        this.ttl = config.getTtl();
+        this.refreshAfter = config.getRefreshAfter() > 0 && config.getRefreshAfter() < config.getTtl()
+                ? config.getRefreshAfter() : Long.MAX_VALUE;
+        this.maximumSize = config.getMaximumSize() > 0 ? config.getMaximumSize() : Long.MAX_VALUE;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    @Override
+    public List<String> getRoles(String loginId) {
+        return roles.get(loginId);
+    }
+
+    @Override
+    public List<String> getPermissions(String loginId) {
+        return permissions.get(loginId);
+    }
+
+    /**
+     * 删除登录唯一标识缓存的角色和权限，下次访问时重新加载
+     *
+     * @param loginId 登录唯一标识
+     */
+    public void invalidate(String loginId) {
+        roles.invalidate(loginId);
+        permissions.invalidate(loginId);
+    }
+
+    /**
+     * 删除全部缓存的角色和权限
+     */
+    public void invalidateAll() {
+        roles.invalidateAll();
+        permissions.invalidateAll();
+    }
+
+    public PermissionHandler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 缓存的数据
+     */
+    private static final class Entry {
+
+        private final List<String> value;
+
+        private final long expireTime;
+
+        private final long refreshTime;
+
+        /**
+         * 是否正在后台刷新，同一数据只提交一次刷新
+         */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * 最后访问时间，超出最大缓存数量时删除最久未访问的数据
+         */
+        private volatile long accessTime;
+
+        private Entry(List<String> value, long expireTime, long refreshTime, long accessTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+            this.refreshTime = refreshTime;
+            this.accessTime = accessTime;
+        }
+
+    }
+
+    /**
+     * 一种数据（角色或权限）的缓存
+     */
+    private final class Store {
+
+        private final BiFunction<PermissionHandler, String, List<String>> loader;
+
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+        /**
+         * 正在加载的登录唯一标识，并发访问时等待同一次加载的结果
+         */
+        private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+        private Store(BiFunction<PermissionHandler, String, List<String>> loader) {
+            this.loader = loader;
+        }
+
+        private List<String> get(String loginId) {
+            long now = clock.currentTimeMillis();
+            Entry entry = entries.get(loginId);
+            if (entry != null && now < entry.expireTime) {
+                // 时间未变化时不写入，减少并发访问同一数据时的缓存行争用
+                if (entry.accessTime != now) {
+                    entry.accessTime = now;
+                }
+                if (now >= entry.refreshTime && entry.refreshing.compareAndSet(false, true)) {
+                    refresh(loginId, entry);
+                }
+                return entry.value;
+            }
+            return load(loginId).value;
+        }
+
+        private Entry load(String loginId) {
+            CompletableFuture<Entry> future = new CompletableFuture<>();
+            CompletableFuture<Entry> existing = loading.putIfAbsent(loginId, future);
+            if (existing != null) {
+                return join(existing);
+            }
+            try {
+                // 等待期间其他线程可能已加载完成
+                Entry entry = entries.get(loginId);
+                if (entry == null || clock.currentTimeMillis() >= entry.expireTime) {
+                    entry = newEntry(loader.apply(delegate, loginId));
+                    put(loginId, entry, future);
+                }
+                future.complete(entry);
+                return entry;
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(loginId, future);
+            }
+        }
+
+        private void refresh(String loginId, Entry entry) {
+            try {
+                CompletableFuture.supplyAsync(() -> loader.apply(delegate, loginId), executor).whenComplete((value, e) -> {
+                    if (e != null) {
+                        // 刷新失败时保留当前数据，下次访问时重试
+                        entry.refreshing.set(false);
+                    } else {
+                        // 刷新期间被删除或替换时不写入
+                        entries.replace(loginId, entry, newEntry(value));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                entry.refreshing.set(false);
+            }
+        }
+
+        private Entry join(CompletableFuture<Entry> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new AuthException("加载角色权限失败", cause);
+            }
+        }
+
+        private Entry newEntry(List<String> value) {
+            long now = clock.currentTimeMillis();
+            List<String> copy = value == null ? null : Collections.unmodifiableList(new ArrayList<>(value));
+            return new Entry(copy, now + ttl, refreshAfter == Long.MAX_VALUE ? Long.MAX_VALUE : now + refreshAfter, now);
+        }
+
+        /**
+         * 加载期间被删除时不写入，避免写回旧数据<br/>
+         * 在loading的同一key上比较并写入，与invalidate删除loading互斥：写入在前时随后被invalidate删除，删除在前时不写入
+         */
+        private void put(String loginId, Entry entry, CompletableFuture<Entry> future) {
+            AtomicBoolean written = new AtomicBoolean();
+            loading.computeIfPresent(loginId, (key, current) -> {
+                if (current == future) {
+                    entries.put(loginId, entry);
+                    written.set(true);
+                }
+                return current;
+            });
+            if (written.get() && entries.size() > maximumSize) {
+                evict();
+            }
+        }
+
+        /**
+         * 超出最大缓存数量时先删除过期数据，仍超出时按最后访问时间删除最久未访问的数据，直到最大数量的90%，避免每次写入都遍历
+         */
+        private void evict() {
+            long now = clock.currentTimeMillis();
+            entries.values().removeIf(entry -> now >= entry.expireTime);
+            long target = maximumSize - maximumSize / 10;
+            if (entries.size() <= target) {
+                return;
+            }
+            // 先取访问时间的快照排序，排序期间数据仍可能被访问
+            long[] accessTimes = new long[entries.size()];
+            int count = 0;
+            for (Entry entry : entries.values()) {
+                if (count == accessTimes.length) {
+                    break;
+                }
+                accessTimes[count++] = entry.accessTime;
+            }
+            if (count <= target) {
+                return;
+            }
+            Arrays.sort(accessTimes, 0, count);
+            long threshold = accessTimes[(int) (count - target) - 1];
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                if (iterator.next().accessTime <= threshold) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void invalidate(String loginId) {
+            // 先删除loading，正在进行的加载完成后不再写入
+            loading.remove(loginId);
+            entries.remove(loginId);
+        }
+
+        private void invalidateAll() {
+            loading.clear();
+            entries.clear();
+        }
+
+    }
+
+}
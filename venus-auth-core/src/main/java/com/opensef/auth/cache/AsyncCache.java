@@ -0,0 +1,118 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.constant.AuthConstant;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * 异步缓存<br/>
+ * 所有操作立即返回CompletableFuture，远程缓存的网络I/O不再阻塞请求线程。
+ * 同步的Cache实现可以通过BlockingAsyncCache适配
+ */
+public interface AsyncCache<K, V> {
+
+    /**
+     * 获取value值
+     *
+     * @param key key值
+     * @return value值
+     */
+    CompletableFuture<V> getAsync(K key);
+
+    /**
+     * 设置value值
+     *
+     * @param key     key值
+     * @param value   value值
+     * @param timeout 过期时间（毫秒）
+     */
+    CompletableFuture<Void> putAsync(K key, V value, long timeout);
+
+    /**
+     * 删除value值
+     *
+     * @param key key值
+     * @return 删除的value值
+     */
+    CompletableFuture<V> removeAsync(K key);
+
+    /**
+     * 设置缓存过期时间
+     *
+     * @param key     key值
+     * @param timeout 过期时间（毫秒）
+     */
+    CompletableFuture<Void> expireAsync(K key, long timeout);
+
+    /**
+     * 获取剩余过期时间
+     *
+     * @param key key值
+     * @return 过期时间（毫秒） -1表示永久
+     */
+    CompletableFuture<Long> getExpireAsync(K key);
+
+    /**
+     * 是否有效，规则同Cache的isUnExpired
+     *
+     * @param key key值
+     * @return true:有效，false:已过期
+     */
+    default CompletableFuture<Boolean> isUnExpiredAsync(K key) {
+        return getExpireAsync(key).thenApply(expire -> expire != null && (expire > AuthConstant.EXPIRED_DATA_NOT_EXIST));
+    }
+
+    /**
+     * 批量获取value值
+     *
+     * @param keys key值集合
+     * @return key及对应的value值，不存在的key不包含在结果中
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys);
+
+    /**
+     * 批量设置value值
+     *
+     * @param map     key及对应的value值
+     * @param timeout 过期时间（毫秒）
+     */
+    CompletableFuture<Void> putAllAsync(Map<? extends K, ? extends V> map, long timeout);
+
+    /**
+     * 批量删除value值
+     *
+     * @param keys key值集合
+     */
+    CompletableFuture<Void> removeAllAsync(Collection<? extends K> keys);
+
+    /**
+     * 批量设置缓存过期时间
+     *
+     * @param keys    key值集合
+     * @param timeout 过期时间（毫秒）
+     */
+    CompletableFuture<Void> expireAllAsync(Collection<? extends K> keys, long timeout);
+
+    /**
+     * 根据当前值计算新值，规则同Cache的compute
+     *
+     * @param key       key值
+     * @param remapping 根据当前值（不存在时为null）计算新值，返回null时删除数据
+     * @param timeout   新值的过期时间（毫秒）
+     * @return 新值，已删除时返回null
+     */
+    CompletableFuture<V> computeAsync(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout);
+
+    /**
+     * key存在时根据当前值计算新值，保持剩余过期时间不变，规则同Cache的computeIfPresent
+     *
+     * @param key       key值
+     * @param remapping 根据当前值计算新值，返回null时删除数据
+     * @return 新值，key不存在或已删除时返回null
+     */
+    CompletableFuture<V> computeIfPresentAsync(K key, BiFunction<? super K, ? super V, ? extends V> remapping);
+
+}
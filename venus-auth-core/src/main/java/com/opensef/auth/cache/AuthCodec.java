@@ -0,0 +1,34 @@
+package com.opensef.auth.cache;
+
+/**
+ * 缓存数据编码<br/>
+ * 远程缓存（Redis、数据库等）使用此接口将token、session等数据编码为字节
+ */
+public interface AuthCodec {
+
+    /**
+     * 编码
+     *
+     * @param value 值
+     * @return 编码后的字节
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码
+     *
+     * @param bytes 编码后的字节
+     * @return 值
+     */
+    Object decode(byte[] bytes);
+
+    /**
+     * 获取二进制编码，不支持的类型使用Java序列化
+     *
+     * @return 二进制编码
+     */
+    static AuthCodec binary() {
+        return BinaryAuthCodec.INSTANCE;
+    }
+
+}
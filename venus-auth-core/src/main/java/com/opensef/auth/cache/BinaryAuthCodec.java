@@ -0,0 +1,57 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.exception.AuthException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 二进制编码<br/>
+ * 第一个字节为格式版本，之后按BinaryRecordCodec编码：AuthTokenValue、AuthSession、addInfo及常用类型按字段顺序编码，
+ * 长度和数值使用变长整数，不保存类名。<br/>
+ * 其他类型的值使用备用编码（例如JacksonAuthCodec），未指定时需要实现Serializable。
+ * 第一个字节不是格式版本时交给备用编码解码，可以读取切换前由备用编码写入的数据
+ */
+public final class BinaryAuthCodec implements AuthCodec {
+
+    static final BinaryAuthCodec INSTANCE = new BinaryAuthCodec();
+
+    /**
+     * 格式版本，与JSON的首字符不会冲突
+     */
+    private static final byte VERSION_1 = (byte) 0xB1;
+
+    private final AuthCodec fallback;
+
+    public BinaryAuthCodec() {
+        this(null);
+    }
+
+    /**
+     * @param fallback 备用编码，为null时不支持的类型使用Java序列化；不为null时解码拒绝Java序列化的数据
+     */
+    public BinaryAuthCodec(AuthCodec fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        BinaryRecordCodec.Writer writer = new BinaryRecordCodec.Writer(64);
+        writer.writeByte(VERSION_1);
+        BinaryRecordCodec.writeValue(writer, value, fallback);
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == VERSION_1) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            buffer.position(1);
+            return BinaryRecordCodec.readValue(buffer, fallback);
+        }
+        if (fallback != null) {
+            return fallback.decode(bytes);
+        }
+        throw new AuthException("无法识别的缓存数据格式：" + (bytes.length > 0 ? bytes[0] : "空"));
+    }
+
+}
@@ -0,0 +1,451 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.authc.AuthTokenValue;
+import com.opensef.auth.exception.AuthException;
+import com.opensef.auth.session.AuthSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缓存数据的紧凑二进制编码<br/>
+ * AuthTokenValue、AuthSession及常用类型按字段顺序编码，长度和数值使用变长整数；
+ * 其他类型的值指定了备用编码时使用备用编码，否则需要实现Serializable，使用Java序列化编码
+ */
+final class BinaryRecordCodec {
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte LONG = 2;
+
+    private static final byte INTEGER = 3;
+
+    private static final byte BOOLEAN = 4;
+
+    private static final byte DOUBLE = 5;
+
+    private static final byte MAP = 6;
+
+    private static final byte LIST = 7;
+
+    private static final byte AUTH_TOKEN_VALUE = 8;
+
+    private static final byte AUTH_SESSION = 9;
+
+    private static final byte SERIALIZABLE = 10;
+
+    private static final byte CACHE_KEY = 11;
+
+    private static final byte FALLBACK = 12;
+
+    /**
+     * token集合按数量+字符串编码，不再逐个写入类型；AUTH_SESSION仅用于读取之前写入的数据
+     */
+    private static final byte AUTH_SESSION_V2 = 13;
+
+    /**
+     * 在创建时间之后增加修订号及最晚过期时间；AUTH_SESSION_V2仅用于读取之前写入的数据
+     */
+    private static final byte AUTH_SESSION_V3 = 14;
+
+    /**
+     * Java序列化允许解码的类型：JDK的常用集合和值类型及本框架的类型，
+     * 其他类型需要通过JVM的序列化过滤器（jdk.serialFilter）允许，例如-Djdk.serialFilter=com.example.**
+     */
+    private static final ObjectInputFilter ALLOWED_CLASSES = ObjectInputFilter.Config.createFilter(
+            "maxdepth=32;java.lang.*;java.util.*;java.util.concurrent.*;java.time.*;java.math.*;com.opensef.auth.**;!*");
+
+    private BinaryRecordCodec() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param value 值
+     * @return 编码后的字节
+     */
+    static byte[] encode(Object value) {
+        Writer writer = new Writer(64);
+        writeValue(writer, value);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解码，从buffer的当前位置开始读取
+     *
+     * @param buffer 编码后的字节
+     * @return 值
+     */
+    static Object decode(ByteBuffer buffer) {
+        return readValue(buffer);
+    }
+
+    static void writeValue(Writer writer, Object value) {
+        writeValue(writer, value, null);
+    }
+
+    /**
+     * @param fallback 不支持的类型使用的备用编码，为null时使用Java序列化
+     */
+    static void writeValue(Writer writer, Object value, AuthCodec fallback) {
+        if (value == null) {
+            writer.writeByte(NULL);
+        } else if (value instanceof String) {
+            writer.writeByte(STRING);
+            writer.writeString((String) value);
+        } else if (value instanceof Long) {
+            writer.writeByte(LONG);
+            writer.writeVarLong((Long) value);
+        } else if (value instanceof Integer) {
+            writer.writeByte(INTEGER);
+            writer.writeVarLong((Integer) value);
+        } else if (value instanceof Boolean) {
+            writer.writeByte(BOOLEAN);
+            writer.writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Double) {
+            writer.writeByte(DOUBLE);
+            writer.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof CacheKey) {
+            CacheKey cacheKey = (CacheKey) value;
+            writer.writeByte(CACHE_KEY);
+            writer.writeString(cacheKey.getNamespace().getName());
+            writer.writeString(cacheKey.getId());
+        } else if (value instanceof AuthTokenValue) {
+            AuthTokenValue tokenValue = (AuthTokenValue) value;
+            writer.writeByte(AUTH_TOKEN_VALUE);
+            writer.writeNullableString(tokenValue.getLoginId());
+            writer.writeNullableLong(tokenValue.getTimeout());
+            writer.writeNullableLong(tokenValue.getCreatedTime());
+            writer.writeNullableLong(tokenValue.getExpireTime());
+            writeValue(writer, tokenValue.getAddInfo(), fallback);
+        } else if (value instanceof AuthSession) {
+            AuthSession authSession = (AuthSession) value;
+            writer.writeByte(AUTH_SESSION_V3);
+            writer.writeNullableString(authSession.getSessionId());
+            writer.writeNullableLong(authSession.getCreatedTime());
+            writer.writeVarLong(authSession.getRevision());
+            writer.writeVarLong(authSession.getExpireTime());
+            writeValue(writer, authSession.getData(), fallback);
+            // 0表示null，其他值为数量+1
+            Set<String> tokens = authSession.getTokens();
+            writer.writeVarInt(tokens == null ? 0 : tokens.size() + 1);
+            if (tokens != null) {
+                for (String token : tokens) {
+                    writer.writeString(token);
+                }
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writer.writeByte(MAP);
+            writer.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(writer, entry.getKey(), fallback);
+                writeValue(writer, entry.getValue(), fallback);
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            writer.writeByte(LIST);
+            writer.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(writer, element, fallback);
+            }
+        } else if (fallback != null) {
+            writer.writeByte(FALLBACK);
+            byte[] bytes = fallback.encode(value);
+            writer.writeVarInt(bytes.length);
+            writer.writeBytes(bytes, 0, bytes.length);
+        } else if (value instanceof Serializable) {
+            writer.writeByte(SERIALIZABLE);
+            byte[] bytes = serialize(value);
+            writer.writeVarInt(bytes.length);
+            writer.writeBytes(bytes, 0, bytes.length);
+        } else {
+            throw new AuthException("不支持的缓存数据类型：" + value.getClass().getName() + "，请实现Serializable接口");
+        }
+    }
+
+    static Object readValue(ByteBuffer buffer) {
+        return readValue(buffer, null);
+    }
+
+    /**
+     * @param fallback 编码时使用的备用编码
+     */
+    @SuppressWarnings("unchecked")
+    static Object readValue(ByteBuffer buffer, AuthCodec fallback) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(buffer);
+            case LONG:
+                return readVarLong(buffer);
+            case INTEGER:
+                return (int) readVarLong(buffer);
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case DOUBLE:
+                return Double.longBitsToDouble(buffer.getLong());
+            case CACHE_KEY:
+                return new CacheKey(new CacheKey.Namespace(readString(buffer)), readString(buffer));
+            case AUTH_TOKEN_VALUE: {
+                AuthTokenValue tokenValue = new AuthTokenValue();
+                tokenValue.setLoginId(readNullableString(buffer));
+                tokenValue.setTimeout(readNullableLong(buffer));
+                tokenValue.setCreatedTime(readNullableLong(buffer));
+                tokenValue.setExpireTime(readNullableLong(buffer));
+                tokenValue.setAddInfo((Map<String, Object>) readValue(buffer, fallback));
+                return tokenValue;
+            }
+            case AUTH_SESSION: {
+                AuthSession authSession = new AuthSession();
+                authSession.setSessionId(readNullableString(buffer));
+                authSession.setCreatedTime(readNullableLong(buffer));
+                authSession.setData(readValue(buffer, fallback));
+                authSession.setTokens((List<String>) readValue(buffer, fallback));
+                return authSession;
+            }
+            case AUTH_SESSION_V2:
+            case AUTH_SESSION_V3: {
+                AuthSession authSession = new AuthSession();
+                authSession.setSessionId(readNullableString(buffer));
+                authSession.setCreatedTime(readNullableLong(buffer));
+                if (type == AUTH_SESSION_V3) {
+                    authSession.setRevision(readVarLong(buffer));
+                    authSession.setExpireTime(readVarLong(buffer));
+                }
+                authSession.setData(readValue(buffer, fallback));
+                int size = readVarInt(buffer) - 1;
+                if (size >= 0) {
+                    authSession.setTokens(Collections.emptySet());
+                    for (int i = 0; i < size; i++) {
+                        authSession.addToken(readString(buffer));
+                    }
+                }
+                return authSession;
+            }
+            case MAP: {
+                int size = readVarInt(buffer);
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(buffer, fallback), readValue(buffer, fallback));
+                }
+                return map;
+            }
+            case LIST: {
+                int size = readVarInt(buffer);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buffer, fallback));
+                }
+                return list;
+            }
+            case SERIALIZABLE: {
+                // 指定了备用编码时编码不会使用Java序列化，出现时说明数据不是本框架写入的
+                if (fallback != null) {
+                    throw new AuthException("缓存数据使用了Java序列化，指定备用编码时不接受");
+                }
+                byte[] bytes = new byte[readVarInt(buffer)];
+                buffer.get(bytes);
+                return deserialize(bytes);
+            }
+            case FALLBACK: {
+                if (fallback == null) {
+                    throw new AuthException("缓存数据使用了备用编码，解码时未指定备用编码");
+                }
+                byte[] bytes = new byte[readVarInt(buffer)];
+                buffer.get(bytes);
+                return fallback.decode(bytes);
+            }
+            default:
+                throw new AuthException("无法识别的缓存数据类型：" + type);
+        }
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String readNullableString(ByteBuffer buffer) {
+        return buffer.get() == NULL ? null : readString(buffer);
+    }
+
+    static Long readNullableLong(ByteBuffer buffer) {
+        return buffer.get() == NULL ? null : readVarLong(buffer);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        // zigzag解码
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] serialize(Object value) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(value);
+        } catch (IOException e) {
+            throw new AuthException("缓存数据序列化失败", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            objectInputStream.setObjectInputFilter(BinaryRecordCodec::checkInput);
+            return objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new AuthException("缓存数据反序列化失败", e);
+        }
+    }
+
+    /**
+     * 先按允许的类型检查，不在其中的类型再由JVM的序列化过滤器决定，未配置时拒绝
+     */
+    private static ObjectInputFilter.Status checkInput(ObjectInputFilter.FilterInfo filterInfo) {
+        ObjectInputFilter.Status status = ALLOWED_CLASSES.checkInput(filterInfo);
+        if (status == ObjectInputFilter.Status.REJECTED && filterInfo.serialClass() != null) {
+            ObjectInputFilter serialFilter = ObjectInputFilter.Config.getSerialFilter();
+            if (serialFilter != null && serialFilter.checkInput(filterInfo) == ObjectInputFilter.Status.ALLOWED) {
+                return ObjectInputFilter.Status.ALLOWED;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * 可扩容的字节写入器
+     */
+    static final class Writer {
+
+        private byte[] bytes;
+
+        private int size;
+
+        Writer(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        void writeByte(byte b) {
+            ensureCapacity(1);
+            bytes[size++] = b;
+        }
+
+        void writeBytes(byte[] src, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(src, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int i = 7; i >= 0; i--) {
+                bytes[size++] = (byte) (value >>> (i << 3));
+            }
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            // zigzag编码，使-1等小负数也只占用1个字节
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[size++] = (byte) zigzag;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length);
+            writeBytes(utf8, 0, utf8.length);
+        }
+
+        void writeNullableString(String value) {
+            if (value == null) {
+                writeByte(NULL);
+            } else {
+                writeByte(STRING);
+                writeString(value);
+            }
+        }
+
+        void writeNullableLong(Long value) {
+            if (value == null) {
+                writeByte(NULL);
+            } else {
+                writeByte(LONG);
+                writeVarLong(value);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + length));
+            }
+        }
+
+    }
+
+}
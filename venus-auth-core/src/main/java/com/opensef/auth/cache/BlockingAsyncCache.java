@@ -0,0 +1,90 @@
+package com.opensef.auth.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+/**
+ * 将同步的Cache适配为AsyncCache<br/>
+ * 每个操作提交到指定的线程池中执行，请求线程不再等待缓存I/O。
+ * 远程缓存应使用独立的线程池，避免阻塞公共的ForkJoinPool
+ */
+public class BlockingAsyncCache<K, V> implements AsyncCache<K, V> {
+
+    private final Cache<K, V> cache;
+
+    private final Executor executor;
+
+    /**
+     * @param cache    同步缓存
+     * @param executor 执行缓存操作的线程池
+     */
+    public BlockingAsyncCache(Cache<K, V> cache, Executor executor) {
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        return CompletableFuture.supplyAsync(() -> cache.get(key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value, long timeout) {
+        return CompletableFuture.runAsync(() -> cache.put(key, value, timeout), executor);
+    }
+
+    @Override
+    public CompletableFuture<V> removeAsync(K key) {
+        return CompletableFuture.supplyAsync(() -> cache.remove(key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> expireAsync(K key, long timeout) {
+        return CompletableFuture.runAsync(() -> cache.expire(key, timeout), executor);
+    }
+
+    @Override
+    public CompletableFuture<Long> getExpireAsync(K key) {
+        return CompletableFuture.supplyAsync(() -> cache.getExpire(key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isUnExpiredAsync(K key) {
+        // 使用同步缓存自身的判断规则
+        return CompletableFuture.supplyAsync(() -> cache.isUnExpired(key), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        return CompletableFuture.supplyAsync(() -> cache.getAll(keys), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAllAsync(Map<? extends K, ? extends V> map, long timeout) {
+        return CompletableFuture.runAsync(() -> cache.putAll(map, timeout), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAllAsync(Collection<? extends K> keys) {
+        return CompletableFuture.runAsync(() -> cache.removeAll(keys), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> expireAllAsync(Collection<? extends K> keys, long timeout) {
+        return CompletableFuture.runAsync(() -> cache.expireAll(keys, timeout), executor);
+    }
+
+    @Override
+    public CompletableFuture<V> computeAsync(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        return CompletableFuture.supplyAsync(() -> cache.compute(key, remapping, timeout), executor);
+    }
+
+    @Override
+    public CompletableFuture<V> computeIfPresentAsync(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        return CompletableFuture.supplyAsync(() -> cache.computeIfPresent(key, remapping), executor);
+    }
+
+}
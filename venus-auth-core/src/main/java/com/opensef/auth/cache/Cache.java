@@ -1,7 +1,20 @@
 package com.opensef.auth.cache;
 
 import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.exception.AuthException;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * 缓存<br/>
+ * putIfAbsent、replace、remove(key, expected)、compute、computeIfPresent的默认实现先读取再写入，不是原子操作，
+ * 只适用于单线程或测试；自定义缓存必须重写这些方法，例如Redis的SET NX或Lua脚本、数据库的版本号条件更新。
+ * 默认实现使用equals比较读取到的值，AuthTokenValue和AuthSession的equals不依赖附加信息和session数据，反序列化后仍可比较
+ */
 public interface Cache<K, V> {
 
     /**
@@ -65,4 +78,248 @@ public interface Cache<K, V> {
         return expire != null && (expire > AuthConstant.EXPIRED_DATA_NOT_EXIST);
     }
 
+    /**
+     * 批量获取value值<br/>
+     * 默认逐个调用get，远程缓存可以重写此方法，在一次网络往返中完成
+     *
+     * @param keys key值集合
+     * @return key及对应的value值，不存在的key不包含在结果中
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<>(Math.max(16, (int) (keys.size() / 0.75f) + 1));
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量设置value值<br/>
+     * 默认逐个调用put，远程缓存可以重写此方法，在一次网络往返中完成
+     *
+     * @param map     key及对应的value值
+     * @param timeout 过期时间（毫秒）
+     */
+    default void putAll(Map<? extends K, ? extends V> map, long timeout) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), timeout);
+        }
+    }
+
+    /**
+     * 批量删除value值<br/>
+     * 默认逐个调用remove，远程缓存可以重写此方法，在一次网络往返中完成
+     *
+     * @param keys key值集合
+     */
+    default void removeAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 批量设置缓存过期时间<br/>
+     * 默认逐个调用expire，远程缓存可以重写此方法，在一次网络往返中完成
+     *
+     * @param keys    key值集合
+     * @param timeout 过期时间（毫秒）
+     */
+    default void expireAll(Collection<? extends K> keys, long timeout) {
+        for (K key : keys) {
+            expire(key, timeout);
+        }
+    }
+
+    /**
+     * key不存在时设置value值<br/>
+     * 默认先读取再写入，不是原子操作，缓存实现应重写此方法，例如Redis的SET NX
+     *
+     * @param key     key值
+     * @param value   value值
+     * @param timeout 过期时间（毫秒）
+     * @return 已经存在的value值，设置成功时返回null
+     */
+    default V putIfAbsent(K key, V value, long timeout) {
+        V current = get(key);
+        if (current == null) {
+            put(key, value, timeout);
+        }
+        return current;
+    }
+
+    /**
+     * 当前值等于期望值（equals）时替换为新值，保持剩余过期时间不变<br/>
+     * 默认先读取再写入，不是原子操作，缓存实现应重写此方法
+     *
+     * @param key      key值
+     * @param expected 期望的当前值
+     * @param value    新值
+     * @return true:替换成功
+     */
+    default boolean replace(K key, V expected, V value) {
+        V current = get(key);
+        if (current == null || !Objects.equals(current, expected)) {
+            return false;
+        }
+        Long expire = getExpire(key);
+        if (expire == null || expire == AuthConstant.EXPIRED_DATA_NOT_EXIST) {
+            return false;
+        }
+        put(key, value, expire);
+        return true;
+    }
+
+    /**
+     * 当前值等于期望值（equals）时替换为新值<br/>
+     * 默认先读取再写入，不是原子操作，缓存实现应重写此方法
+     *
+     * @param key      key值
+     * @param expected 期望的当前值
+     * @param value    新值
+     * @param timeout  过期时间（毫秒）
+     * @return true:替换成功
+     */
+    default boolean replace(K key, V expected, V value, long timeout) {
+        V current = get(key);
+        if (current == null || !Objects.equals(current, expected)) {
+            return false;
+        }
+        put(key, value, timeout);
+        return true;
+    }
+
+    /**
+     * 当前值等于期望值（equals）时删除<br/>
+     * 默认先读取再删除，不是原子操作，缓存实现应重写此方法
+     *
+     * @param key      key值
+     * @param expected 期望的当前值
+     * @return true:删除成功
+     */
+    default boolean remove(K key, V expected) {
+        V current = get(key);
+        if (current == null || !Objects.equals(current, expected)) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    /**
+     * 根据当前值计算新值<br/>
+     * 默认基于putIfAbsent、replace、remove循环比较并设置，计算函数可能被执行多次，不能修改传入的当前值，应返回新的对象；
+     * 重试超过{@link AuthConstant#MAX_COMPUTE_RETRIES}次时抛出AuthException
+     *
+     * @param key       key值
+     * @param remapping 根据当前值（不存在时为null）计算新值，返回null时删除数据
+     * @param timeout   新值的过期时间（毫秒）
+     * @return 新值，已删除时返回null
+     */
+    default V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        for (int retries = 0; retries < AuthConstant.MAX_COMPUTE_RETRIES; retries++) {
+            V current = get(key);
+            V value = remapping.apply(key, current);
+            if (current == null) {
+                if (value == null || putIfAbsent(key, value, timeout) == null) {
+                    return value;
+                }
+            } else if (value == null) {
+                if (remove(key, current)) {
+                    return null;
+                }
+            } else if (replace(key, current, value, timeout)) {
+                return value;
+            }
+        }
+        throw new AuthException("缓存比较并设置失败次数超过上限，key：" + key + "，请重写Cache的compute方法或检查value的equals实现");
+    }
+
+    /**
+     * key存在时根据当前值计算新值，保持剩余过期时间不变<br/>
+     * 默认基于replace、remove循环比较并设置，计算函数可能被执行多次，不能修改传入的当前值，应返回新的对象；
+     * 重试超过{@link AuthConstant#MAX_COMPUTE_RETRIES}次时抛出AuthException
+     *
+     * @param key       key值
+     * @param remapping 根据当前值计算新值，返回null时删除数据
+     * @return 新值，key不存在或已删除时返回null
+     */
+    default V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        for (int retries = 0; retries < AuthConstant.MAX_COMPUTE_RETRIES; retries++) {
+            V current = get(key);
+            if (current == null) {
+                return null;
+            }
+            V value = remapping.apply(key, current);
+            if (value == null) {
+                if (remove(key, current)) {
+                    return null;
+                }
+            } else if (replace(key, current, value)) {
+                return value;
+            }
+        }
+        throw new AuthException("缓存比较并设置失败次数超过上限，key：" + key + "，请重写Cache的computeIfPresent方法或检查value的equals实现");
+    }
+
+    /**
+     * 设置一个key的value值，并根据另一个key的当前值计算新值，登录时用于同时保存token和更新session<br/>
+     * 默认依次调用put和compute，远程缓存可以合并为一次网络往返
+     *
+     * @param putKey    直接设置的key值
+     * @param putValue  直接设置的value值
+     * @param key       计算新值的key值
+     * @param remapping 根据当前值（不存在时为null）计算新值，返回null时删除数据
+     * @param timeout   两个key的过期时间（毫秒）
+     * @return 计算后的新值，已删除时返回null
+     */
+    default V putAndCompute(K putKey, V putValue, K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        put(putKey, putValue, timeout);
+        return compute(key, remapping, timeout);
+    }
+
+    /**
+     * 将结构化的缓存key转换为当前缓存使用的key<br/>
+     * 默认转换为字符串（命名空间:id），与之前拼接的key相同；内存缓存直接使用CacheKey，远程缓存可以使用CacheKey的字节编码
+     *
+     * @param key 缓存key
+     * @return 当前缓存使用的key
+     */
+    @SuppressWarnings("unchecked")
+    default K resolveKey(CacheKey key) {
+        return (K) key.toString();
+    }
+
+    /**
+     * 获取统计信息，不支持统计的缓存返回CacheStats.EMPTY
+     *
+     * @return 统计信息
+     */
+    default CacheStats stats() {
+        return CacheStats.EMPTY;
+    }
+
+    /**
+     * 添加数据删除监听器，数据主动删除、过期或被淘汰时异步通知
+     *
+     * @param listener 监听器
+     * @return true:添加成功，false:当前缓存不支持删除通知
+     */
+    default boolean addRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        return false;
+    }
+
+    /**
+     * 删除数据删除监听器
+     *
+     * @param listener 监听器
+     * @return true:删除成功，false:监听器不存在或当前缓存不支持删除通知
+     */
+    default boolean removeRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        return false;
+    }
+
 }
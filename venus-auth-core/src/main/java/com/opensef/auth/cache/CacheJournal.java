@@ -0,0 +1,457 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.exception.AuthException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 内存缓存持久化日志<br/>
+ * put、remove、expire操作按顺序追加到内存映射的日志文件中，追加只是内存复制，不在请求线程上刷盘；
+ * 后台线程按固定周期批量刷盘（group commit），并定期生成快照，快照完成后删除更早的日志和快照。
+ * 启动时先加载最新的快照，再按顺序回放之后的日志，已经过期的数据直接跳过。<br/>
+ * 每条记录的格式为：长度（4字节）、CRC32（4字节）、内容，回放时遇到不完整或校验失败的记录即停止读取该文件
+ */
+class CacheJournal<K, V> implements CacheMap.MutationLog<K, V>, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(CacheJournal.class.getName());
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 2;
+
+    private static final byte EXPIRE = 3;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private final Path directory;
+
+    private final int journalFileSize;
+
+    /**
+     * 刷盘和快照任务，调度器关闭后任务被取消时，下次追加记录时重新注册
+     */
+    private volatile ScheduledFuture<?> flushTask;
+
+    private volatile ScheduledFuture<?> snapshotTask;
+
+    private CacheMap<K, V> cacheMap;
+
+    private long fsyncInterval;
+
+    private long snapshotInterval;
+
+    /**
+     * 当前日志文件的序号
+     */
+    private long sequence;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer mapped;
+
+    /**
+     * 是否有尚未刷盘的数据
+     */
+    private volatile boolean dirty;
+
+    private volatile boolean closed;
+
+    /**
+     * 修改数据时获取读锁，追加记录并写入数据表后释放；生成快照时获取写锁切换日志文件，
+     * 切换后旧日志中的记录都已写入数据表，快照一定能读到
+     */
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+
+    /**
+     * @param directory       持久化目录
+     * @param journalFileSize 单个日志文件大小（字节），写满后切换到新的日志文件
+     */
+    CacheJournal(Path directory, int journalFileSize) {
+        this.directory = directory;
+        this.journalFileSize = journalFileSize;
+    }
+
+    /**
+     * 加载快照并回放日志，然后打开新的日志文件，按周期刷盘和生成快照；之后数据表的修改在key的锁内追加到日志
+     *
+     * @param cacheMap         内存缓存数据表
+     * @param fsyncInterval    刷盘周期（毫秒）
+     * @param snapshotInterval 快照周期（毫秒）
+     */
+    void start(CacheMap<K, V> cacheMap, long fsyncInterval, long snapshotInterval) {
+        try {
+            Files.createDirectories(directory);
+            long lastSequence = replay(cacheMap);
+            synchronized (this) {
+                openJournal(lastSequence + 1, journalFileSize);
+            }
+        } catch (IOException e) {
+            throw new AuthException("内存缓存持久化日志加载失败：" + directory, e);
+        }
+
+        this.cacheMap = cacheMap;
+        this.fsyncInterval = fsyncInterval;
+        this.snapshotInterval = snapshotInterval;
+        scheduleTasks();
+        cacheMap.setMutationLog(this);
+    }
+
+    @Override
+    public Lock mutationLock() {
+        return rotationLock.readLock();
+    }
+
+    @Override
+    public void appendPut(K key, V value, long deadline) {
+        BinaryRecordCodec.Writer writer = newRecord(PUT);
+        BinaryRecordCodec.writeValue(writer, key);
+        writer.writeVarLong(deadline);
+        BinaryRecordCodec.writeValue(writer, value);
+        append(writer);
+    }
+
+    @Override
+    public void appendRemove(K key) {
+        BinaryRecordCodec.Writer writer = newRecord(REMOVE);
+        BinaryRecordCodec.writeValue(writer, key);
+        append(writer);
+    }
+
+    @Override
+    public void appendExpire(K key, long deadline) {
+        BinaryRecordCodec.Writer writer = newRecord(EXPIRE);
+        BinaryRecordCodec.writeValue(writer, key);
+        writer.writeVarLong(deadline);
+        append(writer);
+    }
+
+    /**
+     * 刷盘，由后台线程按周期调用，多次追加合并为一次刷盘
+     */
+    void flush() {
+        if (!dirty) {
+            return;
+        }
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            dirty = false;
+            buffer = mapped;
+        }
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 生成快照<br/>
+     * 先等待进行中的修改写入数据表并切换到新的日志文件，再遍历内存数据写入快照：切换前追加的记录都已写入数据表，
+     * 快照期间的修改都记录在新的日志中，回放时重复应用不影响结果
+     *
+     * @param cacheMap 内存缓存数据表
+     */
+    void snapshot(CacheMap<K, V> cacheMap) {
+        long snapshotSequence;
+        Lock lock = rotationLock.writeLock();
+        lock.lock();
+        try {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                rotate(journalFileSize);
+                snapshotSequence = sequence;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Path temp = directory.resolve(SNAPSHOT_PREFIX + snapshotSequence + ".tmp");
+        try {
+            try (FileChannel snapshotChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(snapshotChannel), 1 << 16);
+                IOException[] error = new IOException[1];
+                cacheMap.forEach((key, value, deadline) -> {
+                    if (error[0] != null) {
+                        return;
+                    }
+                    BinaryRecordCodec.Writer writer = newRecord(PUT);
+                    BinaryRecordCodec.writeValue(writer, key);
+                    writer.writeVarLong(deadline);
+                    BinaryRecordCodec.writeValue(writer, value);
+                    try {
+                        outputStream.write(frame(writer));
+                    } catch (IOException e) {
+                        error[0] = e;
+                    }
+                });
+                if (error[0] != null) {
+                    throw error[0];
+                }
+                outputStream.flush();
+                snapshotChannel.force(true);
+            }
+            Files.move(temp, directory.resolve(SNAPSHOT_PREFIX + snapshotSequence + SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+            // 删除快照之前的日志和快照
+            for (Path path : listFiles(JOURNAL_PREFIX, JOURNAL_SUFFIX).headMap(snapshotSequence).values()) {
+                Files.deleteIfExists(path);
+            }
+            for (Path path : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(snapshotSequence).values()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "内存缓存快照生成失败：" + directory, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件在下次快照时覆盖
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                snapshotTask.cancel(false);
+            }
+            if (mapped != null) {
+                mapped.force();
+            }
+            closeChannel();
+        }
+    }
+
+    /**
+     * 加载最新的快照，并按顺序回放之后的日志<br/>
+     * 先回放到临时的数据表中，已过期的数据也保留，之后的续期记录可能延长其到期时间；全部回放完成后只写入未过期的数据
+     *
+     * @return 已存在的最大文件序号
+     */
+    private long replay(CacheMap<K, V> cacheMap) throws IOException {
+        TreeMap<Long, Path> snapshots = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        TreeMap<Long, Path> journals = listFiles(JOURNAL_PREFIX, JOURNAL_SUFFIX);
+
+        Map<K, ReplayedData<V>> replayed = new HashMap<>();
+        long lastSequence = 0;
+        long snapshotSequence = 0;
+        if (!snapshots.isEmpty()) {
+            snapshotSequence = snapshots.lastKey();
+            lastSequence = snapshotSequence;
+            replayFile(snapshots.lastEntry().getValue(), replayed);
+        }
+        for (Path path : journals.tailMap(snapshotSequence, true).values()) {
+            replayFile(path, replayed);
+        }
+        if (!journals.isEmpty()) {
+            lastSequence = Math.max(lastSequence, journals.lastKey());
+        }
+
+        long currentTime = cacheMap.clock().currentTimeMillis();
+        for (Map.Entry<K, ReplayedData<V>> entry : replayed.entrySet()) {
+            long deadline = entry.getValue().deadline;
+            if (deadline == AuthConstant.NEVER_EXPIRE || deadline > currentTime) {
+                cacheMap.putAt(entry.getKey(), entry.getValue().value, deadline);
+            }
+        }
+        return lastSequence;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replayFile(Path path, Map<K, ReplayedData<V>> replayed) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc32 = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            crc32.reset();
+            crc32.update(buffer.array(), buffer.position(), length);
+            if ((int) crc32.getValue() != checksum) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(buffer.array(), buffer.position(), length);
+            buffer.position(buffer.position() + length);
+
+            byte op = record.get();
+            K key = (K) BinaryRecordCodec.readValue(record);
+            switch (op) {
+                case PUT: {
+                    long deadline = BinaryRecordCodec.readVarLong(record);
+                    replayed.put(key, new ReplayedData<>((V) BinaryRecordCodec.readValue(record), deadline));
+                    break;
+                }
+                case EXPIRE: {
+                    ReplayedData<V> data = replayed.get(key);
+                    long deadline = BinaryRecordCodec.readVarLong(record);
+                    if (data != null) {
+                        data.deadline = deadline;
+                    }
+                    break;
+                }
+                case REMOVE:
+                    replayed.remove(key);
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    private BinaryRecordCodec.Writer newRecord(byte op) {
+        BinaryRecordCodec.Writer writer = new BinaryRecordCodec.Writer(128);
+        writer.writeByte(op);
+        return writer;
+    }
+
+    /**
+     * 注册刷盘和快照任务
+     */
+    private synchronized void scheduleTasks() {
+        if (closed) {
+            return;
+        }
+        this.flushTask = CacheScheduler.shared().scheduleWithFixedDelay(this::flush, fsyncInterval);
+        this.snapshotTask = CacheScheduler.shared().scheduleWithFixedDelay(() -> snapshot(cacheMap), snapshotInterval);
+    }
+
+    /**
+     * 追加记录，只写入内存映射区域，由后台线程刷盘
+     */
+    private void append(BinaryRecordCodec.Writer writer) {
+        byte[] frame = frame(writer);
+        synchronized (this) {
+            // 共用的调度器关闭后任务被取消，重新注册，与CacheMap的过期清理任务一致
+            if (flushTask.isDone() && !closed) {
+                scheduleTasks();
+            }
+            if (closed) {
+                return;
+            }
+            if (mapped.remaining() < frame.length) {
+                rotate(Math.max(journalFileSize, frame.length));
+            }
+            mapped.put(frame);
+            dirty = true;
+        }
+    }
+
+    private static byte[] frame(BinaryRecordCodec.Writer writer) {
+        byte[] payload = writer.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        ByteBuffer frame = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt((int) crc32.getValue());
+        frame.put(payload);
+        return frame.array();
+    }
+
+    /**
+     * 切换到新的日志文件，调用方需要持有锁
+     */
+    private void rotate(int fileSize) {
+        if (mapped != null) {
+            mapped.force();
+        }
+        closeChannel();
+        try {
+            openJournal(sequence + 1, fileSize);
+        } catch (IOException e) {
+            throw new AuthException("内存缓存持久化日志创建失败：" + directory, e);
+        }
+    }
+
+    private void openJournal(long sequence, int fileSize) throws IOException {
+        Path path = directory.resolve(JOURNAL_PREFIX + sequence + JOURNAL_SUFFIX);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        this.sequence = sequence;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 映射区域在通道关闭后仍然有效
+            }
+        }
+    }
+
+    /**
+     * 列出目录下的文件，按序号排序
+     */
+    private TreeMap<Long, Path> listFiles(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.forEach(paths::add);
+        }
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                } catch (NumberFormatException ignored) {
+                    // 非本框架生成的文件
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 回放中的数据
+     */
+    private static final class ReplayedData<V> {
+
+        private final V value;
+
+        private long deadline;
+
+        private ReplayedData(V value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.opensef.auth.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 缓存key，由命名空间和id组成，字符串形式为 命名空间:id<br/>
+ * hash在创建时计算一次，字符串和字节编码在第一次使用时生成并缓存。
+ * 内存缓存直接使用CacheKey作为key，不需要拼接字符串；远程缓存可以复用命名空间预先编码的前缀字节
+ */
+public final class CacheKey {
+
+    private final Namespace namespace;
+
+    private final String id;
+
+    private final int hash;
+
+    private String text;
+
+    private byte[] bytes;
+
+    /**
+     * @param namespace 命名空间
+     * @param id        id
+     */
+    public CacheKey(Namespace namespace, String id) {
+        this.namespace = namespace;
+        this.id = id;
+        this.hash = 31 * namespace.hashCode() + id.hashCode();
+    }
+
+    public Namespace getNamespace() {
+        return namespace;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 获取UTF-8编码的字节，前缀使用命名空间预先编码的字节，只编码id部分
+     *
+     * @return 字节编码，不能修改
+     */
+    public byte[] toBytes() {
+        byte[] bytes = this.bytes;
+        if (bytes == null) {
+            byte[] prefix = namespace.prefixBytes;
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            bytes = new byte[prefix.length + idBytes.length];
+            System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+            System.arraycopy(idBytes, 0, bytes, prefix.length, idBytes.length);
+            this.bytes = bytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey that = (CacheKey) o;
+        return hash == that.hash && id.equals(that.id) && namespace.equals(that.namespace);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * 字符串形式，与拼接的key相同：命名空间:id
+     */
+    @Override
+    public String toString() {
+        String text = this.text;
+        if (text == null) {
+            text = namespace.prefix + id;
+            this.text = text;
+        }
+        return text;
+    }
+
+    /**
+     * 缓存key的命名空间，例如token、session，前缀的字符串和字节编码只生成一次
+     */
+    public static final class Namespace {
+
+        private final String name;
+
+        private final String prefix;
+
+        private final byte[] prefixBytes;
+
+        /**
+         * @param name 命名空间名称
+         */
+        public Namespace(String name) {
+            this.name = name;
+            this.prefix = name + ":";
+            this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 创建当前命名空间下的key
+         *
+         * @param id id，为null时与字符串拼接的结果一致，使用"null"
+         * @return 缓存key
+         */
+        public CacheKey key(String id) {
+            return new CacheKey(this, String.valueOf(id));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 获取前缀（命名空间:）的UTF-8编码
+         *
+         * @return 前缀的字节编码，不能修改
+         */
+        public byte[] getPrefixBytes() {
+            return prefixBytes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            return o instanceof Namespace && name.equals(((Namespace) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+}
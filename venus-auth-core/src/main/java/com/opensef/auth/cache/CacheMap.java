@@ -1,49 +1,98 @@
 package com.opensef.auth.cache;
 
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.config.MemoryCacheConfig;
 import com.opensef.auth.constant.AuthConstant;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
 
-public class CacheMap<K, V> {
+/**
+ * 内存缓存数据表<br/>
+ * 按key的hash将数据分配到多个相互独立的分段中，每个分段有自己的时间轮、淘汰策略和过期清理任务，
+ * 多核机器上可以增加分段数量，降低并发登录时的竞争，过期清理也能分散到多个线程上执行。
+ * 过期清理任务在第一次写入数据时才注册到共用的CacheScheduler
+ */
+public class CacheMap<K, V> implements AutoCloseable {
 
-    private final Map<K, CacheData> DATA_MAP = new ConcurrentHashMap<>();
+    /**
+     * 计算新值时保持当前的到期时间
+     */
+    static final long KEEP_DEADLINE = -3;
+
+    private final CacheSegment<K, V>[] segments;
+
+    private final int segmentMask;
 
     /**
-     * 过期检查时间周期（毫秒）
+     * 过期检查时间周期（毫秒），同时也是时间轮每个tick的时长
      */
     private final long expireCheckCycle;
 
+    private final CacheStatsCounter statsCounter = new CacheStatsCounter();
+
+    private final RemovalNotifier<K, V> removalNotifier = new RemovalNotifier<>();
+
+    /**
+     * 每个分段的过期清理任务，尚未写入数据时为null
+     */
+    private volatile ScheduledFuture<?>[] removeExpiredKeyTasks;
+
+    private volatile boolean closed;
+
+    private final AuthClock clock;
+
     protected CacheMap(long expireCheckCycle) {
+        this(expireCheckCycle, MemoryCacheConfig.UNBOUNDED);
+    }
+
+    /**
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     * @param maximumSize      最大缓存数量，小于等于0时不限制
+     */
+    protected CacheMap(long expireCheckCycle, long maximumSize) {
+        this(expireCheckCycle, maximumSize, MemoryCacheConfig.DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     * @param maximumSize      最大缓存数量，小于等于0时不限制，按分段平均分配
+     * @param shardCount       分段数量，向上取整为2的幂
+     */
+    protected CacheMap(long expireCheckCycle, long maximumSize, int shardCount) {
+        this(expireCheckCycle, maximumSize, shardCount, AuthClock.system());
+    }
+
+    /**
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     * @param maximumSize      最大缓存数量，小于等于0时不限制，按分段平均分配
+     * @param shardCount       分段数量，向上取整为2的幂
+     * @param clock            时钟
+     */
+    @SuppressWarnings("unchecked")
+    protected CacheMap(long expireCheckCycle, long maximumSize, int shardCount, AuthClock clock) {
         this.expireCheckCycle = expireCheckCycle;
+        this.clock = clock;
 
-        // 启动移除过期key任务
-        removeExpiredKeyTask();
+        int segmentCount = segmentCountFor(shardCount);
+        this.segments = new CacheSegment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        long segmentMaximumSize = maximumSize > 0 ? Math.max(1, (maximumSize + segmentCount - 1) / segmentCount) : maximumSize;
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new CacheSegment<>(expireCheckCycle, segmentMaximumSize, statsCounter, removalNotifier, clock);
+        }
     }
 
     public void put(K key, V value, long timeout) {
-        CacheData cacheData = new CacheData();
-        cacheData.setData(value);
-        cacheData.setTimeout(timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : System.currentTimeMillis() + timeout);
-        DATA_MAP.put(key, cacheData);
+        ensureRemoveExpiredKeyTask();
+        segmentFor(key).put(key, value, timeout);
     }
 
-    @SuppressWarnings("unchecked")
     public V get(K key) {
-        CacheData cacheData = DATA_MAP.get(key);
-        if (null != cacheData) {
-            // 如果key已经过期，则将其删除
-            if (cacheData.getTimeout() != AuthConstant.NEVER_EXPIRE && cacheData.getTimeout() <= System.currentTimeMillis()) {
-                DATA_MAP.remove(key);
-                return null;
-            }
-            return (V) cacheData.getData();
-        } else {
-            return null;
-        }
+        return segmentFor(key).get(key);
     }
 
     /**
@@ -53,11 +102,7 @@ public class CacheMap<K, V> {
      * @param timeout 过期时间（毫秒）
      */
     public void expire(K key, long timeout) {
-        CacheData cacheData = DATA_MAP.get(key);
-        if (null != cacheData) {
-            cacheData.setTimeout(timeout == AuthConstant.NEVER_EXPIRE ? timeout : System.currentTimeMillis() + timeout);
-            DATA_MAP.put(key, cacheData);
-        }
+        segmentFor(key).expire(key, timeout);
     }
 
     /**
@@ -67,72 +112,326 @@ public class CacheMap<K, V> {
      * @param key key
      * @return 过期时间（毫秒）
      */
-    public Long getExpire(K key) {
-        long currentTime = System.currentTimeMillis();
-        CacheData cacheData = DATA_MAP.get(key);
-        if (cacheData == null) {
-            return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+    public long getExpire(K key) {
+        return segmentFor(key).getExpire(key);
+    }
+
+    /**
+     * 是否有效，不产生装箱对象
+     *
+     * @param key key
+     * @return true:有效，false:已过期或不存在
+     */
+    public boolean isUnExpired(K key) {
+        return segmentFor(key).isUnExpired(key);
+    }
+
+    public V remove(K key) {
+        return segmentFor(key).remove(key);
+    }
+
+    /**
+     * 按到期时间戳设置value值
+     *
+     * @param key      key
+     * @param value    value
+     * @param deadline 到期时间戳（毫秒），-1为永不过期
+     */
+    void putAt(K key, V value, long deadline) {
+        ensureRemoveExpiredKeyTask();
+        segmentFor(key).putAt(key, value, deadline);
+    }
+
+    /**
+     * 按到期时间戳设置过期时间
+     *
+     * @param key      key
+     * @param deadline 到期时间戳（毫秒），-1为永不过期
+     * @return true:数据存在且更新成功
+     */
+    boolean expireAt(K key, long deadline) {
+        return segmentFor(key).expireAt(key, deadline);
+    }
+
+    /**
+     * 原子地根据当前值计算新值
+     *
+     * @param key       key
+     * @param remapping 根据当前值（不存在或已过期时为null）计算新值，返回null时删除数据，返回当前值时不做修改
+     * @param deadline  新值的到期时间戳（毫秒），-1为永不过期，KEEP_DEADLINE为保持当前的到期时间
+     * @return 计算后的数据，已删除时返回null
+     */
+    CacheData computeAt(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long deadline) {
+        ensureRemoveExpiredKeyTask();
+        return segmentFor(key).computeAt(key, remapping, deadline);
+    }
+
+    /**
+     * 设置修改记录，之后的写入、删除及设置到期时间在key的锁内记录，记录顺序与修改顺序一致
+     *
+     * @param mutationLog 修改记录
+     */
+    void setMutationLog(MutationLog<K, V> mutationLog) {
+        for (CacheSegment<K, V> segment : segments) {
+            segment.setMutationLog(mutationLog);
         }
+    }
 
-        if (cacheData.getTimeout() > currentTime) {
-            return cacheData.getTimeout() - currentTime;
-        } else if (cacheData.getTimeout() == AuthConstant.NEVER_EXPIRE) {
-            return AuthConstant.NEVER_EXPIRE;
-        } else {
-            DATA_MAP.remove(key);
-            return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+    /**
+     * 获取时钟
+     *
+     * @return 时钟
+     */
+    AuthClock clock() {
+        return clock;
+    }
+
+    /**
+     * 遍历全部未过期的数据
+     *
+     * @param visitor 访问者
+     */
+    void forEach(EntryVisitor<K, V> visitor) {
+        for (CacheSegment<K, V> segment : segments) {
+            segment.forEach(visitor);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public V remove(K key) {
-        CacheData cacheData = DATA_MAP.remove(key);
-        if (null != cacheData) {
-            return (V) cacheData.data;
-        } else {
-            return null;
+    /**
+     * 获取因超出容量被淘汰的数据数量
+     *
+     * @return 淘汰数量
+     */
+    public long getEvictionCount() {
+        return stats().getEvictionCount();
+    }
+
+    /**
+     * 添加数据删除监听器，在公共的ForkJoinPool中异步通知
+     *
+     * @param listener 监听器
+     */
+    public void addRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        removalNotifier.addListener(listener);
+    }
+
+    /**
+     * 删除数据删除监听器
+     *
+     * @param listener 监听器
+     * @return true:删除成功，false:监听器不存在
+     */
+    public boolean removeRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        return removalNotifier.removeListener(listener);
+    }
+
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息
+     */
+    public CacheStats stats() {
+        long size = 0;
+        for (CacheSegment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return statsCounter.snapshot(size);
+    }
+
+    /**
+     * 停止过期清理任务，之后写入数据不再重新注册
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        ScheduledFuture<?>[] tasks = removeExpiredKeyTasks;
+        if (tasks != null) {
+            for (ScheduledFuture<?> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 写入数据前确认过期清理任务已注册，调度器关闭后任务被取消时重新注册
+     */
+    private void ensureRemoveExpiredKeyTask() {
+        ScheduledFuture<?>[] tasks = removeExpiredKeyTasks;
+        if ((tasks == null || tasks[0].isDone()) && !closed) {
+            removeExpiredKeyTask();
         }
     }
 
+    /**
+     * 移除过期数据定时任务，每个分段独立推进自己的时间轮
+     */
+    private synchronized void removeExpiredKeyTask() {
+        ScheduledFuture<?>[] tasks = removeExpiredKeyTasks;
+        if (closed || (tasks != null && !tasks[0].isDone())) {
+            return;
+        }
+        tasks = new ScheduledFuture<?>[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            tasks[i] = CacheScheduler.shared().scheduleAtFixedRate(segments[i]::removeExpiredKey, expireCheckCycle);
+        }
+        removeExpiredKeyTasks = tasks;
+    }
+
+    /**
+     * 根据key的hash选择分段<br/>
+     * 使用混合后hash的高位，避免与ConcurrentHashMap选择桶时使用的低位重合
+     *
+     * @param key key
+     * @return 分段
+     */
+    private CacheSegment<K, V> segmentFor(Object key) {
+        int hash = key.hashCode() * 0x9e3779b9;
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    private static int segmentCountFor(int shardCount) {
+        int count = Math.min(Math.max(shardCount, 1), 1 << 16);
+        return count == 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    }
+
+    /**
+     * 修改记录，在修改数据的key的锁内调用，同一key的记录顺序与修改顺序一致
+     */
+    interface MutationLog<K, V> {
+
+        /**
+         * 修改数据前获取，数据写入数据表后释放；切换日志文件时等待已追加记录的修改全部写入数据表
+         *
+         * @return 共享锁
+         */
+        Lock mutationLock();
+
+        void appendPut(K key, V value, long deadline);
+
+        void appendRemove(K key);
+
+        void appendExpire(K key, long deadline);
+
+    }
+
+    /**
+     * 数据访问者
+     */
+    @FunctionalInterface
+    interface EntryVisitor<K, V> {
+
+        /**
+         * @param key      key
+         * @param value    value
+         * @param deadline 到期时间戳（毫秒），-1为永不过期
+         */
+        void visit(K key, V value, long deadline);
+
+    }
+
     public static class CacheData {
 
+        private static final VarHandle TIMEOUT;
+
+        static {
+            try {
+                TIMEOUT = MethodHandles.lookup().findVarHandle(CacheData.class, "timeout", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        /**
+         * 数据已从数据表中删除或被替换时的到期时间标记
+         */
+        private static final long RETIRED = Long.MIN_VALUE;
+
+        /**
+         * key，到期时根据key删除数据
+         */
+        final Object key;
+
         /**
          * 数据
          */
-        private Object data;
+        private final Object data;
+
+        /**
+         * 到期时间戳（毫秒），-1为永不过期
+         */
+        private volatile long timeout;
+
+        /**
+         * 时间轮中所在的时间槽及前后节点，由时间轮维护
+         */
+        TimingWheel.Bucket bucket;
+
+        CacheData prev;
+
+        CacheData next;
 
         /**
-         * 到期时间戳（毫秒）
+         * 淘汰策略中所在的队列及前后节点，由淘汰策略维护
          */
-        private Long timeout;
+        byte queue;
+
+        CacheData accessPrev;
+
+        CacheData accessNext;
+
+        CacheData(Object key, Object data, long timeout) {
+            this.key = key;
+            this.data = data;
+            this.timeout = timeout;
+        }
 
         public Object getData() {
             return data;
         }
 
-        public void setData(Object data) {
-            this.data = data;
+        public long getTimeout() {
+            return timeout;
         }
 
-        public Long getTimeout() {
-            return timeout;
+        /**
+         * 是否已过期，已删除的数据也视为已过期
+         *
+         * @param currentTime 当前时间戳（毫秒）
+         * @return true:已过期
+         */
+        public boolean isExpired(long currentTime) {
+            long timeout = this.timeout;
+            return timeout != AuthConstant.NEVER_EXPIRE && timeout <= currentTime;
         }
 
-        public void setTimeout(Long timeout) {
-            this.timeout = timeout;
+        /**
+         * 原子更新到期时间，数据已删除时不更新
+         *
+         * @param timeout 新的到期时间戳（毫秒）
+         * @return true:更新成功
+         */
+        boolean renew(long timeout) {
+            long current;
+            do {
+                current = this.timeout;
+                if (current == RETIRED) {
+                    return false;
+                }
+            } while (!TIMEOUT.compareAndSet(this, current, timeout));
+            return true;
         }
 
-    }
+        /**
+         * 标记为已删除，之后的续期操作不再生效
+         */
+        void retire() {
+            this.timeout = RETIRED;
+        }
+
+        boolean isRetired() {
+            return timeout == RETIRED;
+        }
 
-    /**
-     * 移除过期数据定时任务
-     */
-    private void removeExpiredKeyTask() {
-        ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
-        scheduledExecutorService.scheduleAtFixedRate(() -> {
-            DATA_MAP.entrySet().removeIf(entry -> entry.getValue().getTimeout() != AuthConstant.NEVER_EXPIRE &&
-                    entry.getValue().getTimeout() < System.currentTimeMillis());
-        }, expireCheckCycle, expireCheckCycle, TimeUnit.MILLISECONDS);
     }
 
 }
@@ -0,0 +1,137 @@
+package com.opensef.auth.cache;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存定时任务调度器<br/>
+ * 全部缓存共用一个线程池执行过期检查、日志刷盘等定时任务，线程为守护线程，不会阻止JVM退出。
+ * 线程池在第一次提交任务时才创建，关闭后再次提交任务时重新创建。<br/>
+ * 同一JVM中有多个使用方（例如多个Spring容器）时，各自通过retain、release登记，最后一个使用方release时才关闭线程池，
+ * 不影响其他使用方的定时任务
+ */
+public final class CacheScheduler implements AutoCloseable {
+
+    private static final CacheScheduler SHARED = new CacheScheduler("venus-auth-cache",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+    private final String threadNamePrefix;
+
+    private final int threads;
+
+    private ScheduledThreadPoolExecutor executor;
+
+    /**
+     * 通过retain登记且尚未release的使用方数量
+     */
+    private int references;
+
+    /**
+     * @param threadNamePrefix 线程名称前缀
+     * @param threads          线程数量
+     */
+    public CacheScheduler(String threadNamePrefix, int threads) {
+        this.threadNamePrefix = threadNamePrefix;
+        this.threads = threads;
+    }
+
+    /**
+     * 获取全部缓存共用的调度器
+     *
+     * @return 调度器
+     */
+    public static CacheScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * 按固定频率执行任务，首次执行在一个周期之后
+     *
+     * @param task   任务
+     * @param period 周期（毫秒）
+     * @return 任务句柄，取消后不再执行
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+        return executor().scheduleAtFixedRate(guard(task), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 上一次执行结束后间隔固定时间再次执行任务，首次执行在一个间隔之后
+     *
+     * @param task  任务
+     * @param delay 间隔（毫秒）
+     * @return 任务句柄，取消后不再执行
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+        return executor().scheduleWithFixedDelay(guard(task), delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 线程池是否已经创建且未关闭
+     *
+     * @return true:已启动
+     */
+    public synchronized boolean isStarted() {
+        return executor != null;
+    }
+
+    /**
+     * 登记一个使用方，与release成对调用
+     */
+    public synchronized void retain() {
+        references++;
+    }
+
+    /**
+     * 注销一个使用方，没有其他使用方时关闭线程池
+     */
+    public synchronized void release() {
+        if (references > 0 && --references == 0) {
+            close();
+        }
+    }
+
+    /**
+     * 关闭线程池，已提交的定时任务全部取消，不论是否还有其他使用方
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private synchronized ScheduledThreadPoolExecutor executor() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, threadNamePrefix + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, threadFactory);
+            executor.setRemoveOnCancelPolicy(true);
+            this.executor = executor;
+        }
+        return executor;
+    }
+
+    /**
+     * 定时任务抛出异常后线程池会停止后续执行，这里捕获异常交给线程的异常处理器，保证任务继续执行
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,467 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.cache.CacheMap.CacheData;
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.constant.AuthConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
+
+/**
+ * 缓存分段，每个分段拥有独立的数据表、时间轮和淘汰策略，过期清理也按分段独立执行
+ */
+class CacheSegment<K, V> {
+
+    private final Map<K, CacheData> DATA_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 按到期时间分槽的时间轮，每次检查只处理已经到期的数据
+     */
+    private final TimingWheel timingWheel;
+
+    /**
+     * 容量淘汰策略，不限制缓存数量时为null
+     */
+    private final EvictionPolicy evictionPolicy;
+
+    /**
+     * 统计计数器，全部分段共用
+     */
+    private final CacheStatsCounter statsCounter;
+
+    /**
+     * 数据删除通知，全部分段共用
+     */
+    private final RemovalNotifier<K, V> removalNotifier;
+
+    /**
+     * 时钟，全部分段共用
+     */
+    private final AuthClock clock;
+
+    /**
+     * 修改记录，开启持久化时不为null，此时写入、删除及设置到期时间都在数据表对应key的锁内执行并记录
+     */
+    private volatile CacheMap.MutationLog<K, V> mutationLog;
+
+    /**
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     * @param maximumSize      最大缓存数量，小于等于0时不限制
+     * @param statsCounter     统计计数器
+     * @param removalNotifier  数据删除通知
+     * @param clock            时钟
+     */
+    CacheSegment(long expireCheckCycle, long maximumSize, CacheStatsCounter statsCounter, RemovalNotifier<K, V> removalNotifier,
+                 AuthClock clock) {
+        this.clock = clock;
+        this.timingWheel = new TimingWheel(expireCheckCycle, clock.currentTimeMillis());
+        this.evictionPolicy = maximumSize > 0 ? new EvictionPolicy(maximumSize) : null;
+        this.statsCounter = statsCounter;
+        this.removalNotifier = removalNotifier;
+    }
+
+    void setMutationLog(CacheMap.MutationLog<K, V> mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    void put(K key, V value, long timeout) {
+        putAt(key, value, timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : clock.currentTimeMillis() + timeout);
+    }
+
+    /**
+     * 设置value值
+     *
+     * @param key      key
+     * @param value    value
+     * @param deadline 到期时间戳（毫秒），-1为永不过期
+     */
+    void putAt(K key, V value, long deadline) {
+        CacheData cacheData = new CacheData(key, value, deadline);
+        CacheMap.MutationLog<K, V> log = mutationLog;
+        CacheData oldCacheData;
+        if (log == null) {
+            oldCacheData = DATA_MAP.put(key, cacheData);
+        } else {
+            CacheData[] replaced = new CacheData[1];
+            Lock lock = log.mutationLock();
+            lock.lock();
+            try {
+                DATA_MAP.compute(key, (k, current) -> {
+                    replaced[0] = current;
+                    log.appendPut(k, value, deadline);
+                    return cacheData;
+                });
+            } finally {
+                lock.unlock();
+            }
+            oldCacheData = replaced[0];
+        }
+        if (oldCacheData != null) {
+            // 覆盖写入不通知，覆盖的是已过期的数据时按过期通知
+            if (oldCacheData.isExpired(clock.currentTimeMillis())) {
+                removalNotifier.notify(key, oldCacheData.getData(), RemovalCause.EXPIRED);
+            }
+            afterRemove(oldCacheData);
+        }
+        afterAdd(cacheData);
+    }
+
+    /**
+     * 原子地根据当前值计算新值<br/>
+     * 计算在数据表对应key的锁内执行，期间同一个key的其他写操作等待；计算函数应尽量简短，且不能再访问当前缓存
+     *
+     * @param key       key
+     * @param remapping 根据当前值（不存在或已过期时为null）计算新值，返回null时删除数据，返回当前值时不做修改
+     * @param deadline  新值的到期时间戳（毫秒），-1为永不过期，CacheMap.KEEP_DEADLINE为保持当前的到期时间
+     * @return 计算后的数据，已删除时返回null
+     */
+    @SuppressWarnings("unchecked")
+    CacheData computeAt(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long deadline) {
+        long currentTime = clock.currentTimeMillis();
+        CacheMap.MutationLog<K, V> log = mutationLog;
+        // [0]:被替换或删除的数据，[1]:新写入的数据
+        CacheData[] changed = new CacheData[2];
+        boolean[] expired = new boolean[1];
+        Lock lock = log != null ? log.mutationLock() : null;
+        if (lock != null) {
+            lock.lock();
+        }
+        CacheData cacheData;
+        try {
+            cacheData = DATA_MAP.compute(key, (k, oldCacheData) -> {
+                V current = null;
+                if (oldCacheData != null) {
+                    expired[0] = oldCacheData.isExpired(currentTime);
+                    if (!expired[0]) {
+                        current = (V) oldCacheData.getData();
+                    }
+                }
+                V value = remapping.apply(k, current);
+                if (value != null && value == current) {
+                    return oldCacheData;
+                }
+                changed[0] = oldCacheData;
+                if (value == null) {
+                    if (log != null && oldCacheData != null) {
+                        log.appendRemove(k);
+                    }
+                    return null;
+                }
+                long newDeadline = deadline;
+                if (deadline == CacheMap.KEEP_DEADLINE) {
+                    newDeadline = current != null ? oldCacheData.getTimeout() : AuthConstant.NEVER_EXPIRE;
+                }
+                changed[1] = new CacheData(k, value, newDeadline);
+                if (log != null) {
+                    log.appendPut(k, value, newDeadline);
+                }
+                return changed[1];
+            });
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        if (changed[0] != null) {
+            // 删除当前值时按主动删除通知，替换当前值不通知
+            if (expired[0]) {
+                removalNotifier.notify(key, changed[0].getData(), RemovalCause.EXPIRED);
+            } else if (changed[1] == null) {
+                removalNotifier.notify(key, changed[0].getData(), RemovalCause.EXPLICIT);
+            }
+            afterRemove(changed[0]);
+        }
+        if (changed[1] != null) {
+            afterAdd(changed[1]);
+        }
+        return cacheData;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        CacheData cacheData = DATA_MAP.get(key);
+        if (null != cacheData) {
+            // 如果key已经过期，则将其删除
+            if (cacheData.isExpired(clock.currentTimeMillis())) {
+                removeCacheData(key, cacheData);
+                statsCounter.recordMiss();
+                return null;
+            }
+            if (evictionPolicy != null) {
+                evictionPolicy.onAccess(cacheData);
+            }
+            statsCounter.recordHit();
+            return (V) cacheData.getData();
+        } else {
+            statsCounter.recordMiss();
+            return null;
+        }
+    }
+
+    /**
+     * 设置过期时间，直接原子更新当前数据的到期时间，不再重新写入数据表
+     *
+     * @param key     key
+     * @param timeout 过期时间（毫秒）
+     */
+    void expire(K key, long timeout) {
+        expireAt(key, timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : clock.currentTimeMillis() + timeout);
+    }
+
+    /**
+     * 设置到期时间
+     *
+     * @param key      key
+     * @param deadline 到期时间戳（毫秒），-1为永不过期
+     * @return true:数据存在且更新成功
+     */
+    boolean expireAt(K key, long deadline) {
+        CacheData cacheData = DATA_MAP.get(key);
+        if (null == cacheData) {
+            return false;
+        }
+        if (cacheData.isExpired(clock.currentTimeMillis())) {
+            removeCacheData(key, cacheData);
+            return false;
+        }
+        CacheMap.MutationLog<K, V> log = mutationLog;
+        if (log == null) {
+            if (!cacheData.renew(deadline)) {
+                // 数据已经被删除或替换
+                return false;
+            }
+        } else {
+            // 开启持久化时在key的锁内更新并记录，避免与同一key的写入交错后回放出错误的到期时间
+            boolean[] renewed = new boolean[1];
+            Lock lock = log.mutationLock();
+            lock.lock();
+            try {
+                DATA_MAP.computeIfPresent(key, (k, current) -> {
+                    if (current == cacheData && cacheData.renew(deadline)) {
+                        renewed[0] = true;
+                        log.appendExpire(k, deadline);
+                    }
+                    return current;
+                });
+            } finally {
+                lock.unlock();
+            }
+            if (!renewed[0]) {
+                return false;
+            }
+        }
+        synchronized (timingWheel) {
+            // 重新分配时间槽，O(1)；加锁后再次检查，避免把已经删除的数据放回时间轮
+            if (cacheData.isRetired() || deadline == AuthConstant.NEVER_EXPIRE) {
+                timingWheel.deschedule(cacheData);
+            } else {
+                timingWheel.schedule(cacheData);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取过期时间
+     * 数据不存在返回-2；永不过期返回-1；其他值表示剩余过期时间
+     *
+     * @param key key
+     * @return 过期时间（毫秒）
+     */
+    long getExpire(K key) {
+        CacheData cacheData = DATA_MAP.get(key);
+        if (cacheData == null) {
+            return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+        }
+
+        long timeout = cacheData.getTimeout();
+        if (timeout == AuthConstant.NEVER_EXPIRE) {
+            return AuthConstant.NEVER_EXPIRE;
+        }
+        long currentTime = clock.currentTimeMillis();
+        if (timeout > currentTime) {
+            return timeout - currentTime;
+        } else {
+            removeCacheData(key, cacheData);
+            return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+        }
+    }
+
+    /**
+     * 是否有效
+     *
+     * @param key key
+     * @return true:有效，false:已过期或不存在
+     */
+    boolean isUnExpired(K key) {
+        CacheData cacheData = DATA_MAP.get(key);
+        if (cacheData == null) {
+            statsCounter.recordMiss();
+            return false;
+        }
+        if (cacheData.isExpired(clock.currentTimeMillis())) {
+            removeCacheData(key, cacheData);
+            statsCounter.recordMiss();
+            return false;
+        }
+        statsCounter.recordHit();
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(K key) {
+        CacheMap.MutationLog<K, V> log = mutationLog;
+        CacheData cacheData;
+        if (log == null) {
+            cacheData = DATA_MAP.remove(key);
+        } else {
+            CacheData[] removed = new CacheData[1];
+            Lock lock = log.mutationLock();
+            lock.lock();
+            try {
+                DATA_MAP.computeIfPresent(key, (k, current) -> {
+                    removed[0] = current;
+                    log.appendRemove(k);
+                    return null;
+                });
+            } finally {
+                lock.unlock();
+            }
+            cacheData = removed[0];
+        }
+        if (null != cacheData) {
+            RemovalCause cause = cacheData.isExpired(clock.currentTimeMillis()) ? RemovalCause.EXPIRED : RemovalCause.EXPLICIT;
+            afterRemove(cacheData);
+            removalNotifier.notify(key, cacheData.getData(), cause);
+            return (V) cacheData.getData();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * 删除读取时发现已过期的数据，如果key已经被重新设置了新的数据则不删除
+     *
+     * @param key       key
+     * @param cacheData 要删除的数据
+     */
+    private void removeCacheData(K key, CacheData cacheData) {
+        if (DATA_MAP.remove(key, cacheData)) {
+            afterRemove(cacheData);
+            statsCounter.recordExpiredOnRead();
+            removalNotifier.notify(key, cacheData.getData(), RemovalCause.EXPIRED);
+        }
+    }
+
+    /**
+     * 数据从数据表中删除后，将其标记为已删除，并从时间轮和淘汰策略中移除
+     *
+     * @param cacheData 被删除的数据
+     */
+    private void afterRemove(CacheData cacheData) {
+        cacheData.retire();
+        synchronized (timingWheel) {
+            timingWheel.deschedule(cacheData);
+        }
+        if (evictionPolicy != null) {
+            evictionPolicy.onRemove(cacheData);
+        }
+    }
+
+    /**
+     * 数据写入数据表后，加入时间轮和淘汰策略
+     *
+     * @param cacheData 新写入的数据
+     */
+    private void afterAdd(CacheData cacheData) {
+        if (cacheData.getTimeout() != AuthConstant.NEVER_EXPIRE) {
+            synchronized (timingWheel) {
+                // 加锁后再次检查，避免把已经被替换的数据放回时间轮
+                if (!cacheData.isRetired()) {
+                    timingWheel.schedule(cacheData);
+                }
+            }
+        }
+        if (evictionPolicy != null) {
+            List<CacheData> evicted = new ArrayList<>(1);
+            evictionPolicy.onAdd(cacheData, evicted);
+            for (CacheData evictedData : evicted) {
+                evict(evictedData);
+            }
+        }
+    }
+
+    /**
+     * 淘汰超出容量的数据
+     *
+     * @param cacheData 被淘汰的数据
+     */
+    @SuppressWarnings("unchecked")
+    private void evict(CacheData cacheData) {
+        if (DATA_MAP.remove((K) cacheData.key, cacheData)) {
+            cacheData.retire();
+            synchronized (timingWheel) {
+                timingWheel.deschedule(cacheData);
+            }
+            statsCounter.recordEviction();
+            removalNotifier.notify(cacheData.key, cacheData.getData(), RemovalCause.EVICTED);
+        }
+    }
+
+    /**
+     * 遍历全部未过期的数据
+     *
+     * @param visitor 访问者
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(CacheMap.EntryVisitor<K, V> visitor) {
+        long currentTime = clock.currentTimeMillis();
+        for (Map.Entry<K, CacheData> entry : DATA_MAP.entrySet()) {
+            CacheData cacheData = entry.getValue();
+            long deadline = cacheData.getTimeout();
+            if (!cacheData.isExpired(currentTime)) {
+                visitor.visit(entry.getKey(), (V) cacheData.getData(), deadline);
+            }
+        }
+    }
+
+    /**
+     * 获取数据数量，包含已过期但尚未清理的数据
+     *
+     * @return 数据数量
+     */
+    int size() {
+        return DATA_MAP.size();
+    }
+
+    /**
+     * 推进时间轮，删除已经到期的数据
+     */
+    @SuppressWarnings("unchecked")
+    void removeExpiredKey() {
+        long startTime = System.nanoTime();
+        long currentTime = clock.currentTimeMillis();
+        int expiredCount = 0;
+        List<CacheData> expired = new ArrayList<>();
+        synchronized (timingWheel) {
+            timingWheel.advance(currentTime, expired);
+        }
+        // 在锁外删除，仅删除仍然是同一份数据且未被续期的key
+        for (CacheData cacheData : expired) {
+            if (cacheData.isExpired(currentTime) && DATA_MAP.remove((K) cacheData.key, cacheData)) {
+                cacheData.retire();
+                if (evictionPolicy != null) {
+                    evictionPolicy.onRemove(cacheData);
+                }
+                expiredCount++;
+                removalNotifier.notify(cacheData.key, cacheData.getData(), RemovalCause.EXPIRED);
+            }
+        }
+        statsCounter.recordSweep(expiredCount, System.nanoTime() - startTime);
+    }
+
+}
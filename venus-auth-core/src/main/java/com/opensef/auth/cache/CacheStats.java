@@ -0,0 +1,113 @@
+package com.opensef.auth.cache;
+
+/**
+ * 缓存统计信息快照，不可变<br/>
+ * 计数从缓存创建开始累计，两次快照相减即可得到一段时间内的增量
+ */
+public final class CacheStats {
+
+    /**
+     * 不支持统计的缓存返回的空统计信息
+     */
+    public static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long evictionCount;
+
+    private final long expiredOnReadCount;
+
+    private final long expiredBySweepCount;
+
+    private final long sweepCount;
+
+    private final long totalSweepTime;
+
+    private final long size;
+
+    /**
+     * @param hitCount            命中次数
+     * @param missCount           未命中次数（包含读取时已过期）
+     * @param evictionCount       因超出最大缓存数量被淘汰的数量
+     * @param expiredOnReadCount  读取时发现已过期而删除的数量
+     * @param expiredBySweepCount 过期检查任务删除的数量
+     * @param sweepCount          过期检查次数
+     * @param totalSweepTime      过期检查累计耗时（纳秒）
+     * @param size                当前缓存数量（包含已过期但尚未清理的数据）
+     */
+    public CacheStats(long hitCount, long missCount, long evictionCount, long expiredOnReadCount, long expiredBySweepCount,
+                      long sweepCount, long totalSweepTime, long size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.expiredOnReadCount = expiredOnReadCount;
+        this.expiredBySweepCount = expiredBySweepCount;
+        this.sweepCount = sweepCount;
+        this.totalSweepTime = totalSweepTime;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getExpiredOnReadCount() {
+        return expiredOnReadCount;
+    }
+
+    public long getExpiredBySweepCount() {
+        return expiredBySweepCount;
+    }
+
+    public long getSweepCount() {
+        return sweepCount;
+    }
+
+    /**
+     * 过期检查累计耗时
+     *
+     * @return 耗时（纳秒）
+     */
+    public long getTotalSweepTime() {
+        return totalSweepTime;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 命中率，没有读取时返回1
+     *
+     * @return 命中率
+     */
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", expiredOnReadCount=" + expiredOnReadCount +
+                ", expiredBySweepCount=" + expiredBySweepCount +
+                ", sweepCount=" + sweepCount +
+                ", totalSweepTime=" + totalSweepTime +
+                ", size=" + size +
+                '}';
+    }
+
+}
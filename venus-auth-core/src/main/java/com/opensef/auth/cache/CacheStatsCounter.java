@@ -0,0 +1,64 @@
+package com.opensef.auth.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存统计计数器<br/>
+ * 使用分段累加的LongAdder计数，读写热点路径上多个线程同时记录时不会相互竞争，自定义缓存也可以使用
+ */
+public class CacheStatsCounter {
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expiredOnReadCount = new LongAdder();
+
+    private final LongAdder expiredBySweepCount = new LongAdder();
+
+    private final LongAdder sweepCount = new LongAdder();
+
+    private final LongAdder totalSweepTime = new LongAdder();
+
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    public void recordEviction() {
+        evictionCount.increment();
+    }
+
+    public void recordExpiredOnRead() {
+        expiredOnReadCount.increment();
+    }
+
+    /**
+     * 记录一次过期检查
+     *
+     * @param expiredCount 删除的数量
+     * @param sweepTime    耗时（纳秒）
+     */
+    public void recordSweep(int expiredCount, long sweepTime) {
+        expiredBySweepCount.add(expiredCount);
+        sweepCount.increment();
+        totalSweepTime.add(sweepTime);
+    }
+
+    /**
+     * 生成统计信息快照
+     *
+     * @param size 当前缓存数量
+     * @return 统计信息
+     */
+    public CacheStats snapshot(long size) {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), expiredOnReadCount.sum(),
+                expiredBySweepCount.sum(), sweepCount.sum(), totalSweepTime.sum(), size);
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.opensef.auth.cache;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 容量淘汰策略（W-TinyLFU）<br/>
+ * 新数据先进入窗口区（LRU，约占1%容量），从窗口区淘汰的数据作为候选者进入主区的试用区；
+ * 主区满时，候选者与试用区中最久未访问的数据比较访问频率，频率低的被淘汰，
+ * 使突发的大量新数据（例如撞库时的大量登录）无法把频繁访问的热点会话挤出缓存。
+ * 试用区中的数据再次被访问时晋升到保护区（约占主区80%）。
+ */
+class EvictionPolicy {
+
+    static final byte WINDOW = 1;
+
+    static final byte PROBATION = 2;
+
+    static final byte PROTECTED = 3;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final FrequencySketch sketch;
+
+    private final long maximumSize;
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    private final AccessOrderQueue window = new AccessOrderQueue();
+
+    private final AccessOrderQueue probation = new AccessOrderQueue();
+
+    private final AccessOrderQueue protectedQueue = new AccessOrderQueue();
+
+    EvictionPolicy(long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (long) ((maximumSize - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * 新增数据，超出容量时将被淘汰的数据放入evicted<br/>
+     * 写入数据表与加入队列之间数据可能已被删除：删除时先标记为已删除再获取锁，因此加锁后检查标记，
+     * 已删除的数据不再加入队列，避免残留的节点占用容量
+     *
+     * @param cacheData 新增的数据
+     * @param evicted   被淘汰的数据
+     */
+    void onAdd(CacheMap.CacheData cacheData, List<CacheMap.CacheData> evicted) {
+        lock.lock();
+        try {
+            if (cacheData.isRetired()) {
+                return;
+            }
+            sketch.increment(cacheData.key);
+            cacheData.queue = WINDOW;
+            window.addLast(cacheData);
+            evict(evicted);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录访问，锁被占用时直接放弃本次记录，避免读操作之间相互阻塞
+     *
+     * @param cacheData 被访问的数据
+     */
+    void onAccess(CacheMap.CacheData cacheData) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(cacheData.key);
+            switch (cacheData.queue) {
+                case WINDOW:
+                    window.moveToLast(cacheData);
+                    break;
+                case PROBATION:
+                    // 晋升到保护区，保护区超出容量时将最久未访问的数据降级到试用区
+                    probation.remove(cacheData);
+                    cacheData.queue = PROTECTED;
+                    protectedQueue.addLast(cacheData);
+                    while (protectedQueue.size > protectedMaximum) {
+                        CacheMap.CacheData demoted = protectedQueue.pollFirst();
+                        demoted.queue = PROBATION;
+                        probation.addLast(demoted);
+                    }
+                    break;
+                case PROTECTED:
+                    protectedQueue.moveToLast(cacheData);
+                    break;
+                default:
+                    break;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param cacheData 被删除的数据
+     */
+    void onRemove(CacheMap.CacheData cacheData) {
+        lock.lock();
+        try {
+            queueOf(cacheData.queue).remove(cacheData);
+            cacheData.queue = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict(List<CacheMap.CacheData> evicted) {
+        // 窗口区超出容量的数据进入试用区，成为候选者
+        while (window.size > windowMaximum) {
+            CacheMap.CacheData candidate = window.pollFirst();
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+
+        while (window.size + probation.size + protectedQueue.size > maximumSize) {
+            CacheMap.CacheData victim = probation.first();
+            CacheMap.CacheData candidate = probation.last();
+            CacheMap.CacheData loser;
+            if (victim == null) {
+                loser = protectedQueue.size > 0 ? protectedQueue.first() : window.first();
+            } else if (victim == candidate) {
+                loser = victim;
+            } else {
+                // 候选者访问频率高于受害者时才允许进入主区
+                loser = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+            }
+            queueOf(loser.queue).remove(loser);
+            loser.queue = 0;
+            evicted.add(loser);
+        }
+    }
+
+    private AccessOrderQueue queueOf(byte queue) {
+        switch (queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            case PROTECTED:
+                return protectedQueue;
+            default:
+                return AccessOrderQueue.EMPTY;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，表头为最久未访问的数据
+     */
+    static final class AccessOrderQueue {
+
+        static final AccessOrderQueue EMPTY = new AccessOrderQueue();
+
+        private CacheMap.CacheData head;
+
+        private CacheMap.CacheData tail;
+
+        private long size;
+
+        CacheMap.CacheData first() {
+            return head;
+        }
+
+        CacheMap.CacheData last() {
+            return tail;
+        }
+
+        void addLast(CacheMap.CacheData cacheData) {
+            cacheData.accessPrev = tail;
+            cacheData.accessNext = null;
+            if (tail == null) {
+                head = cacheData;
+            } else {
+                tail.accessNext = cacheData;
+            }
+            tail = cacheData;
+            size++;
+        }
+
+        CacheMap.CacheData pollFirst() {
+            CacheMap.CacheData first = head;
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+
+        void moveToLast(CacheMap.CacheData cacheData) {
+            if (cacheData != tail) {
+                remove(cacheData);
+                addLast(cacheData);
+            }
+        }
+
+        void remove(CacheMap.CacheData cacheData) {
+            if (this == EMPTY) {
+                return;
+            }
+            if (cacheData.accessPrev == null) {
+                head = cacheData.accessNext;
+            } else {
+                cacheData.accessPrev.accessNext = cacheData.accessNext;
+            }
+            if (cacheData.accessNext == null) {
+                tail = cacheData.accessPrev;
+            } else {
+                cacheData.accessNext.accessPrev = cacheData.accessPrev;
+            }
+            cacheData.accessPrev = null;
+            cacheData.accessNext = null;
+            size--;
+        }
+
+    }
+
+}
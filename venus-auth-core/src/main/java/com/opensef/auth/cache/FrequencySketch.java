@@ -0,0 +1,96 @@
+package com.opensef.auth.cache;
+
+/**
+ * 访问频率统计（Count-Min Sketch）<br/>
+ * 每个计数器占4位，最大计数15；记录次数达到采样数时，全部计数减半，使历史热点逐渐老化。<br/>
+ * 非线程安全，调用方需要加锁
+ */
+class FrequencySketch {
+
+    private static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    /**
+     * 采样数，记录次数达到此值时计数减半
+     */
+    private final int sampleSize;
+
+    private int size;
+
+    FrequencySketch(long maximumSize) {
+        int length = tableSizeFor((int) Math.min(Math.max(maximumSize, 8), 1 << 30));
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(10 * maximumSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取访问频率估计值
+     *
+     * @param key key
+     * @return 访问频率（0-15）
+     */
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            long h = rehash(hash, i);
+            int shift = (int) ((h >>> 60) << 2);
+            int count = (int) ((table[(int) h & tableMask] >>> shift) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key key
+     */
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            long h = rehash(hash, i);
+            int index = (int) h & tableMask;
+            int shift = (int) ((h >>> 60) << 2);
+            if (((table[index] >>> shift) & 0xfL) != 0xfL) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 全部计数减半
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size >>> 1;
+    }
+
+    private static long rehash(int hash, int i) {
+        long x = (hash + SEED[i]) * 0x9e3779b97f4a7c15L;
+        x ^= x >>> 29;
+        x *= 0xbf58476d1ce4e5b9L;
+        return x ^ (x >>> 32);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(capacity - 1);
+        return n + 1;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.opensef.auth.cache;
+
+import java.util.Collection;
+
+/**
+ * 近端缓存失效通知通道<br/>
+ * 某个节点修改或删除数据后，通过通道通知其他节点删除本地副本。
+ * 多节点部署时可以基于Redis发布订阅、消息队列等实现
+ */
+public interface InvalidationChannel {
+
+    /**
+     * 发布失效通知
+     *
+     * @param nodeId 发布通知的节点标识
+     * @param keys   失效的key值集合
+     */
+    void publish(String nodeId, Collection<?> keys);
+
+    /**
+     * 订阅失效通知
+     *
+     * @param listener 监听器
+     */
+    void subscribe(Listener listener);
+
+    /**
+     * 取消订阅
+     *
+     * @param listener 监听器
+     */
+    void unsubscribe(Listener listener);
+
+    /**
+     * 失效通知监听器
+     */
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * 收到失效通知
+         *
+         * @param nodeId 发布通知的节点标识
+         * @param keys   失效的key值集合
+         */
+        void onInvalidate(String nodeId, Collection<?> keys);
+
+    }
+
+}
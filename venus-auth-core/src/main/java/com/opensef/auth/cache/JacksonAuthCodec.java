@@ -0,0 +1,96 @@
+package com.opensef.auth.cache;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.opensef.auth.exception.AuthException;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * JSON编码，需要引入jackson-databind<br/>
+ * 默认按字段序列化并保存类型信息，可以读取文档中基于RedisTemplate的示例写入的数据。
+ * 类型信息来自缓存，只允许解码为JDK的集合和值类型及本框架的类型，其他类型需要通过defaultObjectMapper(String...)指定包名
+ */
+public class JacksonAuthCodec implements AuthCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public JacksonAuthCodec() {
+        this(defaultObjectMapper());
+    }
+
+    /**
+     * @param objectMapper 需要保存类型信息，否则无法解码为原始类型
+     */
+    public JacksonAuthCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new AuthException("缓存数据序列化失败", e);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, Object.class);
+        } catch (IOException e) {
+            throw new AuthException("缓存数据反序列化失败", e);
+        }
+    }
+
+    /**
+     * 允许解码的JDK类型：常用集合及值类型
+     */
+    private static final Pattern JDK_TYPES = Pattern.compile("java\\.util\\.(ArrayList|LinkedList|HashMap|LinkedHashMap|TreeMap|HashSet"
+            + "|LinkedHashSet|TreeSet|Date|Collections\\$\\w+|Arrays\\$ArrayList|ImmutableCollections\\$\\w+"
+            + "|concurrent\\.ConcurrentHashMap|concurrent\\.CopyOnWriteArrayList)"
+            + "|java\\.lang\\.(String|Boolean|Byte|Short|Integer|Long|Float|Double|Character|Number)"
+            + "|java\\.math\\.(BigDecimal|BigInteger)|java\\.time\\.\\w+");
+
+    /**
+     * 本框架的包名
+     */
+    private static final String AUTH_PACKAGE = "com.opensef.auth.";
+
+    /**
+     * 创建保存类型信息的ObjectMapper
+     *
+     * @return ObjectMapper
+     */
+    public static ObjectMapper defaultObjectMapper() {
+        return defaultObjectMapper(new String[0]);
+    }
+
+    /**
+     * 创建保存类型信息的ObjectMapper，除JDK的集合和值类型及本框架的类型外，只允许解码为指定包中的类型，
+     * 避免写入缓存的类型信息构造任意类型的对象
+     *
+     * @param allowedPackages 允许解码的其他包名，例如session数据或附加信息中的自定义类型所在的包
+     * @return ObjectMapper
+     */
+    public static ObjectMapper defaultObjectMapper(String... allowedPackages) {
+        BasicPolymorphicTypeValidator.Builder validator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType(JDK_TYPES)
+                .allowIfSubType(AUTH_PACKAGE)
+                .allowIfSubTypeIsArray();
+        for (String allowedPackage : allowedPackages) {
+            validator.allowIfSubType(allowedPackage.endsWith(".") ? allowedPackage : allowedPackage + '.');
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        // 必须设置，否则无法将JSON转化为对象，会转化成Map类型
+        objectMapper.activateDefaultTyping(validator.build(), ObjectMapper.DefaultTyping.NON_FINAL);
+        return objectMapper;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.opensef.auth.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JVM内的失效通知通道，在发布线程中同步通知全部监听器<br/>
+ * 适用于单节点部署或测试，多个NearCache共享同一个通道即可模拟多个节点
+ */
+public class LocalInvalidationChannel implements InvalidationChannel {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String nodeId, Collection<?> keys) {
+        for (Listener listener : listeners) {
+            listener.onInvalidate(nodeId, keys);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+}
@@ -1,13 +1,77 @@
 package com.opensef.auth.cache;
 
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.config.MemoryCacheConfig;
 import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.util.AuthCommonUtil;
 
-public class MemoryCache<K, V> implements Cache<K, V> {
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * 内存缓存<br/>
+ * 同时实现AsyncCache，数据在本地内存中，异步操作直接在调用线程完成并返回已完成的CompletableFuture
+ */
+public class MemoryCache<K, V> implements Cache<K, V>, AsyncCache<K, V>, AutoCloseable {
+
+    /**
+     * 内存缓存，按过期检查时间周期推进时间轮，删除到期的key
+     */
+    private final CacheMap<K, V> CACHE_MAP;
+
+    /**
+     * 持久化日志，未开启持久化时为null
+     */
+    private final CacheJournal<K, V> journal;
+
+    public MemoryCache() {
+        this(new MemoryCacheConfig());
+    }
+
+    /**
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     */
+    public MemoryCache(long expireCheckCycle) {
+        this.CACHE_MAP = new CacheMap<>(expireCheckCycle);
+        this.journal = null;
+    }
+
+    /**
+     * @param memoryCacheConfig 内存缓存配置
+     */
+    public MemoryCache(MemoryCacheConfig memoryCacheConfig) {
+        this(memoryCacheConfig, AuthClock.system());
+    }
+
+    /**
+     * @param memoryCacheConfig 内存缓存配置
+     * @param clock             时钟，过期判断及计算到期时间戳时使用
+     */
+    public MemoryCache(MemoryCacheConfig memoryCacheConfig, AuthClock clock) {
+        this.CACHE_MAP = new CacheMap<>(memoryCacheConfig.getExpireCheckCycle(), memoryCacheConfig.getMaximumSize(),
+                memoryCacheConfig.getShardCount(), clock);
+        if (AuthCommonUtil.isNotBlank(memoryCacheConfig.getPersistenceDirectory())) {
+            // 从快照和日志恢复数据
+            this.journal = new CacheJournal<>(Paths.get(memoryCacheConfig.getPersistenceDirectory()), memoryCacheConfig.getJournalFileSize());
+            this.journal.start(CACHE_MAP, memoryCacheConfig.getFsyncInterval(), memoryCacheConfig.getSnapshotInterval());
+        } else {
+            this.journal = null;
+        }
+    }
 
     /**
-     * 内存缓存，每1小时检查一次过期key
+     * 直接使用CacheKey作为key，hash已经预先计算，不需要拼接字符串
      */
-    private final CacheMap<K, V> CACHE_MAP = new CacheMap<>(60 * 60 * 1000);
+    @Override
+    @SuppressWarnings("unchecked")
+    public K resolveKey(CacheKey key) {
+        return (K) key;
+    }
 
     @Override
     public V get(K key) {
@@ -16,9 +80,12 @@ public class MemoryCache<K, V> implements Cache<K, V> {
 
     @Override
     public void put(K key, V value) {
-        CACHE_MAP.put(key, value, AuthConstant.NEVER_EXPIRE);
+        put(key, value, AuthConstant.NEVER_EXPIRE);
     }
 
+    /**
+     * 开启持久化时，写入、删除及设置到期时间由数据表在key的锁内追加到日志
+     */
     @Override
     public void put(K key, V value, long timeout) {
         CACHE_MAP.put(key, value, timeout);
@@ -34,6 +101,53 @@ public class MemoryCache<K, V> implements Cache<K, V> {
         CACHE_MAP.expire(key, timeout);
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<>(Math.max(16, (int) (keys.size() / 0.75f) + 1));
+        for (K key : keys) {
+            V value = CACHE_MAP.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量设置value值，全部数据使用同一个到期时间戳
+     *
+     * @param map     key及对应的value值
+     * @param timeout 过期时间（毫秒）
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map, long timeout) {
+        long deadline = deadline(timeout);
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            CACHE_MAP.putAt(entry.getKey(), entry.getValue(), deadline);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            CACHE_MAP.remove(key);
+        }
+    }
+
+    /**
+     * 批量设置缓存过期时间，全部数据使用同一个到期时间戳
+     *
+     * @param keys    key值集合
+     * @param timeout 过期时间（毫秒）
+     */
+    @Override
+    public void expireAll(Collection<? extends K> keys, long timeout) {
+        long deadline = deadline(timeout);
+        for (K key : keys) {
+            CACHE_MAP.expireAt(key, deadline);
+        }
+    }
+
     /**
      * 数据不存在返回-2；永不过期返回-1；其他值表示剩余过期时间
      *
@@ -47,7 +161,184 @@ public class MemoryCache<K, V> implements Cache<K, V> {
 
     @Override
     public boolean isUnExpired(K key) {
-        return Cache.super.isUnExpired(key);
+        return CACHE_MAP.isUnExpired(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value, long timeout) {
+        Object[] previous = new Object[1];
+        CACHE_MAP.computeAt(key, (k, current) -> {
+            previous[0] = current;
+            return current == null ? value : current;
+        }, deadline(timeout));
+        return (V) previous[0];
+    }
+
+    @Override
+    public boolean replace(K key, V expected, V value) {
+        return replaceAt(key, expected, value, CacheMap.KEEP_DEADLINE);
+    }
+
+    @Override
+    public boolean replace(K key, V expected, V value, long timeout) {
+        return replaceAt(key, expected, value, deadline(timeout));
+    }
+
+    @Override
+    public boolean remove(K key, V expected) {
+        boolean[] removed = new boolean[1];
+        CACHE_MAP.computeAt(key, (k, current) -> {
+            removed[0] = current != null && Objects.equals(current, expected);
+            return removed[0] ? null : current;
+        }, CacheMap.KEEP_DEADLINE);
+        return removed[0];
+    }
+
+    /**
+     * 在key所在分段的锁内原子计算，计算函数只执行一次
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        CacheMap.CacheData cacheData = CACHE_MAP.computeAt(key, remapping, deadline(timeout));
+        return cacheData == null ? null : (V) cacheData.getData();
+    }
+
+    /**
+     * 在key所在分段的锁内原子计算，计算函数只执行一次
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        boolean[] present = new boolean[1];
+        CacheMap.CacheData cacheData = CACHE_MAP.computeAt(key, (k, current) -> {
+            present[0] = current != null;
+            return current == null ? null : remapping.apply(k, current);
+        }, CacheMap.KEEP_DEADLINE);
+        if (!present[0] || cacheData == null) {
+            return null;
+        }
+        return (V) cacheData.getData();
+    }
+
+    private boolean replaceAt(K key, V expected, V value, long deadline) {
+        boolean[] replaced = new boolean[1];
+        CACHE_MAP.computeAt(key, (k, current) -> {
+            replaced[0] = current != null && Objects.equals(current, expected);
+            return replaced[0] ? value : current;
+        }, deadline);
+        return replaced[0];
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        return CompletableFuture.completedFuture(get(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value, long timeout) {
+        put(key, value, timeout);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<V> removeAsync(K key) {
+        return CompletableFuture.completedFuture(remove(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> expireAsync(K key, long timeout) {
+        expire(key, timeout);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Long> getExpireAsync(K key) {
+        return CompletableFuture.completedFuture(getExpire(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isUnExpiredAsync(K key) {
+        return CompletableFuture.completedFuture(isUnExpired(key));
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        return CompletableFuture.completedFuture(getAll(keys));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAllAsync(Map<? extends K, ? extends V> map, long timeout) {
+        putAll(map, timeout);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAllAsync(Collection<? extends K> keys) {
+        removeAll(keys);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> expireAllAsync(Collection<? extends K> keys, long timeout) {
+        expireAll(keys, timeout);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<V> computeAsync(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        return CompletableFuture.completedFuture(compute(key, remapping, timeout));
+    }
+
+    @Override
+    public CompletableFuture<V> computeIfPresentAsync(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        return CompletableFuture.completedFuture(computeIfPresent(key, remapping));
+    }
+
+    @Override
+    public boolean addRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        CACHE_MAP.addRemovalListener(listener);
+        return true;
+    }
+
+    @Override
+    public boolean removeRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        return CACHE_MAP.removeRemovalListener(listener);
+    }
+
+    /**
+     * 获取统计信息：命中、未命中、淘汰、过期删除次数，过期检查耗时及当前缓存数量
+     *
+     * @return 统计信息
+     */
+    @Override
+    public CacheStats stats() {
+        return CACHE_MAP.stats();
+    }
+
+    /**
+     * 获取因超出最大缓存数量被淘汰的数据数量
+     *
+     * @return 淘汰数量
+     */
+    public long getEvictionCount() {
+        return CACHE_MAP.getEvictionCount();
+    }
+
+    /**
+     * 关闭缓存，停止过期清理任务，开启持久化时将尚未刷盘的日志写入磁盘
+     */
+    @Override
+    public void close() {
+        CACHE_MAP.close();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private long deadline(long timeout) {
+        return timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : CACHE_MAP.clock().currentTimeMillis() + timeout;
     }
 
 }
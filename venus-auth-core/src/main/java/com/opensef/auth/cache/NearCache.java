@@ -0,0 +1,386 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.authc.AuthTokenValue;
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.config.MemoryCacheConfig;
+import com.opensef.auth.constant.AuthConstant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+
+/**
+ * 近端缓存<br/>
+ * 在任意缓存（通常是远程缓存）前增加一层容量有限、有效期较短的本地缓存，token校验等读操作大部分直接从本地内存返回。
+ * 写入、删除以及缩短过期时间时，删除本地副本并通过失效通知通道通知其他节点；
+ * 延长过期时间不影响本地副本，本地副本的有效期不会超过本地有效期和数据本身的剩余有效期。<br/>
+ * 未收到失效通知时（例如通知丢失），其他节点的本地副本最多在本地有效期内保持旧值。<br/>
+ * 每次失效都递增key所在分组的版本号，读取被代理缓存前记录版本号，写入本地副本后版本号发生变化时删除本地副本，
+ * 避免读取期间数据被删除或修改后，旧值被写回本地
+ */
+public class NearCache<K, V> implements Cache<K, V>, AutoCloseable {
+
+    /**
+     * 默认本地缓存最大数量
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    /**
+     * 默认本地有效期（毫秒）
+     */
+    public static final long DEFAULT_LOCAL_TIMEOUT = 5000;
+
+    /**
+     * 失效版本号的分组数量，2的幂
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    /**
+     * 按key的hash分组的失效版本号
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final Cache<K, V> delegate;
+
+    private final CacheMap<K, V> local;
+
+    private final long localTimeout;
+
+    private final InvalidationChannel invalidationChannel;
+
+    private final InvalidationChannel.Listener listener;
+
+    /**
+     * 当前节点标识，忽略自己发布的失效通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * @param delegate            被代理的缓存
+     * @param invalidationChannel 失效通知通道
+     */
+    public NearCache(Cache<K, V> delegate, InvalidationChannel invalidationChannel) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_LOCAL_TIMEOUT, invalidationChannel);
+    }
+
+    /**
+     * @param delegate            被代理的缓存
+     * @param maximumSize         本地缓存最大数量
+     * @param localTimeout        本地有效期（毫秒）
+     * @param invalidationChannel 失效通知通道
+     */
+    public NearCache(Cache<K, V> delegate, long maximumSize, long localTimeout, InvalidationChannel invalidationChannel) {
+        this(delegate, maximumSize, localTimeout, invalidationChannel, AuthClock.system());
+    }
+
+    /**
+     * @param delegate            被代理的缓存
+     * @param maximumSize         本地缓存最大数量
+     * @param localTimeout        本地有效期（毫秒）
+     * @param invalidationChannel 失效通知通道
+     * @param clock               时钟，本地副本的过期判断使用
+     */
+    public NearCache(Cache<K, V> delegate, long maximumSize, long localTimeout, InvalidationChannel invalidationChannel, AuthClock clock) {
+        this.delegate = delegate;
+        this.localTimeout = localTimeout;
+        // 本地有效期较短，过期检查周期不超过本地有效期
+        this.local = new CacheMap<>(Math.max(100, Math.min(localTimeout, MemoryCacheConfig.DEFAULT_EXPIRE_CHECK_CYCLE)), maximumSize,
+                MemoryCacheConfig.DEFAULT_SHARD_COUNT, clock);
+        this.invalidationChannel = invalidationChannel;
+        this.listener = this::onInvalidate;
+        invalidationChannel.subscribe(listener);
+    }
+
+    @Override
+    public K resolveKey(CacheKey key) {
+        return delegate.resolveKey(key);
+    }
+
+    @Override
+    public V get(K key) {
+        V value = local.get(key);
+        if (value != null) {
+            return value;
+        }
+        long generation = generation(key);
+        value = delegate.get(key);
+        if (value != null) {
+            cacheLocally(key, value, AuthConstant.NEVER_EXPIRE, generation);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        put(key, value, AuthConstant.NEVER_EXPIRE);
+    }
+
+    @Override
+    public void put(K key, V value, long timeout) {
+        // 写入后只有本次失效递增了版本号时才缓存到本地，并发写入时不会用先写入的旧值覆盖本地副本
+        long generation = generation(key);
+        delegate.put(key, value, timeout);
+        invalidate(Collections.singletonList(key));
+        cacheLocally(key, value, timeout, generation + 1);
+    }
+
+    @Override
+    public V remove(K key) {
+        V value = delegate.remove(key);
+        invalidate(Collections.singletonList(key));
+        return value;
+    }
+
+    @Override
+    public void expire(K key, long timeout) {
+        delegate.expire(key, timeout);
+        if (shortens(timeout)) {
+            invalidate(Collections.singletonList(key));
+        }
+    }
+
+    @Override
+    public Long getExpire(K key) {
+        return delegate.getExpire(key);
+    }
+
+    /**
+     * 本地副本存在时直接返回true，否则从被代理的缓存读取数据并缓存到本地
+     */
+    @Override
+    public boolean isUnExpired(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new LinkedHashMap<>(Math.max(16, (int) (keys.size() / 0.75f) + 1));
+        List<K> missingKeys = new ArrayList<>();
+        Map<K, Long> missingGenerations = new HashMap<>();
+        for (K key : keys) {
+            V value = local.get(key);
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                missingKeys.add(key);
+                missingGenerations.put(key, generation(key));
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            Map<K, V> loaded = delegate.getAll(missingKeys);
+            for (Map.Entry<K, V> entry : loaded.entrySet()) {
+                Long generation = missingGenerations.get(entry.getKey());
+                if (generation != null) {
+                    cacheLocally(entry.getKey(), entry.getValue(), AuthConstant.NEVER_EXPIRE, generation);
+                }
+            }
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map, long timeout) {
+        Map<K, Long> generations = new HashMap<>();
+        for (K key : map.keySet()) {
+            generations.put(key, generation(key));
+        }
+        delegate.putAll(map, timeout);
+        invalidate(map.keySet());
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            cacheLocally(entry.getKey(), entry.getValue(), timeout, generations.get(entry.getKey()) + 1);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        delegate.removeAll(keys);
+        invalidate(keys);
+    }
+
+    @Override
+    public void expireAll(Collection<? extends K> keys, long timeout) {
+        delegate.expireAll(keys, timeout);
+        if (shortens(timeout)) {
+            invalidate(keys);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value, long timeout) {
+        V current = delegate.putIfAbsent(key, value, timeout);
+        if (current == null) {
+            invalidate(Collections.singletonList(key));
+        }
+        return current;
+    }
+
+    @Override
+    public boolean replace(K key, V expected, V value) {
+        boolean replaced = delegate.replace(key, expected, value);
+        if (replaced) {
+            invalidate(Collections.singletonList(key));
+        }
+        return replaced;
+    }
+
+    @Override
+    public boolean replace(K key, V expected, V value, long timeout) {
+        boolean replaced = delegate.replace(key, expected, value, timeout);
+        if (replaced) {
+            invalidate(Collections.singletonList(key));
+        }
+        return replaced;
+    }
+
+    @Override
+    public boolean remove(K key, V expected) {
+        boolean removed = delegate.remove(key, expected);
+        if (removed) {
+            invalidate(Collections.singletonList(key));
+        }
+        return removed;
+    }
+
+    /**
+     * 直接在被代理的缓存上计算，计算时使用被代理缓存中的最新值，而不是本地副本
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        V value = delegate.compute(key, remapping, timeout);
+        invalidate(Collections.singletonList(key));
+        return value;
+    }
+
+    /**
+     * 直接在被代理的缓存上计算，计算时使用被代理缓存中的最新值，而不是本地副本
+     */
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        V value = delegate.computeIfPresent(key, remapping);
+        invalidate(Collections.singletonList(key));
+        return value;
+    }
+
+    @Override
+    public V putAndCompute(K putKey, V putValue, K key, BiFunction<? super K, ? super V, ? extends V> remapping, long timeout) {
+        V value = delegate.putAndCompute(putKey, putValue, key, remapping, timeout);
+        invalidate(Arrays.asList(putKey, key));
+        return value;
+    }
+
+    /**
+     * 监听被代理缓存的数据删除，本地副本的删除不通知
+     */
+    @Override
+    public boolean addRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        return delegate.addRemovalListener(listener);
+    }
+
+    @Override
+    public boolean removeRemovalListener(RemovalListener<? super K, ? super V> listener) {
+        return delegate.removeRemovalListener(listener);
+    }
+
+    /**
+     * 获取本地缓存的统计信息，命中率即本地副本的命中率
+     *
+     * @return 统计信息
+     */
+    @Override
+    public CacheStats stats() {
+        return local.stats();
+    }
+
+    /**
+     * 取消订阅失效通知，停止本地副本的过期清理任务
+     */
+    @Override
+    public void close() {
+        invalidationChannel.unsubscribe(listener);
+        local.close();
+    }
+
+    /**
+     * 删除本地副本并通知其他节点
+     */
+    private void invalidate(Collection<? extends K> keys) {
+        for (K key : keys) {
+            invalidateLocally(key);
+        }
+        invalidationChannel.publish(nodeId, keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onInvalidate(String nodeId, Collection<?> keys) {
+        if (this.nodeId.equals(nodeId)) {
+            return;
+        }
+        for (Object key : keys) {
+            invalidateLocally((K) key);
+        }
+    }
+
+    /**
+     * 先递增版本号再删除本地副本，正在读取被代理缓存的线程写入本地后会发现版本号变化
+     */
+    private void invalidateLocally(K key) {
+        generations.incrementAndGet(stripe(key));
+        local.remove(key);
+    }
+
+    private long generation(Object key) {
+        return generations.get(stripe(key));
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode() * 0x9e3779b9;
+        return (hash >>> 16) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * 新的过期时间是否可能短于本地副本的有效期
+     */
+    private boolean shortens(long timeout) {
+        return timeout != AuthConstant.NEVER_EXPIRE && timeout < localTimeout;
+    }
+
+    /**
+     * 缓存到本地，有效期取本地有效期、数据的过期时间以及token剩余有效期中的最小值
+     *
+     * @param timeout    数据的过期时间（毫秒），-1表示未知或永久
+     * @param generation 读取或写入被代理缓存时预期的版本号，版本号已变化时不缓存
+     */
+    private void cacheLocally(K key, V value, long timeout, long generation) {
+        long ttl = localTimeout;
+        if (timeout != AuthConstant.NEVER_EXPIRE) {
+            ttl = Math.min(ttl, timeout);
+        }
+        if (value instanceof AuthTokenValue) {
+            // token续期后过期时间可能已经过时，只在过期时间晚于当前时间时使用；永不过期的token过期时间不大于创建时间
+            AuthTokenValue tokenValue = (AuthTokenValue) value;
+            long currentTime = local.clock().currentTimeMillis();
+            if (tokenValue.getExpireTime() != null && tokenValue.getCreatedTime() != null
+                    && tokenValue.getExpireTime() > tokenValue.getCreatedTime() && tokenValue.getExpireTime() > currentTime) {
+                ttl = Math.min(ttl, tokenValue.getExpireTime() - currentTime);
+            }
+        }
+        int stripe = stripe(key);
+        if (ttl > 0 && generations.get(stripe) == generation) {
+            local.put(key, value, ttl);
+            // 写入本地期间发生了失效，删除可能已过时的本地副本
+            if (generations.get(stripe) != generation) {
+                local.remove(key);
+            }
+        }
+    }
+
+}
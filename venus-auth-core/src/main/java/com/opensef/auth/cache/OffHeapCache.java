@@ -0,0 +1,302 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.constant.AuthConstant;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 堆外缓存<br/>
+ * token和session以紧凑的二进制格式保存在直接内存中，索引同样位于直接内存，
+ * 海量在线token时不再占用老年代，减少GC停顿。key按字符串保存，value的编码规则见BinaryRecordCodec，
+ * 除AuthTokenValue、AuthSession及常用类型外，其他类型的值需要实现Serializable。<br/>
+ * 每次读取都会重新解码出新的对象，修改读取到的对象后需要重新put。<br/>
+ * 直接内存的上限由JVM参数 -XX:MaxDirectMemorySize 控制
+ */
+public class OffHeapCache implements Cache<Object, Object>, AutoCloseable {
+
+    /**
+     * 默认分段数量
+     */
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+    /**
+     * 默认每个分段的初始数据区大小（字节）
+     */
+    public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 20;
+
+    /**
+     * 默认过期检查时间周期（毫秒）
+     */
+    public static final long DEFAULT_EXPIRE_CHECK_CYCLE = 60 * 1000L;
+
+    private final OffHeapSegment[] segments;
+
+    /**
+     * 使用hash的高位选择分段，低位用于分段内的索引
+     */
+    private final int segmentShift;
+
+    private final CacheStatsCounter statsCounter = new CacheStatsCounter();
+
+    private final long expireCheckCycle;
+
+    private volatile ScheduledFuture<?> removeExpiredKeyTask;
+
+    private volatile boolean closed;
+
+    private final AuthClock clock;
+
+    public OffHeapCache() {
+        this(DEFAULT_SEGMENT_COUNT, DEFAULT_SEGMENT_CAPACITY, DEFAULT_EXPIRE_CHECK_CYCLE);
+    }
+
+    /**
+     * @param segmentCount     分段数量，向上取整为2的幂
+     * @param segmentCapacity  每个分段的初始数据区大小（字节），不足时自动扩容
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     */
+    public OffHeapCache(int segmentCount, int segmentCapacity, long expireCheckCycle) {
+        this(segmentCount, segmentCapacity, expireCheckCycle, AuthClock.system());
+    }
+
+    /**
+     * @param segmentCount     分段数量，向上取整为2的幂
+     * @param segmentCapacity  每个分段的初始数据区大小（字节），不足时自动扩容
+     * @param expireCheckCycle 过期检查时间周期（毫秒）
+     * @param clock            时钟，过期判断及计算到期时间戳时使用
+     */
+    public OffHeapCache(int segmentCount, int segmentCapacity, long expireCheckCycle, AuthClock clock) {
+        this.clock = clock;
+        int count = segmentCount <= 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1;
+        this.segments = new OffHeapSegment[count];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new OffHeapSegment(segmentCapacity / 64, segmentCapacity);
+        }
+
+        // 启动移除过期key任务
+        this.expireCheckCycle = expireCheckCycle;
+        removeExpiredKeyTask();
+    }
+
+    /**
+     * 使用CacheKey的字节编码，前缀部分不再重复编码
+     */
+    @Override
+    public Object resolveKey(CacheKey key) {
+        return key;
+    }
+
+    @Override
+    public Object get(Object key) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        byte[] value = segmentFor(hash).get(keyBytes, hash, clock.currentTimeMillis());
+        if (value == null) {
+            statsCounter.recordMiss();
+            return null;
+        }
+        statsCounter.recordHit();
+        return BinaryRecordCodec.decode(ByteBuffer.wrap(value));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, AuthConstant.NEVER_EXPIRE);
+    }
+
+    @Override
+    public void put(Object key, Object value, long timeout) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        long deadline = timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : clock.currentTimeMillis() + timeout;
+        ensureRemoveExpiredKeyTask();
+        segmentFor(hash).put(keyBytes, hash, BinaryRecordCodec.encode(value), deadline);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        byte[] value = segmentFor(hash).remove(keyBytes, hash, clock.currentTimeMillis());
+        return value == null ? null : BinaryRecordCodec.decode(ByteBuffer.wrap(value));
+    }
+
+    @Override
+    public void expire(Object key, long timeout) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        long currentTime = clock.currentTimeMillis();
+        long deadline = timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : currentTime + timeout;
+        ensureRemoveExpiredKeyTask();
+        segmentFor(hash).expire(keyBytes, hash, deadline, currentTime);
+    }
+
+    /**
+     * 数据不存在返回-2；永不过期返回-1；其他值表示剩余过期时间
+     *
+     * @param key key值
+     * @return 剩余过期时间
+     */
+    @Override
+    public Long getExpire(Object key) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        long currentTime = clock.currentTimeMillis();
+        long deadline = segmentFor(hash).getDeadline(keyBytes, hash, currentTime);
+        if (deadline == AuthConstant.NEVER_EXPIRE || deadline == AuthConstant.EXPIRED_DATA_NOT_EXIST) {
+            return deadline;
+        }
+        return deadline - currentTime;
+    }
+
+    @Override
+    public boolean isUnExpired(Object key) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        boolean unExpired = segmentFor(hash).getDeadline(keyBytes, hash, clock.currentTimeMillis()) != AuthConstant.EXPIRED_DATA_NOT_EXIST;
+        if (unExpired) {
+            statsCounter.recordHit();
+        } else {
+            statsCounter.recordMiss();
+        }
+        return unExpired;
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value, long timeout) {
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        byte[] valueBytes = BinaryRecordCodec.encode(value);
+        ensureRemoveExpiredKeyTask();
+        while (true) {
+            long currentTime = clock.currentTimeMillis();
+            long deadline = timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : currentTime + timeout;
+            if (segmentFor(hash).compareAndSet(keyBytes, hash, null, valueBytes, deadline, currentTime)) {
+                return null;
+            }
+            Object current = get(key);
+            if (current != null) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * 按编码后的字节比较当前值和期望值
+     */
+    @Override
+    public boolean replace(Object key, Object expected, Object value) {
+        return compareAndSet(key, expected, value, CacheMap.KEEP_DEADLINE);
+    }
+
+    /**
+     * 按编码后的字节比较当前值和期望值
+     */
+    @Override
+    public boolean replace(Object key, Object expected, Object value, long timeout) {
+        return compareAndSet(key, expected, value, timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : clock.currentTimeMillis() + timeout);
+    }
+
+    /**
+     * 按编码后的字节比较当前值和期望值
+     */
+    @Override
+    public boolean remove(Object key, Object expected) {
+        return compareAndSet(key, expected, null, CacheMap.KEEP_DEADLINE);
+    }
+
+    /**
+     * 获取缓存数量（包含已过期但尚未清理的数据）
+     *
+     * @return 缓存数量
+     */
+    public long size() {
+        long size = 0;
+        for (OffHeapSegment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private boolean compareAndSet(Object key, Object expected, Object value, long deadline) {
+        if (expected == null) {
+            return false;
+        }
+        byte[] keyBytes = keyBytes(key);
+        int hash = hash(keyBytes);
+        ensureRemoveExpiredKeyTask();
+        return segmentFor(hash).compareAndSet(keyBytes, hash, BinaryRecordCodec.encode(expected),
+                value == null ? null : BinaryRecordCodec.encode(value), deadline, clock.currentTimeMillis());
+    }
+
+    /**
+     * 获取统计信息，不统计淘汰及读取时过期的数量
+     *
+     * @return 统计信息
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot(size());
+    }
+
+    /**
+     * 停止过期清理任务，之后写入数据不再重新注册；已分配的直接内存随对象回收释放
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        removeExpiredKeyTask.cancel(false);
+    }
+
+    /**
+     * 写入数据前确认过期清理任务仍在执行，调度器关闭后任务被取消时重新注册
+     */
+    private void ensureRemoveExpiredKeyTask() {
+        if (removeExpiredKeyTask.isDone() && !closed) {
+            removeExpiredKeyTask();
+        }
+    }
+
+    private synchronized void removeExpiredKeyTask() {
+        ScheduledFuture<?> task = removeExpiredKeyTask;
+        if (closed || (task != null && !task.isDone())) {
+            return;
+        }
+        removeExpiredKeyTask = CacheScheduler.shared().scheduleAtFixedRate(this::removeExpiredKey, expireCheckCycle);
+    }
+
+    private void removeExpiredKey() {
+        long startTime = System.nanoTime();
+        long currentTime = clock.currentTimeMillis();
+        int expiredCount = 0;
+        for (OffHeapSegment segment : segments) {
+            expiredCount += segment.removeExpired(currentTime);
+        }
+        statsCounter.recordSweep(expiredCount, System.nanoTime() - startTime);
+    }
+
+    private OffHeapSegment segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private static byte[] keyBytes(Object key) {
+        if (key instanceof CacheKey) {
+            return ((CacheKey) key).toBytes();
+        }
+        return key.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 1;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 15);
+    }
+
+}
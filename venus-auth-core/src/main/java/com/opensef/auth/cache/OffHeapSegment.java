@@ -0,0 +1,369 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.exception.AuthException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 堆外缓存分段<br/>
+ * 索引和数据都存放在直接内存中：索引为开放寻址的hash表，每个槽16字节（key的hash、记录偏移量、到期时间戳）；
+ * 数据区按追加方式写入记录（key长度、value长度、key、value），覆盖和删除的记录只记为废弃空间，
+ * 数据区写满时压缩或扩容。续期只修改索引中的到期时间，不移动记录
+ */
+final class OffHeapSegment {
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /**
+     * 槽位为空，偏移量为0
+     */
+    private static final int EMPTY = 0;
+
+    /**
+     * 槽位已删除
+     */
+    private static final int TOMBSTONE = -1;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private static final int MAX_DATA_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private ByteBuffer index;
+
+    private int slotMask;
+
+    /**
+     * 已使用的槽位数（包含已删除的槽位）
+     */
+    private int usedSlots;
+
+    /**
+     * 有效数据数量
+     */
+    private int size;
+
+    private ByteBuffer data;
+
+    private int writePosition;
+
+    /**
+     * 废弃空间大小（字节）
+     */
+    private int deadBytes;
+
+    OffHeapSegment(int initialSlots, int initialCapacity) {
+        int slots = Integer.highestOneBit(Math.max(initialSlots, 16) - 1) << 1;
+        this.index = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+        this.slotMask = slots - 1;
+        this.data = ByteBuffer.allocateDirect(Math.max(initialCapacity, 1024));
+    }
+
+    /**
+     * 获取value的编码
+     *
+     * @param key         key的编码
+     * @param hash        key的hash
+     * @param currentTime 当前时间戳（毫秒）
+     * @return value的编码，不存在或已过期时返回null
+     */
+    synchronized byte[] get(byte[] key, int hash, long currentTime) {
+        int slot = findSlot(key, hash);
+        if (slot < 0) {
+            return null;
+        }
+        if (isExpired(slot, currentTime)) {
+            removeSlot(slot);
+            return null;
+        }
+        return readValue(offset(slot));
+    }
+
+    synchronized void put(byte[] key, int hash, byte[] value, long deadline) {
+        int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+        ensureDataCapacity(recordSize);
+
+        int offset = writePosition;
+        data.putInt(offset, key.length);
+        data.putInt(offset + 4, value.length);
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(offset + RECORD_HEADER_SIZE);
+        buffer.put(key);
+        buffer.put(value);
+        writePosition += recordSize;
+
+        int slot = findSlot(key, hash);
+        if (slot >= 0) {
+            deadBytes += recordSize(offset(slot));
+        } else {
+            slot = -slot - 1;
+            if (index.getInt(slot * SLOT_SIZE + 4) == EMPTY) {
+                usedSlots++;
+            }
+            size++;
+            index.putInt(slot * SLOT_SIZE, hash);
+        }
+        index.putInt(slot * SLOT_SIZE + 4, offset + 1);
+        index.putLong(slot * SLOT_SIZE + 8, deadline);
+
+        if (usedSlots > (slotMask + 1) * LOAD_FACTOR) {
+            rehash();
+        }
+    }
+
+    /**
+     * 删除数据
+     *
+     * @return 被删除的value的编码，不存在时返回null
+     */
+    synchronized byte[] remove(byte[] key, int hash, long currentTime) {
+        int slot = findSlot(key, hash);
+        if (slot < 0) {
+            return null;
+        }
+        byte[] value = isExpired(slot, currentTime) ? null : readValue(offset(slot));
+        removeSlot(slot);
+        return value;
+    }
+
+    synchronized void expire(byte[] key, int hash, long deadline, long currentTime) {
+        int slot = findSlot(key, hash);
+        if (slot < 0) {
+            return;
+        }
+        if (isExpired(slot, currentTime)) {
+            removeSlot(slot);
+            return;
+        }
+        index.putLong(slot * SLOT_SIZE + 8, deadline);
+    }
+
+    /**
+     * 比较并设置，当前value的编码与期望的编码相同时写入新值
+     *
+     * @param key         key的编码
+     * @param hash        key的hash
+     * @param expected    期望的value的编码，null表示期望key不存在
+     * @param value       新的value的编码，null表示删除
+     * @param deadline    新值的到期时间戳，CacheMap.KEEP_DEADLINE为保持当前的到期时间
+     * @param currentTime 当前时间戳（毫秒）
+     * @return true:设置成功
+     */
+    synchronized boolean compareAndSet(byte[] key, int hash, byte[] expected, byte[] value, long deadline, long currentTime) {
+        int slot = findSlot(key, hash);
+        if (slot >= 0 && isExpired(slot, currentTime)) {
+            removeSlot(slot);
+            slot = -1;
+        }
+        boolean present = slot >= 0;
+        if (expected == null ? present : !present || !valueEquals(offset(slot), expected)) {
+            return false;
+        }
+        if (value == null) {
+            if (present) {
+                removeSlot(slot);
+            }
+            return true;
+        }
+        if (deadline == CacheMap.KEEP_DEADLINE) {
+            deadline = present ? index.getLong(slot * SLOT_SIZE + 8) : AuthConstant.NEVER_EXPIRE;
+        }
+        put(key, hash, value, deadline);
+        return true;
+    }
+
+    /**
+     * 获取到期时间戳
+     *
+     * @return 到期时间戳，-1表示永久，-2表示数据不存在
+     */
+    synchronized long getDeadline(byte[] key, int hash, long currentTime) {
+        int slot = findSlot(key, hash);
+        if (slot < 0) {
+            return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+        }
+        if (isExpired(slot, currentTime)) {
+            removeSlot(slot);
+            return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+        }
+        return index.getLong(slot * SLOT_SIZE + 8);
+    }
+
+    /**
+     * 删除全部已过期的数据，只扫描直接内存中的索引，不产生堆内对象
+     *
+     * @param currentTime 当前时间戳（毫秒）
+     * @return 删除的数量
+     */
+    synchronized int removeExpired(long currentTime) {
+        int expiredCount = 0;
+        for (int slot = 0; slot <= slotMask; slot++) {
+            int offset = index.getInt(slot * SLOT_SIZE + 4);
+            if (offset != EMPTY && offset != TOMBSTONE && isExpired(slot, currentTime)) {
+                removeSlot(slot);
+                expiredCount++;
+            }
+        }
+        return expiredCount;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 查找key所在的槽位
+     *
+     * @return 找到时返回槽位；未找到时返回 -(可插入的槽位) - 1
+     */
+    private int findSlot(byte[] key, int hash) {
+        int slot = hash & slotMask;
+        int firstTombstone = -1;
+        while (true) {
+            int position = slot * SLOT_SIZE;
+            int offset = index.getInt(position + 4);
+            if (offset == EMPTY) {
+                return -(firstTombstone >= 0 ? firstTombstone : slot) - 1;
+            }
+            if (offset == TOMBSTONE) {
+                if (firstTombstone < 0) {
+                    firstTombstone = slot;
+                }
+            } else if (index.getInt(position) == hash && keyEquals(offset - 1, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        if (data.getInt(offset) != key.length) {
+            return false;
+        }
+        int keyOffset = offset + RECORD_HEADER_SIZE;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(keyOffset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean valueEquals(int offset, byte[] value) {
+        if (data.getInt(offset + 4) != value.length) {
+            return false;
+        }
+        int valueOffset = offset + RECORD_HEADER_SIZE + data.getInt(offset);
+        for (int i = 0; i < value.length; i++) {
+            if (data.get(valueOffset + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isExpired(int slot, long currentTime) {
+        long deadline = index.getLong(slot * SLOT_SIZE + 8);
+        return deadline != AuthConstant.NEVER_EXPIRE && deadline <= currentTime;
+    }
+
+    private int offset(int slot) {
+        return index.getInt(slot * SLOT_SIZE + 4) - 1;
+    }
+
+    private int recordSize(int offset) {
+        return RECORD_HEADER_SIZE + data.getInt(offset) + data.getInt(offset + 4);
+    }
+
+    private byte[] readValue(int offset) {
+        int keyLength = data.getInt(offset);
+        byte[] value = new byte[data.getInt(offset + 4)];
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(offset + RECORD_HEADER_SIZE + keyLength);
+        buffer.get(value);
+        return value;
+    }
+
+    private void removeSlot(int slot) {
+        deadBytes += recordSize(offset(slot));
+        index.putInt(slot * SLOT_SIZE + 4, TOMBSTONE);
+        size--;
+    }
+
+    /**
+     * 保证数据区有足够的剩余空间，废弃空间超过一半时原地压缩，否则扩容
+     */
+    private void ensureDataCapacity(int recordSize) {
+        if ((long) writePosition + recordSize <= data.capacity()) {
+            return;
+        }
+        long liveBytes = (long) writePosition - deadBytes;
+        long required = liveBytes + recordSize;
+        long capacity = data.capacity();
+        if (deadBytes < capacity / 2 || required > capacity) {
+            capacity = Math.max(capacity << 1, required);
+        }
+        if (capacity > MAX_DATA_CAPACITY) {
+            throw new AuthException("堆外缓存分段容量不足，请增加分段数量");
+        }
+        compact((int) capacity);
+    }
+
+    /**
+     * 将有效记录复制到新的数据区，并更新索引中的偏移量
+     */
+    private void compact(int capacity) {
+        ByteBuffer target = ByteBuffer.allocateDirect(capacity);
+        ByteBuffer source = data.duplicate();
+        int position = 0;
+        for (int slot = 0; slot <= slotMask; slot++) {
+            int offset = index.getInt(slot * SLOT_SIZE + 4);
+            if (offset == EMPTY || offset == TOMBSTONE) {
+                continue;
+            }
+            int recordSize = recordSize(offset - 1);
+            source.limit(offset - 1 + recordSize).position(offset - 1);
+            target.position(position);
+            target.put(source);
+            source.limit(source.capacity());
+            index.putInt(slot * SLOT_SIZE + 4, position + 1);
+            position += recordSize;
+        }
+        this.data = target;
+        this.writePosition = position;
+        this.deadBytes = 0;
+    }
+
+    /**
+     * 重建索引，清除已删除的槽位，有效数据较多时扩容
+     */
+    private void rehash() {
+        int slots = slotMask + 1;
+        if (size > slots * LOAD_FACTOR / 2) {
+            slots <<= 1;
+        }
+        ByteBuffer oldIndex = index;
+        int oldSlots = slotMask + 1;
+        this.index = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+        this.slotMask = slots - 1;
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int position = slot * SLOT_SIZE;
+            int offset = oldIndex.getInt(position + 4);
+            if (offset == EMPTY || offset == TOMBSTONE) {
+                continue;
+            }
+            int hash = oldIndex.getInt(position);
+            int newSlot = hash & slotMask;
+            while (index.getInt(newSlot * SLOT_SIZE + 4) != EMPTY) {
+                newSlot = (newSlot + 1) & slotMask;
+            }
+            index.putInt(newSlot * SLOT_SIZE, hash);
+            index.putInt(newSlot * SLOT_SIZE + 4, offset);
+            index.putLong(newSlot * SLOT_SIZE + 8, oldIndex.getLong(position + 8));
+        }
+        this.usedSlots = size;
+    }
+
+}
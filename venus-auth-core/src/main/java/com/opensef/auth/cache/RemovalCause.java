@@ -0,0 +1,23 @@
+package com.opensef.auth.cache;
+
+/**
+ * 数据被删除的原因
+ */
+public enum RemovalCause {
+
+    /**
+     * 主动删除，例如remove、退出登录
+     */
+    EXPLICIT,
+
+    /**
+     * 已过期，读取时发现过期或由过期检查任务删除
+     */
+    EXPIRED,
+
+    /**
+     * 超出最大缓存数量被淘汰
+     */
+    EVICTED
+
+}
@@ -0,0 +1,19 @@
+package com.opensef.auth.cache;
+
+/**
+ * 数据删除监听器<br/>
+ * 在缓存的读写线程之外异步通知，监听器中可以再访问缓存；覆盖写入（put已存在的key）不通知
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+    /**
+     * 数据被删除
+     *
+     * @param key   key值
+     * @param value 被删除的value值
+     * @param cause 删除原因
+     */
+    void onRemoval(K key, V value, RemovalCause cause);
+
+}
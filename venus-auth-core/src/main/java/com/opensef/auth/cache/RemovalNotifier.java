@@ -0,0 +1,57 @@
+package com.opensef.auth.cache;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 数据删除通知，没有监听器时不产生任何开销，有监听器时提交到线程池异步通知
+ */
+class RemovalNotifier<K, V> {
+
+    private final CopyOnWriteArrayList<RemovalListener<? super K, ? super V>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Executor executor;
+
+    RemovalNotifier() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    RemovalNotifier(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 添加监听器，同一个监听器只添加一次
+     */
+    void addListener(RemovalListener<? super K, ? super V> listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    boolean removeListener(RemovalListener<? super K, ? super V> listener) {
+        return listeners.remove(listener);
+    }
+
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    void notify(Object key, Object value, RemovalCause cause) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            for (RemovalListener<? super K, ? super V> listener : listeners) {
+                try {
+                    listener.onRemoval((K) key, (V) value, cause);
+                } catch (RuntimeException e) {
+                    // 单个监听器异常不影响其他监听器，交给线程的异常处理器
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.opensef.auth.cache;
+
+import java.util.List;
+
+/**
+ * 分层时间轮<br/>
+ * 按到期时间将缓存数据放入对应层级的时间槽中，每次推进只处理已经到期的时间槽，不再全量扫描缓存数据；
+ * 高层时间槽在轮转到时逐层下放，重新分配到更低的层级。<br/>
+ * 非线程安全，调用方需要加锁
+ */
+class TimingWheel {
+
+    /**
+     * 每层时间槽数量的位数，每层64个时间槽
+     */
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * 层数，tick为1秒时可覆盖 64^4 秒（约194天），超出范围的数据放在最高层，轮转到时重新分配
+     */
+    private static final int LEVELS = 4;
+
+    /**
+     * 时间轮可覆盖的最大tick数
+     */
+    private static final long MAX_TICKS = (1L << (LEVELS * WHEEL_BITS)) - 1;
+
+    /**
+     * 每个tick的时长（毫秒）
+     */
+    private final long tickMillis;
+
+    private final Bucket[][] wheels;
+
+    /**
+     * 已处理到的tick
+     */
+    private long currentTick;
+
+    TimingWheel(long tickMillis, long now) {
+        this.tickMillis = tickMillis;
+        this.currentTick = now / tickMillis;
+        this.wheels = new Bucket[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int index = 0; index < WHEEL_SIZE; index++) {
+                this.wheels[level][index] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * 将数据放入到期时间对应的时间槽，如果数据已经在时间轮中，则先移除，时间复杂度O(1)
+     *
+     * @param cacheData 缓存数据
+     */
+    void schedule(CacheMap.CacheData cacheData) {
+        if (cacheData.bucket != null) {
+            cacheData.bucket.unlink(cacheData);
+        }
+
+        // 向上取整，保证时间槽被处理时数据已经到期
+        long deadlineTick = (cacheData.getTimeout() + tickMillis - 1) / tickMillis;
+        if (deadlineTick <= currentTick) {
+            deadlineTick = currentTick + 1;
+        }
+        long delta = deadlineTick - currentTick;
+        if (delta > MAX_TICKS) {
+            deadlineTick = currentTick + MAX_TICKS;
+            delta = MAX_TICKS;
+        }
+
+        int level = 0;
+        while (delta >= (1L << ((level + 1) * WHEEL_BITS))) {
+            level++;
+        }
+        int index = (int) ((deadlineTick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        wheels[level][index].link(cacheData);
+    }
+
+    /**
+     * 将数据从时间轮中移除，时间复杂度O(1)
+     *
+     * @param cacheData 缓存数据
+     */
+    void deschedule(CacheMap.CacheData cacheData) {
+        if (cacheData.bucket != null) {
+            cacheData.bucket.unlink(cacheData);
+        }
+    }
+
+    /**
+     * 推进时间轮到当前时间，收集已经到期的数据
+     *
+     * @param now     当前时间戳（毫秒）
+     * @param expired 已到期数据
+     */
+    void advance(long now, List<CacheMap.CacheData> expired) {
+        long targetTick = now / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // 低层转完一圈时，将高层对应时间槽中的数据下放
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (level * WHEEL_BITS)) - 1)) != 0) {
+                    break;
+                }
+                int index = (int) ((currentTick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+                drain(wheels[level][index], now, expired);
+            }
+
+            drain(wheels[0][(int) (currentTick & WHEEL_MASK)], now, expired);
+        }
+    }
+
+    /**
+     * 清空时间槽，已到期的数据放入expired，未到期的数据重新分配时间槽
+     */
+    private void drain(Bucket bucket, long now, List<CacheMap.CacheData> expired) {
+        CacheMap.CacheData cacheData = bucket.detach();
+        while (cacheData != null) {
+            CacheMap.CacheData next = cacheData.next;
+            cacheData.prev = null;
+            cacheData.next = null;
+            if (cacheData.getTimeout() <= now) {
+                expired.add(cacheData);
+            } else {
+                schedule(cacheData);
+            }
+            cacheData = next;
+        }
+    }
+
+    /**
+     * 时间槽，双向链表
+     */
+    static final class Bucket {
+
+        private CacheMap.CacheData head;
+
+        void link(CacheMap.CacheData cacheData) {
+            cacheData.bucket = this;
+            cacheData.prev = null;
+            cacheData.next = head;
+            if (head != null) {
+                head.prev = cacheData;
+            }
+            head = cacheData;
+        }
+
+        void unlink(CacheMap.CacheData cacheData) {
+            if (cacheData.prev != null) {
+                cacheData.prev.next = cacheData.next;
+            } else {
+                head = cacheData.next;
+            }
+            if (cacheData.next != null) {
+                cacheData.next.prev = cacheData.prev;
+            }
+            cacheData.prev = null;
+            cacheData.next = null;
+            cacheData.bucket = null;
+        }
+
+        /**
+         * 取出全部数据并清空时间槽
+         *
+         * @return 链表头
+         */
+        CacheMap.CacheData detach() {
+            CacheMap.CacheData first = head;
+            head = null;
+            for (CacheMap.CacheData cacheData = first; cacheData != null; cacheData = cacheData.next) {
+                cacheData.bucket = null;
+            }
+            return first;
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.opensef.auth.clock;
+
+/**
+ * 时钟<br/>
+ * 缓存过期判断、token创建时间及续期判断均从时钟获取当前时间，可替换为缓存时间的时钟降低高并发下读取系统时间的开销，
+ * 或替换为手动推进的时钟用于测试
+ */
+@FunctionalInterface
+public interface AuthClock {
+
+    /**
+     * 获取当前时间戳
+     *
+     * @return 当前时间戳（毫秒）
+     */
+    long currentTimeMillis();
+
+    /**
+     * 获取系统时钟，每次读取System.currentTimeMillis()
+     *
+     * @return 系统时钟
+     */
+    static AuthClock system() {
+        return SystemClock.INSTANCE;
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.opensef.auth.clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 缓存时间的时钟<br/>
+ * 后台守护线程按固定精度更新当前时间，读取时只读一个volatile变量。
+ * 读取到的时间最多落后一个精度，过期判断同样最多延迟一个精度
+ */
+public final class CachedClock implements AuthClock, AutoCloseable {
+
+    /**
+     * 默认精度（毫秒）
+     */
+    public static final long DEFAULT_PRECISION = 10L;
+
+    private final long precisionNanos;
+
+    private final Thread ticker;
+
+    private volatile long currentTimeMillis;
+
+    private volatile boolean running = true;
+
+    public CachedClock() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision 精度（毫秒），即后台线程更新时间的间隔
+     */
+    public CachedClock(long precision) {
+        if (precision <= 0) {
+            throw new IllegalArgumentException("precision must be positive");
+        }
+        this.precisionNanos = TimeUnit.MILLISECONDS.toNanos(precision);
+        this.currentTimeMillis = System.currentTimeMillis();
+        this.ticker = new Thread(this::tick, "venus-auth-clock");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    /**
+     * 停止后台线程，之后不再更新时间
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    private void tick() {
+        while (running) {
+            currentTimeMillis = System.currentTimeMillis();
+            LockSupport.parkNanos(this, precisionNanos);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.opensef.auth.clock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 手动推进的时钟，用于测试token和缓存的过期逻辑，不需要真正等待
+ */
+public final class ManualClock implements AuthClock {
+
+    private final AtomicLong currentTimeMillis;
+
+    public ManualClock() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * @param currentTimeMillis 初始时间戳（毫秒）
+     */
+    public ManualClock(long currentTimeMillis) {
+        this.currentTimeMillis = new AtomicLong(currentTimeMillis);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis.get();
+    }
+
+    /**
+     * 向前推进时间
+     *
+     * @param millis 推进的时长（毫秒）
+     * @return 推进后的时间戳（毫秒）
+     */
+    public long advance(long millis) {
+        return currentTimeMillis.addAndGet(millis);
+    }
+
+    /**
+     * 设置当前时间
+     *
+     * @param currentTimeMillis 时间戳（毫秒）
+     */
+    public void set(long currentTimeMillis) {
+        this.currentTimeMillis.set(currentTimeMillis);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.opensef.auth.clock;
+
+/**
+ * 系统时钟，每次读取System.currentTimeMillis()
+ */
+final class SystemClock implements AuthClock {
+
+    static final SystemClock INSTANCE = new SystemClock();
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+}
@@ -1,5 +1,10 @@
 package com.opensef.auth.config;
 
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.constant.AuthConstant;
+
+import java.util.concurrent.Executor;
+
 public class AuthConfig {
 
     /**
@@ -8,7 +13,7 @@ public class AuthConfig {
     private Long timeout;
 
     /**
-     * token风格，UUID、random32,random64、random128，默认为uuid
+     * token风格，UUID、random32,random64、random128、base64-128、base64-256、signed，默认为uuid
      * 当实现TokenHandler接口自定义实现时，此配置不生效
      */
     private TokenStyle tokenStyle;
@@ -23,6 +28,32 @@ public class AuthConfig {
      */
     private String sessionKey;
 
+    /**
+     * 时钟，为null时使用系统时钟
+     */
+    private AuthClock clock;
+
+    /**
+     * 续期阈值，剩余有效期低于有效期的此比例时才续期，默认0.5；为1时每次请求都续期
+     */
+    private double renewThreshold = AuthConstant.DEFAULT_RENEW_THRESHOLD;
+
+    /**
+     * 续期去重时间窗口（毫秒），同一token在窗口内只续期一次，默认1000
+     */
+    private long renewWindow = AuthConstant.DEFAULT_RENEW_WINDOW;
+
+    /**
+     * 同一登录唯一标识的token数量上限，超出时按登录顺序淘汰最早的token；小于等于0时不限制，默认0
+     */
+    private int maxTokens;
+
+    /**
+     * 异步角色、权限检查中调用PermissionHandler的线程池，为null时使用ForkJoinPool.commonPool()；
+     * PermissionHandler通常会查询数据库，不能在缓存客户端的I/O线程中执行
+     */
+    private Executor permissionExecutor;
+
     public Long getTimeout() {
         return timeout;
     }
@@ -55,4 +86,44 @@ public class AuthConfig {
         this.sessionKey = sessionKey;
     }
 
+    public AuthClock getClock() {
+        return clock;
+    }
+
+    public void setClock(AuthClock clock) {
+        this.clock = clock;
+    }
+
+    public double getRenewThreshold() {
+        return renewThreshold;
+    }
+
+    public void setRenewThreshold(double renewThreshold) {
+        this.renewThreshold = renewThreshold;
+    }
+
+    public long getRenewWindow() {
+        return renewWindow;
+    }
+
+    public void setRenewWindow(long renewWindow) {
+        this.renewWindow = renewWindow;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public Executor getPermissionExecutor() {
+        return permissionExecutor;
+    }
+
+    public void setPermissionExecutor(Executor permissionExecutor) {
+        this.permissionExecutor = permissionExecutor;
+    }
+
 }
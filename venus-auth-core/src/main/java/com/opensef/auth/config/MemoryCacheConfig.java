@@ -0,0 +1,129 @@
+package com.opensef.auth.config;
+
+/**
+ * 内存缓存配置
+ */
+public class MemoryCacheConfig {
+
+    /**
+     * 默认过期检查时间周期（毫秒），每1秒推进一次时间轮
+     */
+    public static final long DEFAULT_EXPIRE_CHECK_CYCLE = 1000L;
+
+    /**
+     * 不限制缓存数量
+     */
+    public static final long UNBOUNDED = -1L;
+
+    /**
+     * 默认分段数量
+     */
+    public static final int DEFAULT_SHARD_COUNT = 1;
+
+    /**
+     * 默认单个持久化日志文件大小（字节），64MB
+     */
+    public static final int DEFAULT_JOURNAL_FILE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 默认持久化日志刷盘周期（毫秒）
+     */
+    public static final long DEFAULT_FSYNC_INTERVAL = 1000L;
+
+    /**
+     * 默认快照周期（毫秒），10分钟
+     */
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 10 * 60 * 1000L;
+
+    /**
+     * 过期检查时间周期（毫秒）
+     */
+    private long expireCheckCycle = DEFAULT_EXPIRE_CHECK_CYCLE;
+
+    /**
+     * 最大缓存数量，-1为不限制；超出时按访问频率淘汰
+     */
+    private long maximumSize = UNBOUNDED;
+
+    /**
+     * 分段数量，向上取整为2的幂；每个分段独立加锁和清理过期数据，多核机器上可设置为CPU核数
+     */
+    private int shardCount = DEFAULT_SHARD_COUNT;
+
+    /**
+     * 持久化目录，为空时不持久化；设置后写操作追加到日志文件中，重启时从快照和日志恢复数据
+     */
+    private String persistenceDirectory;
+
+    /**
+     * 单个持久化日志文件大小（字节）
+     */
+    private int journalFileSize = DEFAULT_JOURNAL_FILE_SIZE;
+
+    /**
+     * 持久化日志刷盘周期（毫秒），周期内的写操作合并为一次刷盘
+     */
+    private long fsyncInterval = DEFAULT_FSYNC_INTERVAL;
+
+    /**
+     * 快照周期（毫秒），快照完成后删除更早的日志
+     */
+    private long snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+
+    public long getExpireCheckCycle() {
+        return expireCheckCycle;
+    }
+
+    public void setExpireCheckCycle(long expireCheckCycle) {
+        this.expireCheckCycle = expireCheckCycle;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public String getPersistenceDirectory() {
+        return persistenceDirectory;
+    }
+
+    public void setPersistenceDirectory(String persistenceDirectory) {
+        this.persistenceDirectory = persistenceDirectory;
+    }
+
+    public int getJournalFileSize() {
+        return journalFileSize;
+    }
+
+    public void setJournalFileSize(int journalFileSize) {
+        this.journalFileSize = journalFileSize;
+    }
+
+    public long getFsyncInterval() {
+        return fsyncInterval;
+    }
+
+    public void setFsyncInterval(long fsyncInterval) {
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.opensef.auth.config;
+
+/**
+ * 角色权限缓存配置
+ */
+public class PermissionCacheConfig {
+
+    /**
+     * 默认有效期（毫秒），1分钟
+     */
+    public static final long DEFAULT_TTL = 60 * 1000L;
+
+    /**
+     * 默认提前刷新时间（毫秒），加载45秒后访问时在后台刷新
+     */
+    public static final long DEFAULT_REFRESH_AFTER = 45 * 1000L;
+
+    /**
+     * 默认最大缓存数量（每种数据分别计算）
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+
+    /**
+     * 是否缓存PermissionHandler返回的角色和权限，默认false
+     */
+    private boolean enabled;
+
+    /**
+     * 有效期（毫秒），过期后访问时重新加载
+     */
+    private long ttl = DEFAULT_TTL;
+
+    /**
+     * 提前刷新时间（毫秒），加载后超过此时间、未过期时访问，返回当前数据并在后台刷新；小于等于0或不小于有效期时不提前刷新
+     */
+    private long refreshAfter = DEFAULT_REFRESH_AFTER;
+
+    /**
+     * 最大缓存数量，角色和权限分别计算，超出时删除最久未访问的数据；小于等于0时不限制
+     */
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    public long getRefreshAfter() {
+        return refreshAfter;
+    }
+
+    public void setRefreshAfter(long refreshAfter) {
+        this.refreshAfter = refreshAfter;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+}
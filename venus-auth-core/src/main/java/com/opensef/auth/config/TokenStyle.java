@@ -25,6 +25,21 @@ public enum TokenStyle {
     /**
      * 128位随机字符串
      */
-    RANDOM_128
+    RANDOM_128,
+
+    /**
+     * 128位随机数的base64url编码，22位字符串
+     */
+    BASE64_128,
+
+    /**
+     * 256位随机数的base64url编码，43位字符串
+     */
+    BASE64_256,
+
+    /**
+     * 签名token，包含登录唯一标识和过期时间，校验时不读取token缓存，需要使用SignedTokenHandler
+     */
+    SIGNED
 
 }
@@ -12,4 +12,19 @@ public class AuthConstant {
      */
     public static final long EXPIRED_DATA_NOT_EXIST = -2L;
 
+    /**
+     * 默认续期阈值，剩余有效期低于有效期的一半时续期
+     */
+    public static final double DEFAULT_RENEW_THRESHOLD = 0.5;
+
+    /**
+     * 默认续期去重时间窗口（毫秒）
+     */
+    public static final long DEFAULT_RENEW_WINDOW = 1000L;
+
+    /**
+     * Cache默认compute、computeIfPresent比较并设置的最大重试次数
+     */
+    public static final int MAX_COMPUTE_RETRIES = 100;
+
 }
@@ -1,11 +1,21 @@
 package com.opensef.auth.manager;
 
+import com.opensef.auth.authc.AuthRequestContext;
 import com.opensef.auth.authc.AuthToken;
 import com.opensef.auth.authc.AuthTokenValue;
+import com.opensef.auth.authc.RoutingTokenHandler;
+import com.opensef.auth.authc.SignedTokenHandler;
 import com.opensef.auth.authc.TokenAnalysisHandler;
 import com.opensef.auth.authc.TokenHandler;
 import com.opensef.auth.authz.PermissionHandler;
+import com.opensef.auth.cache.AsyncCache;
+import com.opensef.auth.cache.BlockingAsyncCache;
 import com.opensef.auth.cache.Cache;
+import com.opensef.auth.cache.CacheKey;
+import com.opensef.auth.cache.CacheStats;
+import com.opensef.auth.cache.RemovalCause;
+import com.opensef.auth.cache.RemovalListener;
+import com.opensef.auth.clock.AuthClock;
 import com.opensef.auth.config.AuthConfig;
 import com.opensef.auth.constant.AuthConstant;
 import com.opensef.auth.exception.AuthException;
@@ -14,28 +24,135 @@ import com.opensef.auth.exception.NoPermissionException;
 import com.opensef.auth.session.AuthSession;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class AuthManager {
 
     private static TokenHandler tokenHandler;
 
+    /**
+     * 签名token处理器，tokenHandler为SignedTokenHandler时不为null，此时token不保存到缓存中，校验时不读取token缓存
+     */
+    private static SignedTokenHandler signedTokenHandler;
+
+    /**
+     * 路由token处理器，tokenHandler为RoutingTokenHandler时不为null，此时token和session的缓存key包含相同的分片标签
+     */
+    private static RoutingTokenHandler routingTokenHandler;
+
     private static TokenAnalysisHandler tokenAnalysisHandler;
 
     private static PermissionHandler permissionHandler;
 
     private static Cache<Object, Object> cache;
 
+    private static AsyncCache<Object, Object> asyncCache;
+
     private static AuthConfig authConfig;
 
+    /**
+     * 异步角色、权限检查中调用PermissionHandler的线程池
+     */
+    private static Executor permissionExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * 时钟，token创建时间及续期判断使用
+     */
+    private static AuthClock clock = AuthClock.system();
+
+    /**
+     * token和session缓存key的命名空间，初始化时根据配置创建
+     */
+    private static CacheKey.Namespace tokenNamespace;
+
+    private static CacheKey.Namespace sessionNamespace;
+
+    /**
+     * 签名token吊销记录的命名空间，每个登录唯一标识一条记录
+     */
+    private static CacheKey.Namespace revokeNamespace;
+
+    /**
+     * 续期记录超过此数量时清理去重窗口外的记录
+     */
+    private static final int RENEWED_TOKENS_PRUNE_SIZE = 4096;
+
+    /**
+     * 最近续期的token及续期时间，同一token在去重窗口内只续期一次
+     */
+    private static final Map<String, Long> RENEWED_TOKENS = new ConcurrentHashMap<>();
+
+    /**
+     * 上一次清理续期记录的时间（毫秒）
+     */
+    private static final AtomicLong RENEWED_TOKENS_PRUNED_TIME = new AtomicLong();
+
+    /**
+     * token过期或被淘汰时，从session的token列表中删除，避免session中积累已失效的token
+     */
+    private static final RemovalListener<Object, Object> TOKEN_REMOVAL_LISTENER = (key, value, cause) -> {
+        if (cause != RemovalCause.EXPLICIT && value instanceof AuthTokenValue) {
+            pruneToken(key, (AuthTokenValue) value);
+        }
+    };
+
+    /**
+     * 已注册TOKEN_REMOVAL_LISTENER的缓存，重新初始化时从之前的缓存上删除，同一缓存只注册一次
+     */
+    private static Cache<Object, Object> listenedCache;
+
     public void init(TokenHandler tokenHandler, TokenAnalysisHandler tokenAnalysisHandler, PermissionHandler permissionHandler,
                      Cache<Object, Object> cache, AuthConfig authConfig) {
+        init(tokenHandler, tokenAnalysisHandler, permissionHandler, cache, null, authConfig);
+    }
+
+    /**
+     * @param asyncCache 异步缓存，为null时：cache实现了AsyncCache则直接使用，否则在ForkJoinPool中执行同步缓存的操作
+     */
+    @SuppressWarnings("unchecked")
+    public void init(TokenHandler tokenHandler, TokenAnalysisHandler tokenAnalysisHandler, PermissionHandler permissionHandler,
+                     Cache<Object, Object> cache, AsyncCache<Object, Object> asyncCache, AuthConfig authConfig) {
         AuthManager.tokenHandler = tokenHandler;
+        AuthManager.signedTokenHandler = tokenHandler instanceof SignedTokenHandler ? (SignedTokenHandler) tokenHandler : null;
+        AuthManager.routingTokenHandler = tokenHandler instanceof RoutingTokenHandler ? (RoutingTokenHandler) tokenHandler : null;
         AuthManager.tokenAnalysisHandler = tokenAnalysisHandler;
         AuthManager.permissionHandler = permissionHandler;
         AuthManager.cache = cache;
+        if (asyncCache != null) {
+            AuthManager.asyncCache = asyncCache;
+        } else if (cache instanceof AsyncCache) {
+            AuthManager.asyncCache = (AsyncCache<Object, Object>) cache;
+        } else {
+            AuthManager.asyncCache = new BlockingAsyncCache<>(cache, ForkJoinPool.commonPool());
+        }
         AuthManager.authConfig = authConfig;
+        AuthManager.permissionExecutor = authConfig.getPermissionExecutor() != null
+                ? authConfig.getPermissionExecutor() : ForkJoinPool.commonPool();
+        AuthManager.clock = authConfig.getClock() != null ? authConfig.getClock() : AuthClock.system();
+        AuthManager.tokenNamespace = new CacheKey.Namespace(authConfig.getTokenKey());
+        AuthManager.sessionNamespace = new CacheKey.Namespace(authConfig.getSessionKey());
+        AuthManager.revokeNamespace = new CacheKey.Namespace(authConfig.getTokenKey() + "-revoke");
+        RENEWED_TOKENS.clear();
+        if (listenedCache != cache) {
+            if (listenedCache != null) {
+                listenedCache.removeRemovalListener(TOKEN_REMOVAL_LISTENER);
+            }
+            listenedCache = cache.addRemovalListener(TOKEN_REMOVAL_LISTENER) ? cache : null;
+        }
     }
 
     /**
@@ -57,7 +174,7 @@ public class AuthManager {
      * @return token信息
      */
     public AuthToken login(String loginId, Map<String, Object> addInfo, Long timeout) {
-        long createdTime = System.currentTimeMillis();
+        long createdTime = clock.currentTimeMillis();
         // 过期时间（毫秒）
         long timeoutMillis;
         if (null == timeout) {
@@ -67,30 +184,265 @@ public class AuthManager {
         }
 
         // 创建token
-        String token = tokenHandler.createToken();
+        String token = createToken(loginId, createdTime, timeoutMillis);
+
+        AtomicReference<List<String>> evicted = new AtomicReference<>(Collections.emptyList());
+        long expireTime = deadline(createdTime, timeoutMillis);
+        BiFunction<Object, Object, Object> attach = (key, session) -> attachToken((AuthSession) session, loginId, token, createdTime, evicted);
+        if (signedTokenHandler != null) {
+            // 签名token不保存到缓存中，只更新session
+            computeSession(sessionKey(loginId), attach, expireTime);
+        } else {
+            // 保存token，并根据loginId原子地更新session，不存在则创建，同一用户并发登录时不会丢失token
+            try {
+                cache.putAndCompute(tokenKey(token), new AuthTokenValue(loginId, timeout, createdTime, createdTime + timeoutMillis, addInfo),
+                        sessionKey(loginId), withExpireTime(attach, expireTime), timeoutMillis);
+            } catch (LaterSessionExpireTime e) {
+                // session中已有更晚过期的token，token已保存，按更晚的过期时间更新session
+                computeSession(sessionKey(loginId), attach, e.expireTime);
+            }
+        }
+
+        // 删除超出数量上限被淘汰的token
+        if (!evicted.get().isEmpty()) {
+            removeTokens(loginId, evicted.get());
+        }
+
+        return new AuthToken(token, createdTime, addInfo);
+    }
+
+    /**
+     * 异步登录
+     *
+     * @param loginId 登录唯一标识
+     * @return token信息
+     */
+    public CompletableFuture<AuthToken> loginAsync(String loginId) {
+        return loginAsync(loginId, null, null);
+    }
 
-        // 保存token
-        cache.put(genTokenKey(token), new AuthTokenValue(loginId, timeout, createdTime, createdTime + timeoutMillis, addInfo), timeoutMillis);
+    /**
+     * 异步登录，读取session和保存token、session均不阻塞调用线程
+     *
+     * @param loginId 登录唯一标识
+     * @param addInfo 附加信息，可将此信息存储到token缓存中
+     * @param timeout token有效期（秒）
+     * @return token信息
+     */
+    public CompletableFuture<AuthToken> loginAsync(String loginId, Map<String, Object> addInfo, Long timeout) {
+        long createdTime = clock.currentTimeMillis();
+        // 过期时间（毫秒）
+        long timeoutMillis = expireTime(null == timeout ? authConfig.getTimeout() : timeout);
 
-        AuthToken authToken = new AuthToken(token, createdTime, addInfo);
+        // 创建token
+        String token = createToken(loginId, createdTime, timeoutMillis);
+
+        // 保存token和更新session同时进行，之后删除超出数量上限被淘汰的token；签名token不保存到缓存中
+        AtomicReference<List<String>> evicted = new AtomicReference<>(Collections.emptyList());
+        CompletableFuture<Void> saveToken = signedTokenHandler != null ? CompletableFuture.completedFuture(null)
+                : asyncCache.putAsync(tokenKey(token),
+                new AuthTokenValue(loginId, timeout, createdTime, createdTime + timeoutMillis, addInfo), timeoutMillis);
+        CompletableFuture<Object> saveSession = computeSessionAsync(sessionKey(loginId),
+                (key, session) -> attachToken((AuthSession) session, loginId, token, createdTime, evicted),
+                deadline(createdTime, timeoutMillis))
+                .thenCompose(session -> evicted.get().isEmpty() ? CompletableFuture.completedFuture(session)
+                        : removeTokensAsync(loginId, evicted.get()).thenApply(ignored -> session));
+        return CompletableFuture.allOf(saveToken, saveSession).thenApply(ignored -> new AuthToken(token, createdTime, addInfo));
+    }
 
-        // 根据loginId获取session，如果存在则更新，不存在则创建
-        AuthSession authSession = getSession(loginId);
+    /**
+     * 复制session并添加token，session不存在时创建，不修改传入的session<br/>
+     * token数量超过上限时淘汰最早的token，计算函数可能被执行多次，被淘汰的token以最后一次为准
+     *
+     * @param authSession session信息，可以为null
+     * @param loginId     登录唯一标识
+     * @param token       token
+     * @param createdTime 创建时间
+     * @param evicted     被淘汰的token
+     * @return 新的session信息
+     */
+    private AuthSession attachToken(AuthSession authSession, String loginId, String token, long createdTime,
+                                    AtomicReference<List<String>> evicted) {
         if (null == authSession) {
-            authSession = new AuthSession();
-            authSession.setSessionId(genSessionKey(loginId));
-            authSession.setCreatedTime(createdTime);
+            AuthSession newSession = new AuthSession();
+            newSession.setSessionId(sessionKeyString(loginId));
+            newSession.setCreatedTime(createdTime);
+            newSession.addToken(token);
+            return newSession;
+        }
+        AuthSession newSession = copySession(authSession);
+        newSession.addToken(token);
+        if (authConfig.getMaxTokens() > 0) {
+            evicted.set(newSession.evictOldestTokens(authConfig.getMaxTokens()));
+        }
+        return newSession;
+    }
 
-            ArrayList<String> tokenList = new ArrayList<>();
-            tokenList.add(token);
-            authSession.setTokenList(tokenList);
-        } else {
-            authSession.getTokenList().add(token);
+    /**
+     * 复制session并删除token，删除后没有token时返回null；session中没有该token时返回原session
+     *
+     * @param authSession session信息
+     * @param token       token
+     * @return 新的session信息，没有token时返回null
+     */
+    private static AuthSession detachToken(AuthSession authSession, String token) {
+        if (!authSession.containsToken(token)) {
+            return authSession;
+        }
+        AuthSession newSession = copySession(authSession);
+        newSession.removeToken(token);
+        return newSession.tokenCount() == 0 ? null : newSession;
+    }
+
+    /**
+     * 复制session并递增修订号，token列表同时复制，缓存中的session不被修改
+     *
+     * @param authSession session信息
+     * @return 新的session信息
+     */
+    private static AuthSession copySession(AuthSession authSession) {
+        AuthSession newSession = new AuthSession();
+        newSession.setSessionId(authSession.getSessionId());
+        newSession.setCreatedTime(authSession.getCreatedTime());
+        newSession.setRevision(authSession.getRevision() + 1);
+        newSession.setExpireTime(authSession.getExpireTime());
+        newSession.setData(authSession.getData());
+        newSession.setTokens(authSession.getTokens() == null ? Collections.emptySet() : authSession.getTokens());
+        return newSession;
+    }
+
+    /**
+     * 计算session并按过期时间写入，session的有效期为其中token的最晚过期时间，不会因为新token的有效期较短而缩短
+     *
+     * @param sessionKey session的缓存key
+     * @param remapping  根据当前session计算新的session，必须返回复制出的新对象
+     * @param expireTime 新token的过期时间（毫秒），-1表示永不过期
+     * @return 新的session信息
+     */
+    private static Object computeSession(Object sessionKey, BiFunction<Object, Object, Object> remapping, long expireTime) {
+        while (true) {
+            try {
+                return cache.compute(sessionKey, withExpireTime(remapping, expireTime), sessionTimeout(expireTime));
+            } catch (LaterSessionExpireTime e) {
+                expireTime = e.expireTime;
+            }
+        }
+    }
+
+    /**
+     * 异步计算session并按过期时间写入，同computeSession；在调用线程完成计算的缓存（例如MemoryCache）直接抛出异常
+     */
+    private static CompletableFuture<Object> computeSessionAsync(Object sessionKey, BiFunction<Object, Object, Object> remapping,
+                                                                 long expireTime) {
+        CompletableFuture<Object> future;
+        try {
+            future = asyncCache.computeAsync(sessionKey, withExpireTime(remapping, expireTime), sessionTimeout(expireTime));
+        } catch (LaterSessionExpireTime e) {
+            return computeSessionAsync(sessionKey, remapping, e.expireTime);
+        }
+        return future
+                .handle((session, e) -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof LaterSessionExpireTime) {
+                        return computeSessionAsync(sessionKey, remapping, ((LaterSessionExpireTime) cause).expireTime);
+                    }
+                    return e == null ? CompletableFuture.completedFuture(session) : CompletableFuture.<Object>failedFuture(cause);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * 计算出的session记录最晚过期时间；当前session中已有更晚过期的token时抛出LaterSessionExpireTime，不写入，
+     * 由调用方按更晚的过期时间重新计算，保证写入session时使用的有效期与其中token的最晚过期时间一致
+     */
+    private static BiFunction<Object, Object, Object> withExpireTime(BiFunction<Object, Object, Object> remapping, long expireTime) {
+        return (key, session) -> {
+            if (session != null && isLater(((AuthSession) session).getExpireTime(), expireTime)) {
+                throw new LaterSessionExpireTime(((AuthSession) session).getExpireTime());
+            }
+            AuthSession newSession = (AuthSession) remapping.apply(key, session);
+            if (newSession != null && newSession != session) {
+                newSession.setExpireTime(expireTime);
+            }
+            return newSession;
+        };
+    }
+
+    /**
+     * 续期后延长session的有效期，session中已有更晚过期的token时不写入
+     *
+     * @param loginId    登录唯一标识
+     * @param expireTime 续期后token的过期时间（毫秒）
+     */
+    private void extendSession(String loginId, long expireTime) {
+        try {
+            cache.compute(sessionKey(loginId), withExpireTime((key, session) -> session == null ? null : copySession((AuthSession) session),
+                    expireTime), sessionTimeout(expireTime));
+        } catch (LaterSessionExpireTime e) {
+            // session的有效期已覆盖续期后的token
+        }
+    }
+
+    /**
+     * 过期时间a是否晚于b，-1表示永不过期，0表示未知
+     */
+    private static boolean isLater(long a, long b) {
+        return b != AuthConstant.NEVER_EXPIRE && (a == AuthConstant.NEVER_EXPIRE || a > b);
+    }
+
+    /**
+     * 根据创建时间和有效期计算过期时间，永不过期返回-1
+     */
+    private static long deadline(long createdTime, long timeoutMillis) {
+        return timeoutMillis == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : createdTime + timeoutMillis;
+    }
+
+    /**
+     * 根据过期时间计算写入session时的有效期（毫秒）
+     */
+    private static long sessionTimeout(long expireTime) {
+        return expireTime == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : Math.max(1, expireTime - clock.currentTimeMillis());
+    }
+
+    /**
+     * session中已有更晚过期的token，需要按此过期时间重新写入session；只用于流程控制，不记录调用栈
+     */
+    private static final class LaterSessionExpireTime extends RuntimeException {
+
+        private final long expireTime;
+
+        private LaterSessionExpireTime(long expireTime) {
+            super(null, null, false, false);
+            this.expireTime = expireTime;
         }
 
-        cache.put(authSession.getSessionId(), authSession, timeoutMillis);
+    }
 
-        return authToken;
+    /**
+     * 从session中删除已过期或被淘汰的token
+     *
+     * @param key        token的缓存key
+     * @param tokenValue token值信息
+     */
+    private static void pruneToken(Object key, AuthTokenValue tokenValue) {
+        String token;
+        if (key instanceof CacheKey) {
+            CacheKey cacheKey = (CacheKey) key;
+            token = tokenNamespace.equals(cacheKey.getNamespace()) ? cacheKey.getId() : null;
+        } else {
+            String text = String.valueOf(key);
+            String prefix = authConfig.getTokenKey() + ":";
+            token = text.startsWith(prefix) ? text.substring(prefix.length()) : null;
+        }
+        if (token == null || tokenValue.getLoginId() == null) {
+            return;
+        }
+        if (routingTokenHandler != null && token.startsWith("{")) {
+            token = token.substring(token.indexOf('}') + 1);
+        }
+        String detached = token;
+        cache.computeIfPresent(cache.resolveKey(sessionNamespace.key(sessionId(tokenValue.getLoginId()))),
+                (sessionKey, session) -> detachToken((AuthSession) session, detached));
     }
 
     /**
@@ -98,7 +450,7 @@ public class AuthManager {
      * 自动从Header或URL中获取token值
      */
     public void logout() {
-        logoutByToken(tokenAnalysisHandler.getToken());
+        logoutByToken(currentToken());
     }
 
     /**
@@ -107,20 +459,62 @@ public class AuthManager {
      * @param loginId 登录唯一标识
      */
     public void logout(String loginId) {
-        AuthSession authSession = getSession(loginId);
+        // 先原子地删除session，之后并发登录创建的是新的session，不会被误删
+        AuthSession authSession = (AuthSession) cache.remove(sessionKey(loginId));
+        invalidateRequestContext();
+        if (signedTokenHandler != null) {
+            // 签名token不在缓存中，吊销当前时间之前签发的全部token，session已过期时同样需要吊销
+            revoke(loginId, parseSignedTokens(authSession), true);
+            return;
+        }
         if (authSession == null) {
             return;
         }
 
-        // 删除session
-        cache.remove(genSessionKey(authSession.getSessionId()));
+        // 删除全部token
+        cache.removeAll(tokenKeys(authSession));
+    }
 
-        if (authSession.getTokenList() != null && !authSession.getTokenList().isEmpty()) {
-            // 删除token
-            for (String token : authSession.getTokenList()) {
-                cache.remove(genTokenKey(token));
+    /**
+     * 根据登录唯一标识异步退出登录，该登录唯一标识对应的全部token均退出
+     *
+     * @param loginId 登录唯一标识
+     */
+    public CompletableFuture<Void> logoutAsync(String loginId) {
+        invalidateRequestContext();
+        return asyncCache.removeAsync(sessionKey(loginId)).thenCompose(authSession -> {
+            if (signedTokenHandler != null) {
+                return revokeAsync(loginId, parseSignedTokens((AuthSession) authSession), true);
             }
+            if (authSession == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return asyncCache.removeAllAsync(tokenKeys((AuthSession) authSession));
+        });
+    }
+
+    /**
+     * session中全部token的key
+     *
+     * @param authSession session信息
+     * @return key集合
+     */
+    private List<Object> tokenKeys(AuthSession authSession) {
+        return authSession.getTokens() == null ? new ArrayList<>() : tokenKeys(authSession.getTokens());
+    }
+
+    /**
+     * token的key
+     *
+     * @param tokens token集合
+     * @return key集合
+     */
+    private List<Object> tokenKeys(Collection<String> tokens) {
+        List<Object> keys = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            keys.add(tokenKey(token));
         }
+        return keys;
     }
 
     /**
@@ -129,28 +523,26 @@ public class AuthManager {
      * @param token token
      */
     public void logoutByToken(String token) {
-        AuthTokenValue tokenValue = getTokenValue(token);
-        if (null == tokenValue) {
-            return;
-        }
-
-        // 删除token
-        cache.remove(genTokenKey(token));
-
-        // 获取session
-        AuthSession authSession = getSession(tokenValue.getLoginId());
-        if (authSession == null) {
-            return;
-        }
-
-        // 判断session是否存在多个token，如果存在多个，删除token列表中对应的值，更新session；如果只有一个token，则删除session
-        if ((authSession.getTokenList() == null || authSession.getTokenList().isEmpty()) || authSession.getTokenList().size() == 1) {
-            cache.remove(authSession.getSessionId());
+        AuthTokenValue tokenValue;
+        if (signedTokenHandler != null) {
+            // 签名token记录到吊销记录中
+            tokenValue = getTokenValue(token);
+            if (null == tokenValue) {
+                return;
+            }
+            revoke(tokenValue.getLoginId(), Collections.singletonList(new RevokedToken(signedTokenHandler.getNonce(token),
+                    tokenValue.getCreatedTime(), tokenValue.getExpireTime())), false);
         } else {
-            authSession.getTokenList().remove(token);
-            long expire = cache.getExpire(authSession.getSessionId());
-            cache.put(authSession.getSessionId(), authSession, expire);
+            // 删除token，删除时返回的token值信息用于定位session，不需要先读取
+            tokenValue = (AuthTokenValue) cache.remove(tokenKey(token));
+            if (null == tokenValue) {
+                return;
+            }
         }
+        invalidateRequestContext();
+
+        // 原子地从session中删除token，保持session剩余过期时间不变；删除后没有token时删除session
+        cache.computeIfPresent(sessionKey(tokenValue.getLoginId()), (key, session) -> detachToken((AuthSession) session, token));
     }
 
     /**
@@ -159,7 +551,7 @@ public class AuthManager {
      * @return token值
      */
     public String getToken() {
-        return tokenAnalysisHandler.getToken();
+        return currentToken();
     }
 
     /**
@@ -168,7 +560,7 @@ public class AuthManager {
      * @return token值信息
      */
     public AuthTokenValue getTokenValue() {
-        return (AuthTokenValue) cache.get(genTokenKey(tokenAnalysisHandler.getToken()));
+        return currentTokenValue();
     }
 
     /**
@@ -178,7 +570,23 @@ public class AuthManager {
      * @return token值信息
      */
     public AuthTokenValue getTokenValue(String token) {
-        return (AuthTokenValue) cache.get(genTokenKey(token));
+        if (signedTokenHandler != null) {
+            return verifySignedToken(token);
+        }
+        return (AuthTokenValue) cache.get(tokenKey(token));
+    }
+
+    /**
+     * 异步获取token值信息
+     *
+     * @param token token
+     * @return token值信息
+     */
+    public CompletableFuture<AuthTokenValue> getTokenValueAsync(String token) {
+        if (signedTokenHandler != null) {
+            return verifySignedTokenAsync(token);
+        }
+        return asyncCache.getAsync(tokenKey(token)).thenApply(value -> (AuthTokenValue) value);
     }
 
     /**
@@ -189,7 +597,17 @@ public class AuthManager {
      * @return token过期时间（毫秒）
      */
     public Long getTokenExpire(String token) {
-        return cache.getExpire(genTokenKey(token));
+        if (signedTokenHandler != null) {
+            AuthTokenValue tokenValue = verifySignedToken(token);
+            if (null == tokenValue) {
+                return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+            }
+            if (tokenValue.getExpireTime() == AuthConstant.NEVER_EXPIRE) {
+                return AuthConstant.NEVER_EXPIRE;
+            }
+            return tokenValue.getExpireTime() - clock.currentTimeMillis();
+        }
+        return cache.getExpire(tokenKey(token));
     }
 
     /**
@@ -199,7 +617,17 @@ public class AuthManager {
      * @return session信息
      */
     public AuthSession getSession(String loginId) {
-        return (AuthSession) cache.get(genSessionKey(loginId));
+        return (AuthSession) cache.get(sessionKey(loginId));
+    }
+
+    /**
+     * 异步获取session信息
+     *
+     * @param loginId 登录唯一标识
+     * @return session信息
+     */
+    public CompletableFuture<AuthSession> getSessionAsync(String loginId) {
+        return asyncCache.getAsync(sessionKey(loginId)).thenApply(value -> (AuthSession) value);
     }
 
     /**
@@ -212,7 +640,22 @@ public class AuthManager {
         if (token == null) {
             throw new AuthException("token不能为空");
         }
-        AuthTokenValue authTokenValue = (AuthTokenValue) cache.get(genTokenKey(token));
+        // 路由token中包含session的路由标识，token和session在一次批量读取中获取
+        String routingId = routingTokenHandler != null ? routingTokenHandler.getRoutingId(token) : null;
+        if (routingId != null) {
+            Object tokenKey = tokenKey(token);
+            Object sessionKey = cache.resolveKey(sessionNamespace.key(RoutingTokenHandler.shardTag(routingId) + routingId));
+            Map<Object, Object> values = cache.getAll(Arrays.asList(tokenKey, sessionKey));
+            AuthTokenValue authTokenValue = (AuthTokenValue) values.get(tokenKey);
+            if (null == authTokenValue) {
+                return null;
+            }
+            if (routingId.equals(routingTokenHandler.routingId(authTokenValue.getLoginId()))) {
+                return (AuthSession) values.get(sessionKey);
+            }
+            return getSession(authTokenValue.getLoginId());
+        }
+        AuthTokenValue authTokenValue = getTokenValue(token);
         if (null != authTokenValue) {
             return getSession(String.valueOf(authTokenValue.getLoginId()));
         } else {
@@ -226,15 +669,16 @@ public class AuthManager {
      * @param data 数据
      */
     public void setSessionData(String loginId, Object data) {
-        AuthSession authSession = getSession(loginId);
-        if (null == authSession) {
-            return;
+        // 原子地替换session数据，保持session剩余过期时间不变
+        cache.computeIfPresent(sessionKey(loginId), (key, session) -> {
+            AuthSession newSession = copySession((AuthSession) session);
+            newSession.setData(data);
+            return newSession;
+        });
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context != null) {
+            context.invalidateSession();
         }
-
-        Long expire = cache.getExpire(authSession.getSessionId());
-
-        authSession.setData(data);
-        cache.put(authSession.getSessionId(), authSession, expire);
     }
 
     /**
@@ -244,15 +688,14 @@ public class AuthManager {
      * @param data  数据
      */
     public <T> void setSessionDataByToken(String token, T data) {
-        AuthSession authSession = getSessionByToken(token);
-        if (null == authSession) {
+        if (token == null) {
+            throw new AuthException("token不能为空");
+        }
+        AuthTokenValue authTokenValue = getTokenValue(token);
+        if (null == authTokenValue) {
             return;
         }
-
-        Long expire = cache.getExpire(authSession.getSessionId());
-
-        authSession.setData(data);
-        cache.put(authSession.getSessionId(), authSession, expire);
+        setSessionData(String.valueOf(authTokenValue.getLoginId()), data);
     }
 
     /**
@@ -260,7 +703,7 @@ public class AuthManager {
      */
     @SuppressWarnings("unchecked")
     public <T> T getSessionData() {
-        AuthSession authSession = getSessionByToken(tokenAnalysisHandler.getToken());
+        AuthSession authSession = currentSession();
         if (null == authSession) {
             return null;
         }
@@ -276,25 +719,97 @@ public class AuthManager {
      * @param timeout 过期时间（毫秒）
      */
     public void updateTokenAndSessionTimeout(String token, String loginId, long timeout) {
-        cache.expire(genTokenKey(token), timeout);
-        cache.expire(genSessionKey(loginId), timeout);
+        cache.expireAll(Arrays.asList(tokenKey(token), sessionKey(loginId)), timeout);
     }
 
     /**
-     * 更新token和session的过期时间
+     * 异步更新token和session的过期时间
+     *
+     * @param token   token
+     * @param loginId 登录唯一标识
+     * @param timeout 过期时间（毫秒）
+     */
+    public CompletableFuture<Void> updateTokenAndSessionTimeoutAsync(String token, String loginId, long timeout) {
+        return asyncCache.expireAllAsync(Arrays.asList(tokenKey(token), sessionKey(loginId)), timeout);
+    }
+
+    /**
+     * 更新token和session的过期时间<br/>
+     * 剩余有效期低于有效期的renewThreshold比例时才续期，新的过期时间记录在token值信息中；
+     * 同一token在renewWindow内只续期一次，避免每次请求都写缓存
      */
     public void updateTokenAndSessionTimeout() {
-        if (authConfig.getTimeout() == -1) {
+        // 签名token的过期时间写在token中，不能续期
+        if (authConfig.getTimeout() == AuthConstant.NEVER_EXPIRE || signedTokenHandler != null) {
+            return;
+        }
+        String token = currentToken();
+        AuthTokenValue tokenValue = currentTokenValue();
+        if (null == tokenValue) {
             return;
         }
-        String token = tokenAnalysisHandler.getToken();
-        AuthTokenValue tokenValue = getTokenValue(token);
 
-        // 如果当前时间距离 Token 过期时间大于5分钟，则不执行更新（减轻缓存压力，提高性能）
-        if (System.currentTimeMillis() - tokenValue.getExpireTime() > 30000) {
+        long timeoutMillis = expireTime(null == tokenValue.getTimeout() ? authConfig.getTimeout() : tokenValue.getTimeout());
+        if (timeoutMillis == AuthConstant.NEVER_EXPIRE) {
+            return;
+        }
+        long now = clock.currentTimeMillis();
+        // 剩余有效期充足时不续期（减轻缓存压力，提高性能）
+        if (tokenValue.getExpireTime() != null
+                && tokenValue.getExpireTime() - now >= timeoutMillis * authConfig.getRenewThreshold()) {
+            return;
+        }
+        if (!claimRenewal(token, now)) {
             return;
         }
-        updateTokenAndSessionTimeout(token, tokenValue.getLoginId(), expireTime(tokenValue.getTimeout()));
+
+        // 基于缓存中的当前值计算，远程缓存按读取到的字节比较并设置，不要求value重新序列化后字节一致；
+        // token已退出登录时不写入，已被其他请求续期时保持原值
+        long expireTime = now + timeoutMillis;
+        Object value = cache.compute(tokenKey(token), (key, current) -> {
+            if (current == null) {
+                return null;
+            }
+            AuthTokenValue currentValue = (AuthTokenValue) current;
+            if (!Objects.equals(currentValue.getExpireTime(), tokenValue.getExpireTime())) {
+                return currentValue;
+            }
+            return new AuthTokenValue(currentValue.getLoginId(), currentValue.getTimeout(),
+                    currentValue.getCreatedTime(), expireTime, currentValue.getAddInfo());
+        }, timeoutMillis);
+        if (value instanceof AuthTokenValue && Objects.equals(((AuthTokenValue) value).getExpireTime(), expireTime)) {
+            AuthTokenValue newValue = (AuthTokenValue) value;
+            extendSession(newValue.getLoginId(), expireTime);
+            AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+            if (context != null) {
+                context.setTokenValue(newValue);
+            }
+        }
+    }
+
+    /**
+     * 获取token的续期权，去重窗口内已续期过的token返回false
+     *
+     * @param token token
+     * @param now   当前时间（毫秒）
+     * @return true:可以续期
+     */
+    private static boolean claimRenewal(String token, long now) {
+        long window = authConfig.getRenewWindow();
+        if (window <= 0) {
+            return true;
+        }
+        // 超过数量时每个去重窗口最多清理一次，避免每次续期都遍历
+        long prunedTime = RENEWED_TOKENS_PRUNED_TIME.get();
+        if (RENEWED_TOKENS.size() > RENEWED_TOKENS_PRUNE_SIZE && now - prunedTime >= window
+                && RENEWED_TOKENS_PRUNED_TIME.compareAndSet(prunedTime, now)) {
+            RENEWED_TOKENS.values().removeIf(renewedTime -> now - renewedTime >= window);
+        }
+        Long renewedTime = RENEWED_TOKENS.get(token);
+        if (renewedTime == null) {
+            return RENEWED_TOKENS.putIfAbsent(token, now) == null;
+        }
+        return now - renewedTime >= window && RENEWED_TOKENS.replace(token, renewedTime, now);
     }
 
     /**
@@ -304,6 +819,10 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isLogin() {
+        if (tokenAnalysisHandler.getRequestContext() != null) {
+            // 读取的token值信息在请求内复用，之后的续期及角色权限检查不再读取缓存
+            return currentTokenValue() != null;
+        }
         return isLoginByToken(tokenAnalysisHandler.getToken());
     }
 
@@ -314,7 +833,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isLogin(String loginId) {
-        return cache.isUnExpired(genSessionKey(loginId));
+        return cache.isUnExpired(sessionKey(loginId));
     }
 
     /**
@@ -324,7 +843,33 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isLoginByToken(String token) {
-        return cache.isUnExpired(genTokenKey(token));
+        if (signedTokenHandler != null) {
+            return verifySignedToken(token) != null;
+        }
+        return cache.isUnExpired(tokenKey(token));
+    }
+
+    /**
+     * 异步判断是否通过认证<br/>
+     * 在调用线程中从Header或URL中获取token值，根据token做判断
+     *
+     * @return true/false
+     */
+    public CompletableFuture<Boolean> isLoginAsync() {
+        return isLoginByTokenAsync(currentToken());
+    }
+
+    /**
+     * 异步判断是否通过认证
+     *
+     * @param token token
+     * @return true/false
+     */
+    public CompletableFuture<Boolean> isLoginByTokenAsync(String token) {
+        if (signedTokenHandler != null) {
+            return verifySignedTokenAsync(token).thenApply(Objects::nonNull);
+        }
+        return asyncCache.isUnExpiredAsync(tokenKey(token));
     }
 
     /**
@@ -334,8 +879,8 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasRole(String role) {
-        AuthTokenValue tokenValue = getTokenValue();
-        return isHasRole(tokenValue.getLoginId(), role);
+        List<String> roles = currentRoles();
+        return roles != null && roles.contains(role);
     }
 
     /**
@@ -357,8 +902,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasRoleAnd(List<String> roles) {
-        AuthTokenValue tokenValue = getTokenValue();
-        return isHasRoleAnd(tokenValue.getLoginId(), roles);
+        return containsAll(currentRoles(), roles);
     }
 
     /**
@@ -369,16 +913,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasRoleAnd(String loginId, List<String> roles) {
-        List<String> ownedRoles = permissionHandler.getRoles(loginId);
-        if (ownedRoles == null) {
-            return false;
-        }
-        for (String role : roles) {
-            if (!ownedRoles.contains(role)) {
-                return false;
-            }
-        }
-        return true;
+        return containsAll(permissionHandler.getRoles(loginId), roles);
     }
 
     /**
@@ -388,8 +923,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasRoleOr(List<String> roles) {
-        AuthTokenValue tokenValue = getTokenValue();
-        return isHasRoleOr(tokenValue.getLoginId(), roles);
+        return containsAny(currentRoles(), roles);
     }
 
     /**
@@ -400,16 +934,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasRoleOr(String loginId, List<String> roles) {
-        List<String> ownedRoles = permissionHandler.getRoles(loginId);
-        if (ownedRoles == null) {
-            return false;
-        }
-        for (String role : roles) {
-            if (ownedRoles.contains(role)) {
-                return true;
-            }
-        }
-        return false;
+        return containsAny(permissionHandler.getRoles(loginId), roles);
     }
 
     /**
@@ -419,8 +944,8 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasPermission(String permission) {
-        AuthTokenValue tokenValue = getTokenValue();
-        return isHasPermission(tokenValue.getLoginId(), permission);
+        List<String> permissions = currentPermissions();
+        return permissions != null && permissions.contains(permission);
     }
 
     /**
@@ -442,8 +967,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasPermissionAnd(List<String> permissions) {
-        AuthTokenValue tokenValue = getTokenValue();
-        return isHasPermissionAnd(tokenValue.getLoginId(), permissions);
+        return containsAll(currentPermissions(), permissions);
     }
 
     /**
@@ -454,16 +978,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasPermissionAnd(String loginId, List<String> permissions) {
-        List<String> ownedPermissions = permissionHandler.getPermissions(loginId);
-        if (ownedPermissions == null) {
-            return false;
-        }
-        for (String permission : permissions) {
-            if (!ownedPermissions.contains(permission)) {
-                return false;
-            }
-        }
-        return true;
+        return containsAll(permissionHandler.getPermissions(loginId), permissions);
     }
 
     /**
@@ -473,8 +988,7 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasPermissionOr(List<String> permissions) {
-        AuthTokenValue tokenValue = getTokenValue();
-        return isHasPermissionOr(tokenValue.getLoginId(), permissions);
+        return containsAny(currentPermissions(), permissions);
     }
 
     /**
@@ -485,12 +999,41 @@ public class AuthManager {
      * @return true/false
      */
     public boolean isHasPermissionOr(String loginId, List<String> permissions) {
-        List<String> ownedPermissions = permissionHandler.getPermissions(loginId);
-        if (ownedPermissions == null) {
+        return containsAny(permissionHandler.getPermissions(loginId), permissions);
+    }
+
+    /**
+     * 是否包含全部输入的值
+     *
+     * @param owned    拥有的角色或权限
+     * @param required 输入的角色或权限
+     * @return true/false
+     */
+    private static boolean containsAll(List<String> owned, List<String> required) {
+        if (owned == null) {
             return false;
         }
-        for (String permission : permissions) {
-            if (ownedPermissions.contains(permission)) {
+        for (String value : required) {
+            if (!owned.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含输入的值中的其中一个
+     *
+     * @param owned    拥有的角色或权限
+     * @param required 输入的角色或权限
+     * @return true/false
+     */
+    private static boolean containsAny(List<String> owned, List<String> required) {
+        if (owned == null) {
+            return false;
+        }
+        for (String value : required) {
+            if (owned.contains(value)) {
                 return true;
             }
         }
@@ -502,7 +1045,9 @@ public class AuthManager {
      * 自动从Header或URL中获取token值，根据token做判断
      */
     public void checkLogin() {
-        checkLoginByToken(tokenAnalysisHandler.getToken());
+        if (!isLogin()) {
+            throw new NoAuthenticationException("认证失败");
+        }
     }
 
     /**
@@ -527,6 +1072,27 @@ public class AuthManager {
         }
     }
 
+    /**
+     * 异步登录检查，检查不通过时future以NoAuthenticationException异常结束<br/>
+     * 在调用线程中从Header或URL中获取token值，根据token做判断
+     */
+    public CompletableFuture<Void> checkLoginAsync() {
+        return checkLoginByTokenAsync(currentToken());
+    }
+
+    /**
+     * 异步登录检查，检查不通过时future以NoAuthenticationException异常结束
+     *
+     * @param token token
+     */
+    public CompletableFuture<Void> checkLoginByTokenAsync(String token) {
+        return isLoginByTokenAsync(token).thenAccept(login -> {
+            if (!login) {
+                throw new NoAuthenticationException("认证失败");
+            }
+        });
+    }
+
     /**
      * 角色检查，检查不通过抛出异常
      *
@@ -538,6 +1104,34 @@ public class AuthManager {
         }
     }
 
+    /**
+     * 异步角色检查，未登录时future以NoAuthenticationException异常结束，检查不通过时以NoPermissionException异常结束<br/>
+     * 在调用线程中从Header或URL中获取token值，PermissionHandler在配置的permissionExecutor中调用
+     *
+     * @param role 角色
+     */
+    public CompletableFuture<Void> checkRoleAsync(String role) {
+        return checkRoleAsync(role, permissionExecutor);
+    }
+
+    /**
+     * 异步角色检查，未登录时future以NoAuthenticationException异常结束，检查不通过时以NoPermissionException异常结束<br/>
+     * 在调用线程中从Header或URL中获取token值
+     *
+     * @param role     角色
+     * @param executor 调用PermissionHandler的线程池
+     */
+    public CompletableFuture<Void> checkRoleAsync(String role, Executor executor) {
+        return getTokenValueAsync(currentToken()).thenAcceptAsync(tokenValue -> {
+            if (null == tokenValue) {
+                throw new NoAuthenticationException("认证失败");
+            }
+            if (!isHasRole(tokenValue.getLoginId(), role)) {
+                throw new NoPermissionException("权限不足");
+            }
+        }, executor);
+    }
+
     /**
      * 角色检查，是否有输入的全部角色，检查不通过抛出异常
      *
@@ -571,6 +1165,34 @@ public class AuthManager {
         }
     }
 
+    /**
+     * 异步权限检查，未登录时future以NoAuthenticationException异常结束，检查不通过时以NoPermissionException异常结束<br/>
+     * 在调用线程中从Header或URL中获取token值，PermissionHandler在配置的permissionExecutor中调用
+     *
+     * @param permission 权限
+     */
+    public CompletableFuture<Void> checkPermissionAsync(String permission) {
+        return checkPermissionAsync(permission, permissionExecutor);
+    }
+
+    /**
+     * 异步权限检查，未登录时future以NoAuthenticationException异常结束，检查不通过时以NoPermissionException异常结束<br/>
+     * 在调用线程中从Header或URL中获取token值
+     *
+     * @param permission 权限
+     * @param executor   调用PermissionHandler的线程池
+     */
+    public CompletableFuture<Void> checkPermissionAsync(String permission, Executor executor) {
+        return getTokenValueAsync(currentToken()).thenAcceptAsync(tokenValue -> {
+            if (null == tokenValue) {
+                throw new NoAuthenticationException("认证失败");
+            }
+            if (!isHasPermission(tokenValue.getLoginId(), permission)) {
+                throw new NoPermissionException("权限不足");
+            }
+        }, executor);
+    }
+
     /**
      * 权限检查，是否有输入的全部权限，检查不通过抛出异常
      *
@@ -595,23 +1217,445 @@ public class AuthManager {
 
 
     /**
-     * 生成token的key
+     * 创建token，签名token将登录信息写入token中
+     *
+     * @param loginId       登录唯一标识
+     * @param createdTime   创建时间（毫秒）
+     * @param timeoutMillis 有效期（毫秒），-1为永不过期
+     * @return token
+     */
+    private String createToken(String loginId, long createdTime, long timeoutMillis) {
+        if (signedTokenHandler != null) {
+            return signedTokenHandler.createToken(loginId, createdTime,
+                    timeoutMillis == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : createdTime + timeoutMillis);
+        }
+        return tokenHandler.createToken(loginId);
+    }
+
+    /**
+     * 删除token，签名token记录到吊销记录中
+     *
+     * @param loginId 登录唯一标识
+     * @param tokens  token集合
+     */
+    private void removeTokens(String loginId, List<String> tokens) {
+        if (signedTokenHandler != null) {
+            revoke(loginId, parseSignedTokens(tokens), false);
+        } else {
+            cache.removeAll(tokenKeys(tokens));
+        }
+    }
+
+    /**
+     * 异步删除token，签名token记录到吊销记录中
+     *
+     * @param loginId 登录唯一标识
+     * @param tokens  token集合
+     */
+    private CompletableFuture<Void> removeTokensAsync(String loginId, List<String> tokens) {
+        if (signedTokenHandler != null) {
+            return revokeAsync(loginId, parseSignedTokens(tokens), false);
+        }
+        return asyncCache.removeAllAsync(tokenKeys(tokens));
+    }
+
+    /**
+     * 校验签名token：签名、过期时间及吊销记录，只读取该登录唯一标识的吊销记录
+     *
+     * @param token token
+     * @return token值信息，无效时返回null
+     */
+    private AuthTokenValue verifySignedToken(String token) {
+        AuthTokenValue tokenValue = parseSignedToken(token);
+        if (null == tokenValue || isRevoked(token, tokenValue, cache.get(revokeKey(tokenValue.getLoginId())))) {
+            return null;
+        }
+        return tokenValue;
+    }
+
+    /**
+     * 异步校验签名token
+     *
+     * @param token token
+     * @return token值信息，无效时返回null
+     */
+    private CompletableFuture<AuthTokenValue> verifySignedTokenAsync(String token) {
+        AuthTokenValue tokenValue = parseSignedToken(token);
+        if (null == tokenValue) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return asyncCache.getAsync(revokeKey(tokenValue.getLoginId()))
+                .thenApply(revocation -> isRevoked(token, tokenValue, revocation) ? null : tokenValue);
+    }
+
+    /**
+     * 校验签名及过期时间，不读取缓存
+     *
+     * @param token token
+     * @return token值信息，签名不一致或已过期时返回null
+     */
+    private AuthTokenValue parseSignedToken(String token) {
+        AuthTokenValue tokenValue = signedTokenHandler.verify(token);
+        if (null == tokenValue || (tokenValue.getExpireTime() != AuthConstant.NEVER_EXPIRE
+                && tokenValue.getExpireTime() <= clock.currentTimeMillis())) {
+            return null;
+        }
+        return tokenValue;
+    }
+
+    /**
+     * 解析未过期的签名token
+     *
+     * @param tokens token集合
+     * @return 吊销使用的token信息
+     */
+    private List<RevokedToken> parseSignedTokens(Collection<String> tokens) {
+        List<RevokedToken> revokedTokens = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            AuthTokenValue tokenValue = parseSignedToken(token);
+            if (null != tokenValue) {
+                revokedTokens.add(new RevokedToken(signedTokenHandler.getNonce(token), tokenValue.getCreatedTime(), tokenValue.getExpireTime()));
+            }
+        }
+        return revokedTokens;
+    }
+
+    private List<RevokedToken> parseSignedTokens(AuthSession authSession) {
+        return authSession == null || authSession.getTokens() == null ? Collections.emptyList() : parseSignedTokens(authSession.getTokens());
+    }
+
+    /**
+     * 吊销签名token<br/>
+     * 吊销记录为Long列表：[吊销时间, 随机数1, 过期时间1, 随机数2, 过期时间2, ...]，
+     * 在吊销时间之前签发的token全部无效，其余按token中的随机数逐个吊销（同一毫秒签发的token创建时间相同，不能用于区分）；
+     * 已过期的token从记录中删除
+     *
+     * @param loginId       登录唯一标识
+     * @param revokedTokens 吊销的token，all为true时其中与吊销时间同一毫秒签发的token逐个吊销
+     * @param all           true:吊销当前时间之前签发的全部token，当前毫秒内签发的token只吊销revokedTokens中的
+     */
+    private void revoke(String loginId, List<RevokedToken> revokedTokens, boolean all) {
+        long now = clock.currentTimeMillis();
+        cache.compute(revokeKey(loginId), (key, revocation) -> revocation((List<?>) revocation, revokedTokens, all, now),
+                revokeTimeout(revokedTokens, now));
+    }
+
+    private CompletableFuture<Void> revokeAsync(String loginId, List<RevokedToken> revokedTokens, boolean all) {
+        long now = clock.currentTimeMillis();
+        return asyncCache.computeAsync(revokeKey(loginId), (key, revocation) -> revocation((List<?>) revocation, revokedTokens, all, now),
+                revokeTimeout(revokedTokens, now)).thenApply(ignored -> null);
+    }
+
+    /**
+     * 计算新的吊销记录，不修改传入的记录
+     */
+    private static List<Long> revocation(List<?> current, List<RevokedToken> revokedTokens, boolean all, long now) {
+        long epoch = current == null || current.isEmpty() ? 0 : ((Number) current.get(0)).longValue();
+        if (all) {
+            epoch = Math.max(epoch, now);
+        }
+        List<Long> revocation = new ArrayList<>();
+        revocation.add(epoch);
+        if (current != null) {
+            for (int i = 1; i + 1 < current.size(); i += 2) {
+                long expireTime = ((Number) current.get(i + 1)).longValue();
+                if (expireTime == AuthConstant.NEVER_EXPIRE || expireTime > now) {
+                    revocation.add(((Number) current.get(i)).longValue());
+                    revocation.add(expireTime);
+                }
+            }
+        }
+        for (RevokedToken revokedToken : revokedTokens) {
+            // 吊销时间之前签发的token已全部无效
+            if (revokedToken.createdTime >= epoch) {
+                revocation.add(revokedToken.nonce);
+                revocation.add(revokedToken.expireTime);
+            }
+        }
+        return revocation;
+    }
+
+    /**
+     * 吊销记录的过期时间，不短于默认有效期及被吊销token的剩余有效期
+     */
+    private long revokeTimeout(List<RevokedToken> revokedTokens, long now) {
+        long timeout = expireTime(authConfig.getTimeout());
+        for (RevokedToken revokedToken : revokedTokens) {
+            if (timeout == AuthConstant.NEVER_EXPIRE || revokedToken.expireTime == AuthConstant.NEVER_EXPIRE) {
+                return AuthConstant.NEVER_EXPIRE;
+            }
+            timeout = Math.max(timeout, revokedToken.expireTime - now);
+        }
+        return timeout;
+    }
+
+    /**
+     * 签名token是否已被吊销
+     *
+     * @param token      已校验的token
+     * @param tokenValue token值信息
+     * @param revocation 吊销记录，可以为null
+     * @return true:已吊销
+     */
+    private static boolean isRevoked(String token, AuthTokenValue tokenValue, Object revocation) {
+        if (!(revocation instanceof List) || ((List<?>) revocation).isEmpty()) {
+            return false;
+        }
+        List<?> list = (List<?>) revocation;
+        if (tokenValue.getCreatedTime() < ((Number) list.get(0)).longValue()) {
+            return true;
+        }
+        if (list.size() < 3) {
+            return false;
+        }
+        // 有逐个吊销的token时才读取随机数
+        long nonce = signedTokenHandler.getNonce(token);
+        for (int i = 1; i + 1 < list.size(); i += 2) {
+            if (((Number) list.get(i)).longValue() == nonce) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 吊销签名token使用的信息
+     */
+    private static final class RevokedToken {
+
+        private final long nonce;
+
+        private final long createdTime;
+
+        private final long expireTime;
+
+        private RevokedToken(long nonce, long createdTime, long expireTime) {
+            this.nonce = nonce;
+            this.createdTime = createdTime;
+            this.expireTime = expireTime;
+        }
+
+    }
+
+    /**
+     * 当前请求的token，同一请求中只解析一次
+     *
+     * @return token
+     */
+    private String currentToken() {
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context == null) {
+            return tokenAnalysisHandler.getToken();
+        }
+        return context.getToken(tokenAnalysisHandler::getToken);
+    }
+
+    /**
+     * 当前请求的token值信息，同一请求中只读取一次
+     *
+     * @return token值信息，未登录时为null
+     */
+    private AuthTokenValue currentTokenValue() {
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context == null) {
+            return getTokenValue(tokenAnalysisHandler.getToken());
+        }
+        return context.getTokenValue(() -> {
+            String token = context.getToken(tokenAnalysisHandler::getToken);
+            return token == null ? null : getTokenValue(token);
+        });
+    }
+
+    /**
+     * 当前请求的登录唯一标识
+     *
+     * @return 登录唯一标识
+     */
+    private String currentLoginId() {
+        AuthTokenValue tokenValue = currentTokenValue();
+        if (null == tokenValue) {
+            throw new NoAuthenticationException("认证失败");
+        }
+        return tokenValue.getLoginId();
+    }
+
+    /**
+     * 当前请求的session信息，同一请求中只读取一次
+     *
+     * @return session信息
+     */
+    private AuthSession currentSession() {
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context == null) {
+            return getSessionByToken(tokenAnalysisHandler.getToken());
+        }
+        return context.getSession(() -> {
+            if (context.getToken(tokenAnalysisHandler::getToken) == null) {
+                throw new AuthException("token不能为空");
+            }
+            AuthTokenValue tokenValue = currentTokenValue();
+            return null == tokenValue ? null : getSession(tokenValue.getLoginId());
+        });
+    }
+
+    /**
+     * 当前登录用户的角色，同一请求中只读取一次
+     *
+     * @return 角色集合
+     */
+    private List<String> currentRoles() {
+        String loginId = currentLoginId();
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context == null) {
+            return permissionHandler.getRoles(loginId);
+        }
+        return context.getRoles(() -> permissionHandler.getRoles(loginId));
+    }
+
+    /**
+     * 当前登录用户的权限，同一请求中只读取一次
+     *
+     * @return 权限集合
+     */
+    private List<String> currentPermissions() {
+        String loginId = currentLoginId();
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context == null) {
+            return permissionHandler.getPermissions(loginId);
+        }
+        return context.getPermissions(() -> permissionHandler.getPermissions(loginId));
+    }
+
+    /**
+     * 退出登录后清除当前请求中已读取的认证信息
+     */
+    private void invalidateRequestContext() {
+        AuthRequestContext context = tokenAnalysisHandler.getRequestContext();
+        if (context != null) {
+            context.invalidate();
+        }
+    }
+
+    /**
+     * 生成token的缓存key
+     *
+     * @param token token
+     * @return token的缓存key
+     */
+    private Object tokenKey(String token) {
+        return cache.resolveKey(tokenNamespace.key(tokenId(token)));
+    }
+
+    /**
+     * 生成session的缓存key
+     *
+     * @param loginId 登录唯一标识
+     * @return session的缓存key
+     */
+    private Object sessionKey(String loginId) {
+        return cache.resolveKey(sessionNamespace.key(sessionId(loginId)));
+    }
+
+    /**
+     * token在缓存key中的标识，路由token加上分片标签
+     *
+     * @param token token
+     * @return 标识
+     */
+    private static String tokenId(String token) {
+        if (routingTokenHandler != null && token != null && token.length() > 4) {
+            return '{' + token.substring(0, 4) + '}' + token;
+        }
+        return token;
+    }
+
+    /**
+     * 登录唯一标识在session缓存key中的标识，路由token时为加上分片标签的路由标识，与token的分片标签相同
+     *
+     * @param loginId 登录唯一标识
+     * @return 标识
+     */
+    private static String sessionId(String loginId) {
+        if (routingTokenHandler == null) {
+            return loginId;
+        }
+        String routingId = routingTokenHandler.routingId(loginId);
+        return RoutingTokenHandler.shardTag(routingId) + routingId;
+    }
+
+    /**
+     * 生成签名token吊销记录的缓存key
+     *
+     * @param loginId 登录唯一标识
+     * @return 吊销记录的缓存key
+     */
+    private Object revokeKey(String loginId) {
+        return cache.resolveKey(revokeNamespace.key(loginId));
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 统计信息，缓存不支持统计时返回CacheStats.EMPTY
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * 获取token在缓存中实际使用的key，可直接用于cache.get等操作
+     *
+     * @param token token
+     * @return token的缓存key，由Cache的resolveKey生成
+     */
+    public Object getTokenCacheKey(String token) {
+        return tokenKey(token);
+    }
+
+    /**
+     * 获取session在缓存中实际使用的key，可直接用于cache.get等操作
+     *
+     * @param loginId 登录唯一标识
+     * @return session的缓存key，由Cache的resolveKey生成
+     */
+    public Object getSessionCacheKey(String loginId) {
+        return sessionKey(loginId);
+    }
+
+    /**
+     * 生成token的key，为字符串形式
      *
      * @param token token
      * @return token的key
+     * @deprecated 内存缓存等重写了resolveKey的缓存中实际使用的key不是此字符串，cache.get(genTokenKey(token))读取不到数据，
+     * 请使用{@link #getTokenCacheKey(String)}
      */
+    @Deprecated
     public String genTokenKey(String token) {
-        return authConfig.getTokenKey() + ":" + token;
+        return authConfig.getTokenKey() + ":" + tokenId(token);
     }
 
     /**
-     * 生成session的key
+     * 生成session的key，为字符串形式
      *
      * @param loginId 登录唯一标识
      * @return session的key
+     * @deprecated 内存缓存等重写了resolveKey的缓存中实际使用的key不是此字符串，cache.get(genSessionKey(loginId))读取不到数据，
+     * 请使用{@link #getSessionCacheKey(String)}；session的sessionId仍为此字符串
      */
+    @Deprecated
     public String genSessionKey(String loginId) {
-        return authConfig.getSessionKey() + ":" + loginId;
+        return sessionKeyString(loginId);
+    }
+
+    /**
+     * session的key的字符串形式，用作sessionId
+     *
+     * @param loginId 登录唯一标识
+     * @return 命名空间:标识
+     */
+    private String sessionKeyString(String loginId) {
+        return authConfig.getSessionKey() + ":" + sessionId(loginId);
     }
 
     /**
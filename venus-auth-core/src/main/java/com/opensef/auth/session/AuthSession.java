@@ -1,7 +1,23 @@
 package com.opensef.auth.session;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * session信息<br/>
+ * 缓存中的session按不可变对象使用，修改时复制出新的对象并递增修订号后通过比较并设置写回缓存，equals用于比较当前值是否已被其他线程修改；
+ * 数据内容经过序列化后不一定实现equals，equals只比较sessionId、创建时间、修订号和token集合。<br/>
+ * Jackson注解只在引入jackson-databind时生效，未引入时被忽略
+ */
 public class AuthSession {
 
     /**
@@ -14,15 +30,25 @@ public class AuthSession {
      */
     private Long createdTime;
 
+    /**
+     * 修订号，每次修改递增
+     */
+    private long revision;
+
+    /**
+     * 全部token中最晚的过期时间（毫秒），session的有效期与其一致；-1表示永不过期，0表示未知（之前写入的数据）
+     */
+    private long expireTime;
+
     /**
      * 数据内容
      */
     private Object data;
 
     /**
-     * 多个用户同时登录时，全部token值集合，按登录顺序存放
+     * 多个用户同时登录时，全部token值集合，按登录顺序存放，添加和删除均为O(1)
      */
-    private List<String> tokenList;
+    private LinkedHashSet<String> tokens;
 
     public String getSessionId() {
         return sessionId;
@@ -40,6 +66,22 @@ public class AuthSession {
         this.createdTime = createdTime;
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public long getExpireTime() {
+        return expireTime;
+    }
+
+    public void setExpireTime(long expireTime) {
+        this.expireTime = expireTime;
+    }
+
     public Object getData() {
         return data;
     }
@@ -48,12 +90,121 @@ public class AuthSession {
         this.data = data;
     }
 
+    public Set<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * 设置全部token值，复制传入的集合
+     *
+     * @param tokens token值集合，按登录顺序排列
+     */
+    public void setTokens(Collection<String> tokens) {
+        this.tokens = tokens == null ? null : new LinkedHashSet<>(tokens);
+    }
+
+    /**
+     * 获取全部token值，按登录顺序排列，不参与JSON序列化
+     *
+     * @return token值列表的副本
+     * @deprecated 使用{@link #getTokens()}
+     */
+    @Deprecated
+    @JsonIgnore
     public List<String> getTokenList() {
-        return tokenList;
+        return tokens == null ? null : new ArrayList<>(tokens);
     }
 
+    /**
+     * 设置全部token值，可以读取之前按tokenList写入的JSON数据
+     *
+     * @param tokenList token值列表，按登录顺序排列
+     * @deprecated 使用{@link #setTokens(Collection)}
+     */
+    @Deprecated
+    @JsonSetter("tokenList")
     public void setTokenList(List<String> tokenList) {
-        this.tokenList = tokenList;
+        setTokens(tokenList);
+    }
+
+    /**
+     * 添加token
+     *
+     * @param token token
+     * @return true:添加成功，false:已存在
+     */
+    public boolean addToken(String token) {
+        if (tokens == null) {
+            tokens = new LinkedHashSet<>();
+        }
+        return tokens.add(token);
+    }
+
+    /**
+     * 删除token
+     *
+     * @param token token
+     * @return true:删除成功，false:不存在
+     */
+    public boolean removeToken(String token) {
+        return tokens != null && tokens.remove(token);
+    }
+
+    /**
+     * 是否包含token
+     *
+     * @param token token
+     * @return true/false
+     */
+    public boolean containsToken(String token) {
+        return tokens != null && tokens.contains(token);
+    }
+
+    /**
+     * token数量
+     *
+     * @return token数量
+     */
+    public int tokenCount() {
+        return tokens == null ? 0 : tokens.size();
+    }
+
+    /**
+     * token数量超过上限时，按登录顺序删除最早的token
+     *
+     * @param maxTokens token数量上限
+     * @return 被删除的token，没有删除时返回空列表
+     */
+    public List<String> evictOldestTokens(int maxTokens) {
+        int count = tokenCount() - maxTokens;
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        List<String> evicted = new ArrayList<>(count);
+        Iterator<String> iterator = tokens.iterator();
+        while (evicted.size() < count) {
+            evicted.add(iterator.next());
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AuthSession that = (AuthSession) o;
+        return revision == that.revision && Objects.equals(sessionId, that.sessionId)
+                && Objects.equals(createdTime, that.createdTime) && Objects.equals(tokens, that.tokens);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sessionId, createdTime, revision, tokens);
     }
 
     @Override
@@ -61,8 +212,10 @@ public class AuthSession {
         return "AuthSession{" +
                 "sessionId='" + sessionId + '\'' +
                 ", createdTime=" + createdTime +
+                ", revision=" + revision +
+                ", expireTime=" + expireTime +
                 ", data=" + data +
-                ", tokenList=" + tokenList +
+                ", tokens=" + tokens +
                 '}';
     }
 
@@ -0,0 +1,117 @@
+package com.opensef.auth.authc;
+
+import com.opensef.auth.cache.MemoryCache;
+import com.opensef.auth.clock.ManualClock;
+import com.opensef.auth.config.AuthConfig;
+import com.opensef.auth.config.MemoryCacheConfig;
+import com.opensef.auth.exception.AuthException;
+import com.opensef.auth.manager.AuthManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 签名token测试
+ */
+class SignedTokenHandlerTest {
+
+    private static final byte[] KEY_1 = key('1');
+
+    private static final byte[] KEY_2 = key('2');
+
+    /**
+     * 校验签名并解析登录唯一标识和过期时间，内容或签名被修改时校验失败
+     */
+    @Test
+    void verifyAndRejectTampering() {
+        SignedTokenHandler handler = new SignedTokenHandler("1", KEY_1);
+        String token = handler.createToken("user", 1_000_000L, 4_600_000L);
+        AuthTokenValue tokenValue = handler.verify(token);
+        assertEquals("user", tokenValue.getLoginId());
+        assertEquals(1_000_000L, (long) tokenValue.getCreatedTime());
+        assertEquals(4_600_000L, (long) tokenValue.getExpireTime());
+        assertEquals(3600L, (long) tokenValue.getTimeout());
+
+        int dot = token.indexOf('.');
+        byte[] payload = Base64.getUrlDecoder().decode(token.substring(0, dot));
+        payload[payload.length - 1] = 'x';
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(payload) + token.substring(dot);
+        assertNull(handler.verify(forged));
+        assertNull(handler.verify(token.substring(0, token.length() - 2) + "AA"));
+        assertNull(handler.verify(token.substring(0, dot)));
+        assertNull(handler.verify("not-a-token"));
+        assertNull(handler.verify(null));
+
+        // 同一毫秒签发的token随机数不同
+        String other = handler.createToken("user", 1_000_000L, 4_600_000L);
+        assertNotEquals(handler.getNonce(token), handler.getNonce(other));
+    }
+
+    /**
+     * 更换密钥后，使用新密钥签发，旧密钥签发的token在保留旧密钥时仍能校验；未知密钥ID校验失败
+     */
+    @Test
+    void rotateKeys() {
+        SignedTokenHandler oldHandler = new SignedTokenHandler("1", KEY_1);
+        String oldToken = oldHandler.createToken("user", 1_000_000L, 4_600_000L);
+
+        SignedTokenHandler newHandler = new SignedTokenHandler("2", KEY_2).addVerificationKey("1", KEY_1);
+        String newToken = newHandler.createToken("user", 1_000_000L, 4_600_000L);
+        assertNotNull(newHandler.verify(oldToken));
+        assertNotNull(newHandler.verify(newToken));
+        assertNull(oldHandler.verify(newToken));
+        assertNull(new SignedTokenHandler("2", KEY_2).verify(oldToken));
+
+        // 密钥ID相同但密钥不同
+        assertNull(new SignedTokenHandler("1", KEY_2).verify(oldToken));
+        assertThrows(AuthException.class, () -> new SignedTokenHandler("3", Arrays.copyOf(KEY_1, 16)));
+    }
+
+    /**
+     * 按随机数吊销单个token，同一毫秒签发的其他token不受影响；按登录唯一标识退出后，之后签发的token有效
+     */
+    @Test
+    void revokeByNonceAndEpoch() {
+        ManualClock clock = new ManualClock(1_000_000L);
+        AuthConfig authConfig = new AuthConfig();
+        authConfig.setTimeout(3600L);
+        authConfig.setTokenKey("auth:token");
+        authConfig.setSessionKey("auth:session");
+        authConfig.setClock(clock);
+        try (MemoryCache<Object, Object> cache = new MemoryCache<>(new MemoryCacheConfig(), clock)) {
+            AuthManager authManager = new AuthManager();
+            authManager.init(new SignedTokenHandler("1", KEY_1), () -> null, null, cache, authConfig);
+
+            String first = authManager.login("user").getToken();
+            String second = authManager.login("user").getToken();
+            authManager.logoutByToken(first);
+            assertNull(authManager.getTokenValue(first));
+            assertNotNull(authManager.getTokenValue(second));
+
+            clock.advance(10);
+            authManager.logout("user");
+            assertNull(authManager.getTokenValue(second));
+            // 同一毫秒在退出之后登录
+            String third = authManager.login("user").getToken();
+            assertNotNull(authManager.getTokenValue(third));
+
+            // 超过token中的过期时间后无效
+            clock.advance(3600_000L);
+            assertNull(authManager.getTokenValue(third));
+        }
+    }
+
+    private static byte[] key(char c) {
+        byte[] key = new byte[SignedTokenHandler.MIN_KEY_LENGTH];
+        Arrays.fill(key, (byte) c);
+        return key;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.opensef.auth.authz;
+
+import com.opensef.auth.clock.ManualClock;
+import com.opensef.auth.config.PermissionCacheConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 角色权限缓存测试，后台刷新在调用线程中执行
+ */
+class CachingPermissionHandlerTest {
+
+    private final ManualClock clock = new ManualClock(1_000_000L);
+
+    /**
+     * 同一登录唯一标识并发加载只调用一次被包装的PermissionHandler
+     */
+    @Test
+    void concurrentLoadsShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingHandler delegate = new CountingHandler(release);
+        CachingPermissionHandler handler = newHandler(delegate);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> handler.getRoles("user")));
+            }
+            assertTrue(delegate.started.await(10, TimeUnit.SECONDS));
+            // 等待其他线程进入加载
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<List<String>> future : futures) {
+                assertEquals(Collections.singletonList("role-1"), future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, delegate.calls.get());
+    }
+
+    /**
+     * 加载期间调用invalidate，加载结果不写入缓存，下次访问重新加载
+     */
+    @Test
+    void invalidateDuringLoadDiscardsResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingHandler delegate = new CountingHandler(release);
+        CachingPermissionHandler handler = newHandler(delegate);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<String>> loading = executor.submit(() -> handler.getRoles("user"));
+            assertTrue(delegate.started.await(10, TimeUnit.SECONDS));
+            handler.invalidate("user");
+            release.countDown();
+            assertEquals(Collections.singletonList("role-1"), loading.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singletonList("role-2"), handler.getRoles("user"));
+        assertEquals(Collections.singletonList("role-2"), handler.getRoles("user"));
+        assertEquals(2, delegate.calls.get());
+    }
+
+    /**
+     * 超过提前刷新时间后返回当前数据并刷新，过期后重新加载，invalidate后立即重新加载
+     */
+    @Test
+    void refreshExpireAndInvalidate() {
+        CountingHandler delegate = new CountingHandler(null);
+        CachingPermissionHandler handler = newHandler(delegate);
+        assertEquals(Collections.singletonList("role-1"), handler.getRoles("user"));
+        assertEquals(Collections.singletonList("role-1"), handler.getRoles("user"));
+        assertEquals(1, delegate.calls.get());
+
+        clock.advance(45_000L);
+        assertEquals(Collections.singletonList("role-1"), handler.getRoles("user"));
+        assertEquals(Collections.singletonList("role-2"), handler.getRoles("user"));
+
+        clock.advance(60_000L);
+        assertEquals(Collections.singletonList("role-3"), handler.getRoles("user"));
+
+        handler.invalidate("user");
+        assertEquals(Collections.singletonList("role-4"), handler.getRoles("user"));
+        assertEquals(4, delegate.calls.get());
+    }
+
+    private CachingPermissionHandler newHandler(PermissionHandler delegate) {
+        PermissionCacheConfig config = new PermissionCacheConfig();
+        config.setTtl(60_000L);
+        config.setRefreshAfter(45_000L);
+        return new CachingPermissionHandler(delegate, config, clock, Runnable::run);
+    }
+
+    /**
+     * 每次调用返回递增的角色，release不为null时第一次调用等待放行
+     */
+    private static final class CountingHandler implements PermissionHandler {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release;
+
+        private CountingHandler(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public List<String> getRoles(String loginId) {
+            int call = calls.incrementAndGet();
+            if (call == 1 && release != null) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Collections.singletonList("role-" + call);
+        }
+
+        @Override
+        public List<String> getPermissions(String loginId) {
+            return Collections.emptyList();
+        }
+
+    }
+
+}
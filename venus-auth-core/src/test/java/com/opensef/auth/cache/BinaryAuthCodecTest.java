@@ -0,0 +1,95 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.authc.AuthTokenValue;
+import com.opensef.auth.exception.AuthException;
+import com.opensef.auth.session.AuthSession;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 缓存数据编码测试
+ */
+class BinaryAuthCodecTest {
+
+    @Test
+    void roundTrip() {
+        BinaryAuthCodec codec = new BinaryAuthCodec(new JacksonAuthCodec());
+        Map<String, Object> addInfo = new LinkedHashMap<>();
+        addInfo.put("name", "user");
+        addInfo.put("roles", List.of("admin"));
+        addInfo.put("date", new Date(1000));
+        AuthTokenValue tokenValue = new AuthTokenValue("user", 3600L, 1000L, 3601000L, addInfo);
+        AuthTokenValue decoded = (AuthTokenValue) codec.decode(codec.encode(tokenValue));
+        assertEquals(tokenValue, decoded);
+        assertEquals(addInfo, decoded.getAddInfo());
+
+        AuthSession session = new AuthSession();
+        session.setSessionId("auth:session:user");
+        session.setCreatedTime(1000L);
+        session.setRevision(3);
+        session.addToken("t1");
+        session.addToken("t2");
+        assertEquals(session, codec.decode(codec.encode(session)));
+    }
+
+    /**
+     * 指定备用编码时不会写入Java序列化的数据，解码时拒绝
+     */
+    @Test
+    void rejectJavaSerializationWithFallback() {
+        byte[] serialized = new BinaryAuthCodec().encode(new ArrayList<>(List.of(URI.create("http://localhost"))));
+        assertThrows(AuthException.class, () -> new BinaryAuthCodec(new JacksonAuthCodec()).decode(serialized));
+    }
+
+    /**
+     * 未指定备用编码时，Java序列化只允许JDK的集合和值类型及本框架的类型
+     */
+    @Test
+    void rejectUnknownSerializableClass() {
+        BinaryAuthCodec codec = new BinaryAuthCodec();
+        byte[] serialized = codec.encode(URI.create("http://localhost"));
+        assertThrows(AuthException.class, () -> codec.decode(serialized));
+        assertEquals(new Payload(), codec.decode(codec.encode(new Payload())));
+    }
+
+    /**
+     * JSON中的类型信息只允许JDK的集合和值类型、本框架的类型及指定的包
+     */
+    @Test
+    void rejectUnknownJsonType() {
+        byte[] url = "[\"java.net.URL\",\"http://localhost\"]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(AuthException.class, () -> new JacksonAuthCodec().decode(url));
+        assertThrows(AuthException.class, () -> new JacksonAuthCodec(JacksonAuthCodec.defaultObjectMapper("java.nio")).decode(url));
+        assertEquals(new Payload(), new JacksonAuthCodec().decode(new JacksonAuthCodec().encode(new Payload())));
+    }
+
+    static class Payload implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String value = "value";
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Payload && value.equals(((Payload) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+    }
+
+}
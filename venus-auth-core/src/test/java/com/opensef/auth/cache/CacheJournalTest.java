@@ -0,0 +1,141 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.clock.ManualClock;
+import com.opensef.auth.constant.AuthConstant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 内存缓存持久化日志测试，刷盘和快照由测试调用
+ */
+class CacheJournalTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final ManualClock clock = new ManualClock(1_000_000L);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * 重启后按快照和日志恢复写入、删除及续期，已过期的数据不恢复
+     */
+    @Test
+    void replayAfterRestart() {
+        CacheMap<String, String> cacheMap = newCacheMap();
+        CacheJournal<String, String> journal = start(cacheMap);
+        cacheMap.put("kept", "v1", 1000);
+        cacheMap.put("renewed", "v2", 1000);
+        cacheMap.put("removed", "v3", 1000);
+        cacheMap.put("forever", "v4", AuthConstant.NEVER_EXPIRE);
+        journal.snapshot(cacheMap);
+        cacheMap.put("kept", "v5", 1000);
+        cacheMap.expire("renewed", 10000);
+        cacheMap.remove("removed");
+        close(cacheMap, journal);
+
+        clock.advance(5000);
+        CacheMap<String, String> restored = newCacheMap();
+        close(restored, start(restored));
+        assertNull(restored.get("kept"));
+        assertEquals("v2", restored.get("renewed"));
+        assertEquals(5000L, restored.getExpire("renewed"));
+        assertNull(restored.get("removed"));
+        assertEquals("v4", restored.get("forever"));
+    }
+
+    /**
+     * 快照期间并发修改，重启后与修改结果一致：切换日志前追加的修改不会因为尚未写入数据表而从快照和日志中丢失
+     */
+    @Test
+    void concurrentWritesDuringSnapshotSurviveRestart() throws Exception {
+        CacheMap<String, String> cacheMap = newCacheMap();
+        CacheJournal<String, String> journal = start(cacheMap);
+
+        int threads = 4;
+        int keysPerThread = 64;
+        Map<String, String> expected = new ConcurrentHashMap<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    // 每个线程只修改自己的key，最后一次修改即为期望的结果
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    started.countDown();
+                    for (int i = 0; running.get() || i < 1000; i++) {
+                        String key = "key-" + thread + "-" + random.nextInt(keysPerThread);
+                        if (random.nextInt(4) == 0) {
+                            cacheMap.remove(key);
+                            expected.remove(key);
+                        } else {
+                            String value = key + "-" + i;
+                            cacheMap.put(key, value, HOUR);
+                            expected.put(key, value);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            started.await();
+            for (int i = 0; i < 20; i++) {
+                journal.snapshot(cacheMap);
+            }
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+        close(cacheMap, journal);
+
+        CacheMap<String, String> restored = newCacheMap();
+        close(restored, start(restored));
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < keysPerThread; i++) {
+                String key = "key-" + t + "-" + i;
+                assertEquals(expected.get(key), restored.get(key), key);
+            }
+        }
+    }
+
+    private CacheMap<String, String> newCacheMap() {
+        return new CacheMap<>(1000, 0, 4, clock);
+    }
+
+    /**
+     * 日志文件较小，测试中也会写满切换
+     */
+    private CacheJournal<String, String> start(CacheMap<String, String> cacheMap) {
+        CacheJournal<String, String> journal = new CacheJournal<>(directory, 64 * 1024);
+        journal.start(cacheMap, HOUR, HOUR);
+        return journal;
+    }
+
+    private static void close(CacheMap<String, String> cacheMap, CacheJournal<String, String> journal) {
+        journal.close();
+        cacheMap.close();
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.clock.ManualClock;
+import com.opensef.auth.constant.AuthConstant;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 缓存分段测试，删除通知在调用线程中执行，过期清理由测试调用
+ */
+class CacheSegmentTest {
+
+    private final ManualClock clock = new ManualClock(1_000_000L);
+
+    private final List<String> removals = new CopyOnWriteArrayList<>();
+
+    /**
+     * 续期原子更新到期时间，清理时按新的到期时间删除
+     */
+    @Test
+    void renewMovesDeadline() {
+        CacheSegment<String, String> segment = newSegment();
+        segment.put("key", "v", 2000);
+        segment.expire("key", 10_000);
+        assertEquals(10_000L, segment.getExpire("key"));
+
+        clock.advance(5000);
+        segment.removeExpiredKey();
+        assertEquals("v", segment.get("key"));
+
+        clock.advance(5000);
+        segment.removeExpiredKey();
+        assertEquals(0, segment.size());
+        assertEquals(List.of("key=v:EXPIRED"), removals);
+        assertFalse(segment.expireAt("key", clock.currentTimeMillis() + 1000));
+    }
+
+    /**
+     * 覆盖写入后旧数据被标记为已删除，不再续期，也不会在旧的到期时间被清理
+     */
+    @Test
+    void replacedDataIsRetired() {
+        CacheSegment<String, String> segment = newSegment();
+        segment.put("key", "v1", 2000);
+        segment.put("key", "v2", 10_000);
+
+        clock.advance(5000);
+        segment.removeExpiredKey();
+        assertEquals("v2", segment.get("key"));
+        assertTrue(removals.isEmpty());
+
+        // 读取时发现已过期则删除，按过期通知
+        clock.advance(5000);
+        assertNull(segment.get("key"));
+        assertEquals(AuthConstant.EXPIRED_DATA_NOT_EXIST, segment.getExpire("key"));
+        assertEquals(List.of("key=v2:EXPIRED"), removals);
+    }
+
+    /**
+     * computeAt保持或设置到期时间，返回当前值时不修改，返回null时删除
+     */
+    @Test
+    void computeKeepsOrSetsDeadline() {
+        CacheSegment<String, String> segment = newSegment();
+        long now = clock.currentTimeMillis();
+        segment.computeAt("key", (k, v) -> "v1", now + 2000);
+        segment.computeAt("key", (k, v) -> v + "-2", CacheMap.KEEP_DEADLINE);
+        assertEquals("v1-2", segment.get("key"));
+        assertEquals(2000L, segment.getExpire("key"));
+
+        CacheMap.CacheData cacheData = segment.computeAt("key", (k, v) -> v, now + 60_000);
+        assertEquals(2000L, cacheData.getTimeout() - now);
+
+        segment.computeAt("key", (k, v) -> v + "-3", now + 60_000);
+        assertEquals(60_000L, segment.getExpire("key"));
+
+        assertNull(segment.computeAt("key", (k, v) -> null, now + 60_000));
+        assertNull(segment.get("key"));
+        assertEquals(List.of("key=v1-2-3:EXPLICIT"), removals);
+
+        // 当前值已过期时按不存在计算
+        segment.put("expired", "old", 1000);
+        clock.advance(1000);
+        segment.computeAt("expired", (k, v) -> v == null ? "new" : v, CacheMap.KEEP_DEADLINE);
+        assertEquals("new", segment.get("expired"));
+        assertEquals(AuthConstant.NEVER_EXPIRE, segment.getExpire("expired"));
+    }
+
+    /**
+     * 并发续期与覆盖写入，最后写入的数据保留且最终按到期时间被清理，不残留在数据表或时间轮中
+     */
+    @Test
+    void concurrentRenewAndReplace() throws Exception {
+        CacheSegment<String, String> segment = newSegment();
+        int threads = 4;
+        int operations = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        String key = "key-" + (i % 16);
+                        if (thread == 0) {
+                            segment.put(key, "v" + i, 1000 + i % 7 * 1000);
+                        } else {
+                            segment.expire(key, 1000 + (i + thread) % 9 * 1000);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(16, segment.size());
+        for (int i = 0; i < 16; i++) {
+            long expire = segment.getExpire("key-" + i);
+            assertTrue(expire > 0 && expire <= 9000, "expire: " + expire);
+        }
+        clock.advance(10_000);
+        segment.removeExpiredKey();
+        assertEquals(0, segment.size());
+        assertEquals(16, removals.size());
+    }
+
+    private CacheSegment<String, String> newSegment() {
+        RemovalNotifier<String, String> notifier = new RemovalNotifier<>(Runnable::run);
+        notifier.addListener((key, value, cause) -> removals.add(key + "=" + value + ":" + cause));
+        return new CacheSegment<>(1000, 0, new CacheStatsCounter(), notifier, clock);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.cache.CacheMap.CacheData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 容量淘汰策略（W-TinyLFU）测试
+ */
+class EvictionPolicyTest {
+
+    /**
+     * 大量只访问一次的新数据不能把频繁访问的数据挤出缓存，计数减半老化后仍然成立
+     */
+    @Test
+    void frequentEntriesSurviveScan() {
+        EvictionPolicy policy = new EvictionPolicy(100);
+        Map<Object, CacheData> present = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            add(policy, present, "hot-" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                policy.onAccess(present.get("hot-" + i));
+            }
+        }
+
+        // 热点数据持续被访问，同时写入大量只访问一次的新数据
+        for (int i = 0; i < 10_000; i++) {
+            add(policy, present, "scan-" + i);
+            CacheData hot = present.get("hot-" + i % 100);
+            if (hot != null) {
+                policy.onAccess(hot);
+            }
+            assertTrue(present.size() <= 100);
+        }
+        long hot = present.keySet().stream().filter(key -> ((String) key).startsWith("hot-")).count();
+        assertTrue(hot >= 95, "hot entries left: " + hot);
+    }
+
+    /**
+     * 候选者访问频率不高于主区中最久未访问的数据时被拒绝，主区数据保留，窗口区保留最新写入的数据
+     */
+    @Test
+    void rejectCandidateWithoutFrequencyAdvantage() {
+        EvictionPolicy policy = new EvictionPolicy(100);
+        Map<Object, CacheData> present = new HashMap<>();
+        for (int i = 0; i < 150; i++) {
+            add(policy, present, i);
+        }
+        assertEquals(100, present.size());
+        for (int i = 0; i < 99; i++) {
+            assertTrue(present.containsKey(i));
+        }
+        assertTrue(present.containsKey(149));
+    }
+
+    /**
+     * 删除的数据释放容量；写入后、加入队列前已被删除的数据不加入队列
+     */
+    @Test
+    void removedEntriesFreeCapacity() {
+        EvictionPolicy policy = new EvictionPolicy(10);
+        Map<Object, CacheData> present = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            add(policy, present, i);
+        }
+        for (int i = 0; i < 5; i++) {
+            policy.onRemove(present.remove(i));
+        }
+
+        CacheData retired = new CacheData("retired", "v", -1);
+        retired.retire();
+        List<CacheData> evicted = new ArrayList<>();
+        policy.onAdd(retired, evicted);
+        assertTrue(evicted.isEmpty());
+
+        for (int i = 10; i < 15; i++) {
+            add(policy, present, i);
+        }
+        assertEquals(10, present.size());
+        // 已删除的数据不占用容量，再写入一个才开始淘汰
+        add(policy, present, 15);
+        assertEquals(10, present.size());
+        assertFalse(present.containsKey("retired"));
+    }
+
+    private static void add(EvictionPolicy policy, Map<Object, CacheData> present, Object key) {
+        CacheData cacheData = new CacheData(key, "v", -1);
+        present.put(key, cacheData);
+        List<CacheData> evicted = new ArrayList<>();
+        policy.onAdd(cacheData, evicted);
+        for (CacheData evictedData : evicted) {
+            evictedData.retire();
+            present.remove(evictedData.key);
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.opensef.auth.cache;
+
+import com.opensef.auth.cache.CacheMap.CacheData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分层时间轮测试，按tick逐步推进
+ */
+class TimingWheelTest {
+
+    /**
+     * 不同层级的数据在到期时间所在的tick被取出，高层时间槽逐层下放时不提前到期
+     */
+    @Test
+    void cascadeExpiresAtDeadline() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        long[] deadlines = {1500, 64_000, 70_500, 4_096_000, 5_000_000};
+        for (long deadline : deadlines) {
+            wheel.schedule(new CacheData(deadline, "v", deadline));
+        }
+
+        Map<Object, Long> expiredAt = new HashMap<>();
+        List<CacheData> expired = new ArrayList<>();
+        for (long now = 0; now <= 5_100_000; now += 1000) {
+            wheel.advance(now, expired);
+            for (CacheData cacheData : expired) {
+                expiredAt.put(cacheData.key, now);
+            }
+            expired.clear();
+        }
+        for (long deadline : deadlines) {
+            // 向上取整到tick
+            assertEquals((deadline + 999) / 1000 * 1000, expiredAt.get(deadline));
+        }
+    }
+
+    /**
+     * 一次推进多个tick时，期间到期的数据全部取出
+     */
+    @Test
+    void advanceManyTicksAtOnce() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        for (long deadline = 1000; deadline <= 300_000; deadline += 7000) {
+            wheel.schedule(new CacheData(deadline, "v", deadline));
+        }
+        List<CacheData> expired = new ArrayList<>();
+        wheel.advance(150_000, expired);
+        assertEquals(22, expired.size());
+        for (CacheData cacheData : expired) {
+            assertTrue(cacheData.getTimeout() <= 150_000);
+        }
+        expired.clear();
+        wheel.advance(300_000, expired);
+        assertEquals(21, expired.size());
+    }
+
+    /**
+     * 超出时间轮范围的数据放在最高层，轮转到时重新分配，到期前不取出
+     */
+    @Test
+    void beyondRangeIsRescheduled() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        long deadline = 20_000_000L;
+        wheel.schedule(new CacheData("far", "v", deadline));
+        List<CacheData> expired = new ArrayList<>();
+        wheel.advance(deadline - 1, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(deadline, expired);
+        assertEquals(1, expired.size());
+    }
+
+    /**
+     * 重新分配或移除后按新的到期时间处理；到期时间被原子更新但尚未重新分配时，时间槽被处理时重新分配
+     */
+    @Test
+    void rescheduleRenewAndDeschedule() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        CacheData rescheduled = new CacheData("rescheduled", "v", 5000);
+        CacheData renewed = new CacheData("renewed", "v", 2000);
+        CacheData removed = new CacheData("removed", "v", 3000);
+        wheel.schedule(rescheduled);
+        wheel.schedule(renewed);
+        wheel.schedule(removed);
+
+        assertTrue(rescheduled.renew(10_000));
+        wheel.schedule(rescheduled);
+        assertTrue(renewed.renew(8000));
+        wheel.deschedule(removed);
+
+        List<CacheData> expired = new ArrayList<>();
+        wheel.advance(7000, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(8000, expired);
+        assertEquals(1, expired.size());
+        assertEquals("renewed", expired.get(0).key);
+        expired.clear();
+        wheel.advance(20_000, expired);
+        assertEquals(1, expired.size());
+        assertEquals("rescheduled", expired.get(0).key);
+    }
+
+    /**
+     * 已删除的数据不能再续期，仍在时间槽中时按已过期取出，由调用方比较后丢弃
+     */
+    @Test
+    void retiredDataCannotBeRenewed() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        CacheData cacheData = new CacheData("key", "v", 5000);
+        wheel.schedule(cacheData);
+        cacheData.retire();
+        assertTrue(cacheData.isRetired());
+        assertFalse(cacheData.renew(60_000));
+        assertTrue(cacheData.isExpired(0));
+
+        List<CacheData> expired = new ArrayList<>();
+        wheel.advance(5000, expired);
+        assertEquals(1, expired.size());
+
+        // 已删除后再放入时间轮，在下一个tick取出
+        wheel.schedule(cacheData);
+        expired.clear();
+        wheel.advance(6000, expired);
+        assertEquals(1, expired.size());
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.opensef.auth.manager;
+
+import com.opensef.auth.authc.AuthToken;
+import com.opensef.auth.authc.DefaultTokenHandler;
+import com.opensef.auth.cache.Cache;
+import com.opensef.auth.cache.MemoryCache;
+import com.opensef.auth.clock.ManualClock;
+import com.opensef.auth.config.AuthConfig;
+import com.opensef.auth.config.MemoryCacheConfig;
+import com.opensef.auth.config.TokenStyle;
+import com.opensef.auth.exception.AuthException;
+import com.opensef.auth.session.AuthSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 登录时原子地更新session测试
+ */
+class AuthManagerSessionTest {
+
+    private final ManualClock clock = new ManualClock(1_000_000L);
+
+    private final MemoryCache<Object, Object> memoryCache = new MemoryCache<>(new MemoryCacheConfig(), clock);
+
+    private final AuthManager authManager = new AuthManager();
+
+    @AfterEach
+    void tearDown() {
+        memoryCache.close();
+    }
+
+    /**
+     * 同一用户并发登录，全部token都保存在session中，修订号随每次修改递增
+     */
+    @Test
+    void concurrentLoginsKeepAllTokens() throws Exception {
+        init(memoryCache, 0);
+        List<String> tokens = concurrentLogins(8, 50);
+
+        AuthSession session = authManager.getSession("user");
+        assertEquals(tokens.size(), session.tokenCount());
+        assertEquals(tokens.size() - 1, session.getRevision());
+        for (String token : tokens) {
+            assertTrue(session.containsToken(token));
+            assertNotNull(authManager.getTokenValue(token));
+        }
+    }
+
+    /**
+     * 只实现比较并设置的缓存使用默认的compute，并发登录同样不丢失token
+     */
+    @Test
+    void defaultComputeKeepsAllTokens() throws Exception {
+        init(new CompareAndSetCache(memoryCache), 0);
+        List<String> tokens = concurrentLogins(4, 50);
+
+        AuthSession session = authManager.getSession("user");
+        assertEquals(tokens.size(), session.tokenCount());
+        for (String token : tokens) {
+            assertTrue(session.containsToken(token));
+        }
+    }
+
+    /**
+     * 超出每个用户的最大token数量时，最早登录的token被删除
+     */
+    @Test
+    void evictOldestTokens() {
+        init(memoryCache, 3);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tokens.add(authManager.login("user").getToken());
+            clock.advance(1);
+        }
+
+        AuthSession session = authManager.getSession("user");
+        assertEquals(3, session.tokenCount());
+        assertNull(authManager.getTokenValue(tokens.get(0)));
+        assertNull(authManager.getTokenValue(tokens.get(1)));
+        for (String token : tokens.subList(2, 5)) {
+            assertTrue(session.containsToken(token));
+            assertNotNull(authManager.getTokenValue(token));
+        }
+    }
+
+    /**
+     * 比较并设置始终失败时，默认的compute在重试上限后抛出异常，不会无限循环
+     */
+    @Test
+    void defaultComputeRetriesAreBounded() {
+        Cache<Object, Object> cache = new CompareAndSetCache(memoryCache) {
+            @Override
+            public boolean replace(Object key, Object expected, Object value, long timeout) {
+                return false;
+            }
+        };
+        cache.put("key", "v", 60_000);
+        assertThrows(AuthException.class, () -> cache.compute("key", (key, value) -> value + "-1", 60_000));
+        assertEquals("v", cache.get("key"));
+    }
+
+    private void init(Cache<Object, Object> cache, int maxTokens) {
+        AuthConfig authConfig = new AuthConfig();
+        authConfig.setTimeout(3600L);
+        authConfig.setTokenKey("auth:token");
+        authConfig.setSessionKey("auth:session");
+        authConfig.setMaxTokens(maxTokens);
+        authConfig.setClock(clock);
+        authManager.init(new DefaultTokenHandler(TokenStyle.UUID), () -> null, null, cache, authConfig);
+    }
+
+    private List<String> concurrentLogins(int threads, int loginsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> tokens = new ArrayList<>();
+                    for (int i = 0; i < loginsPerThread; i++) {
+                        AuthToken token = authManager.login("user");
+                        tokens.add(token.getToken());
+                    }
+                    return tokens;
+                }));
+            }
+            start.countDown();
+            List<String> tokens = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                tokens.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+            return tokens;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 只实现基本操作及比较并设置的缓存，compute、computeIfPresent和putAndCompute使用Cache接口的默认实现
+     */
+    private static class CompareAndSetCache implements Cache<Object, Object> {
+
+        private final MemoryCache<Object, Object> delegate;
+
+        private CompareAndSetCache(MemoryCache<Object, Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            delegate.put(key, value);
+        }
+
+        @Override
+        public void put(Object key, Object value, long timeout) {
+            delegate.put(key, value, timeout);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return delegate.remove(key);
+        }
+
+        @Override
+        public void expire(Object key, long timeout) {
+            delegate.expire(key, timeout);
+        }
+
+        @Override
+        public Long getExpire(Object key) {
+            return delegate.getExpire(key);
+        }
+
+        @Override
+        public Object putIfAbsent(Object key, Object value, long timeout) {
+            return delegate.putIfAbsent(key, value, timeout);
+        }
+
+        @Override
+        public boolean replace(Object key, Object expected, Object value) {
+            return delegate.replace(key, expected, value);
+        }
+
+        @Override
+        public boolean replace(Object key, Object expected, Object value, long timeout) {
+            return delegate.replace(key, expected, value, timeout);
+        }
+
+        @Override
+        public boolean remove(Object key, Object expected) {
+            return delegate.remove(key, expected);
+        }
+
+    }
+
+}
@@ -0,0 +1,671 @@
+package com.opensef.auth.jdbc;
+
+import com.opensef.auth.cache.AuthCodec;
+import com.opensef.auth.cache.BinaryAuthCodec;
+import com.opensef.auth.cache.Cache;
+import com.opensef.auth.cache.CacheScheduler;
+import com.opensef.auth.cache.JacksonAuthCodec;
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.exception.AuthException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BiFunction;
+
+/**
+ * 数据库缓存<br/>
+ * 数据保存在一张表中，每行记录key、value、到期时间戳和修订号，修订号用于比较并设置。<br/>
+ * 续期（expire、expireAll）先写入本地续期索引，读取时以索引中的到期时间为准，
+ * 按flushInterval合并后批量UPDATE写入数据库；过期数据按purgeInterval使用一条DELETE批量删除。
+ * 进程异常退出时最多丢失一个flushInterval内的续期，只会使token提前过期。<br/>
+ * 多节点共享同一张表时，每个节点只能读取到自己尚未写入数据库的续期
+ */
+public class JdbcCache implements Cache<Object, Object>, AutoCloseable {
+
+    private final DataSource dataSource;
+
+    private final AuthClock clock;
+
+    private final int batchSize;
+
+    private final AuthCodec codec;
+
+    /**
+     * 本地续期索引：key -> 尚未写入数据库的到期时间戳
+     */
+    private final Map<String, Long> pendingDeadlines = new ConcurrentHashMap<>();
+
+    private final ScheduledFuture<?> flushTask;
+
+    private final ScheduledFuture<?> purgeTask;
+
+    private final String selectSql;
+
+    private final String selectDeadlineSql;
+
+    private final String selectAllSql;
+
+    private final String insertSql;
+
+    private final String updateSql;
+
+    private final String compareAndUpdateSql;
+
+    private final String compareAndDeleteSql;
+
+    private final String deleteAllSql;
+
+    private final String renewSql;
+
+    private final String purgeSql;
+
+    public JdbcCache(DataSource dataSource) {
+        this(dataSource, new JdbcCacheConfig());
+    }
+
+    /**
+     * @param dataSource      数据源
+     * @param jdbcCacheConfig 数据库缓存配置
+     */
+    public JdbcCache(DataSource dataSource, JdbcCacheConfig jdbcCacheConfig) {
+        this(dataSource, jdbcCacheConfig, AuthClock.system());
+    }
+
+    /**
+     * @param dataSource      数据源
+     * @param jdbcCacheConfig 数据库缓存配置
+     * @param clock           时钟，过期判断及计算到期时间戳时使用
+     */
+    public JdbcCache(DataSource dataSource, JdbcCacheConfig jdbcCacheConfig, AuthClock clock) {
+        this(dataSource, jdbcCacheConfig, clock, new BinaryAuthCodec(new JacksonAuthCodec()));
+    }
+
+    /**
+     * @param dataSource      数据源
+     * @param jdbcCacheConfig 数据库缓存配置
+     * @param clock           时钟，过期判断及计算到期时间戳时使用
+     * @param codec           value编码，默认使用二进制编码，不支持的类型及切换前写入的数据使用JSON
+     */
+    public JdbcCache(DataSource dataSource, JdbcCacheConfig jdbcCacheConfig, AuthClock clock, AuthCodec codec) {
+        this.dataSource = dataSource;
+        this.clock = clock;
+        this.batchSize = Math.max(1, jdbcCacheConfig.getBatchSize());
+        this.codec = codec;
+
+        String table = jdbcCacheConfig.getTableName();
+        this.selectSql = "SELECT cache_value, expire_at, revision FROM " + table + " WHERE cache_key = ?";
+        this.selectDeadlineSql = "SELECT expire_at FROM " + table + " WHERE cache_key = ?";
+        this.selectAllSql = "SELECT cache_key, cache_value, expire_at FROM " + table + " WHERE cache_key IN ";
+        this.insertSql = "INSERT INTO " + table + " (cache_key, cache_value, expire_at, revision) VALUES (?, ?, ?, 0)";
+        this.updateSql = "UPDATE " + table + " SET cache_value = ?, expire_at = ?, revision = revision + 1 WHERE cache_key = ?";
+        this.compareAndUpdateSql = "UPDATE " + table + " SET cache_value = ?, expire_at = ?, revision = revision + 1 WHERE cache_key = ? AND revision = ?";
+        this.compareAndDeleteSql = "DELETE FROM " + table + " WHERE cache_key = ? AND revision = ?";
+        this.deleteAllSql = "DELETE FROM " + table + " WHERE cache_key IN ";
+        this.renewSql = "UPDATE " + table + " SET expire_at = ? WHERE cache_key = ?";
+        this.purgeSql = "DELETE FROM " + table + " WHERE expire_at <> " + AuthConstant.NEVER_EXPIRE + " AND expire_at <= ?";
+
+        this.flushTask = CacheScheduler.shared().scheduleWithFixedDelay(this::flush, jdbcCacheConfig.getFlushInterval());
+        this.purgeTask = CacheScheduler.shared().scheduleWithFixedDelay(this::purge, jdbcCacheConfig.getPurgeInterval());
+    }
+
+    @Override
+    public Object get(Object key) {
+        String cacheKey = cacheKey(key);
+        return execute(connection -> {
+            Row row = select(connection, cacheKey);
+            return row == null || isExpired(row.deadline) ? null : decode(row.value);
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, AuthConstant.NEVER_EXPIRE);
+    }
+
+    @Override
+    public void put(Object key, Object value, long timeout) {
+        String cacheKey = cacheKey(key);
+        byte[] valueBytes = encode(value);
+        long deadline = deadline(timeout);
+        pendingDeadlines.remove(cacheKey);
+        execute(connection -> {
+            upsert(connection, cacheKey, valueBytes, deadline);
+            return null;
+        });
+    }
+
+    @Override
+    public Object remove(Object key) {
+        String cacheKey = cacheKey(key);
+        pendingDeadlines.remove(cacheKey);
+        return execute(connection -> {
+            while (true) {
+                Row row = select(connection, cacheKey);
+                if (row == null) {
+                    return null;
+                }
+                if (compareAndSet(connection, cacheKey, row, null, 0)) {
+                    return isExpired(row.deadline) ? null : decode(row.value);
+                }
+            }
+        });
+    }
+
+    /**
+     * 写入本地续期索引，按flushInterval批量写入数据库
+     */
+    @Override
+    public void expire(Object key, long timeout) {
+        pendingDeadlines.put(cacheKey(key), deadline(timeout));
+    }
+
+    /**
+     * 数据不存在返回-2；永不过期返回-1；其他值表示剩余过期时间
+     *
+     * @param key key值
+     * @return 剩余过期时间
+     */
+    @Override
+    public Long getExpire(Object key) {
+        String cacheKey = cacheKey(key);
+        long deadline = execute(connection -> selectDeadline(connection, cacheKey));
+        if (deadline == AuthConstant.NEVER_EXPIRE || deadline == AuthConstant.EXPIRED_DATA_NOT_EXIST) {
+            return deadline;
+        }
+        long remaining = deadline - clock.currentTimeMillis();
+        return remaining > 0 ? remaining : AuthConstant.EXPIRED_DATA_NOT_EXIST;
+    }
+
+    /**
+     * 只查询到期时间，不读取value
+     */
+    @Override
+    public boolean isUnExpired(Object key) {
+        String cacheKey = cacheKey(key);
+        long deadline = execute(connection -> selectDeadline(connection, cacheKey));
+        return deadline != AuthConstant.EXPIRED_DATA_NOT_EXIST && !isExpired(deadline);
+    }
+
+    /**
+     * 按batchSize分批使用IN查询
+     */
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> keyMap = new LinkedHashMap<>();
+        for (Object key : keys) {
+            keyMap.put(cacheKey(key), key);
+        }
+        Map<String, Object> values = new HashMap<>();
+        execute(connection -> {
+            for (List<String> batch : batches(keyMap.keySet())) {
+                try (PreparedStatement statement = connection.prepareStatement(selectAllSql + placeholders(batch.size()))) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setString(i + 1, batch.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            String cacheKey = resultSet.getString(1);
+                            if (!isExpired(effectiveDeadline(cacheKey, resultSet.getLong(3)))) {
+                                values.put(cacheKey, decode(resultSet.getBytes(2)));
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        Map<Object, Object> result = new LinkedHashMap<>(Math.max(16, (int) (values.size() / 0.75f) + 1));
+        for (Map.Entry<String, Object> entry : keyMap.entrySet()) {
+            Object value = values.get(entry.getKey());
+            if (value != null) {
+                result.put(entry.getValue(), value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量UPDATE，不存在的key再批量INSERT，全部数据使用同一个到期时间戳
+     */
+    @Override
+    public void putAll(Map<?, ?> map, long timeout) {
+        if (map.isEmpty()) {
+            return;
+        }
+        long deadline = deadline(timeout);
+        Map<String, byte[]> rows = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String cacheKey = cacheKey(entry.getKey());
+            rows.put(cacheKey, encode(entry.getValue()));
+            pendingDeadlines.remove(cacheKey);
+        }
+        execute(connection -> {
+            List<String> missing = new ArrayList<>();
+            for (List<String> batch : batches(rows.keySet())) {
+                try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+                    for (String cacheKey : batch) {
+                        statement.setBytes(1, rows.get(cacheKey));
+                        statement.setLong(2, deadline);
+                        statement.setString(3, cacheKey);
+                        statement.addBatch();
+                    }
+                    int[] counts = statement.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            missing.add(batch.get(i));
+                        }
+                    }
+                }
+            }
+            // 并发插入同一个key时逐条重试
+            for (String cacheKey : missing) {
+                upsert(connection, cacheKey, rows.get(cacheKey), deadline);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 按batchSize分批使用IN删除
+     */
+    @Override
+    public void removeAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> cacheKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            String cacheKey = cacheKey(key);
+            cacheKeys.add(cacheKey);
+            pendingDeadlines.remove(cacheKey);
+        }
+        execute(connection -> {
+            for (List<String> batch : batches(cacheKeys)) {
+                try (PreparedStatement statement = connection.prepareStatement(deleteAllSql + placeholders(batch.size()))) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setString(i + 1, batch.get(i));
+                    }
+                    statement.executeUpdate();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 写入本地续期索引，按flushInterval批量写入数据库
+     */
+    @Override
+    public void expireAll(Collection<?> keys, long timeout) {
+        long deadline = deadline(timeout);
+        for (Object key : keys) {
+            pendingDeadlines.put(cacheKey(key), deadline);
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value, long timeout) {
+        String cacheKey = cacheKey(key);
+        byte[] valueBytes = encode(value);
+        return execute(connection -> {
+            while (true) {
+                Row row = select(connection, cacheKey);
+                if (row != null && !isExpired(row.deadline)) {
+                    return decode(row.value);
+                }
+                if (compareAndSet(connection, cacheKey, row, valueBytes, deadline(timeout))) {
+                    return null;
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean replace(Object key, Object expected, Object value) {
+        return replaceAt(key, expected, value, null);
+    }
+
+    @Override
+    public boolean replace(Object key, Object expected, Object value, long timeout) {
+        return replaceAt(key, expected, value, timeout);
+    }
+
+    @Override
+    public boolean remove(Object key, Object expected) {
+        String cacheKey = cacheKey(key);
+        return execute(connection -> {
+            while (true) {
+                Row row = select(connection, cacheKey);
+                if (row == null || isExpired(row.deadline) || !Objects.equals(decode(row.value), expected)) {
+                    return false;
+                }
+                if (compareAndSet(connection, cacheKey, row, null, 0)) {
+                    return true;
+                }
+            }
+        });
+    }
+
+    /**
+     * 按修订号比较并设置，计算函数可能被执行多次
+     */
+    @Override
+    public Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remapping, long timeout) {
+        String cacheKey = cacheKey(key);
+        return execute(connection -> {
+            while (true) {
+                Row row = select(connection, cacheKey);
+                Object current = row == null || isExpired(row.deadline) ? null : decode(row.value);
+                Object value = remapping.apply(key, current);
+                if (value == null && current == null) {
+                    return null;
+                }
+                if (compareAndSet(connection, cacheKey, row, value == null ? null : encode(value), deadline(timeout))) {
+                    return value;
+                }
+            }
+        });
+    }
+
+    /**
+     * 按修订号比较并设置，保持剩余过期时间不变，计算函数可能被执行多次
+     */
+    @Override
+    public Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> remapping) {
+        String cacheKey = cacheKey(key);
+        return execute(connection -> {
+            while (true) {
+                Row row = select(connection, cacheKey);
+                if (row == null || isExpired(row.deadline)) {
+                    return null;
+                }
+                Object value = remapping.apply(key, decode(row.value));
+                if (compareAndSet(connection, cacheKey, row, value == null ? null : encode(value), row.deadline)) {
+                    return value;
+                }
+            }
+        });
+    }
+
+    /**
+     * 将本地续期索引中的到期时间批量写入数据库
+     */
+    public void flush() {
+        if (pendingDeadlines.isEmpty()) {
+            return;
+        }
+        Map<String, Long> deadlines = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : pendingDeadlines.entrySet()) {
+            deadlines.put(entry.getKey(), entry.getValue());
+        }
+        execute(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(renewSql)) {
+                int count = 0;
+                for (Map.Entry<String, Long> entry : deadlines.entrySet()) {
+                    statement.setLong(1, entry.getValue());
+                    statement.setString(2, entry.getKey());
+                    statement.addBatch();
+                    if (++count % batchSize == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                if (count % batchSize != 0) {
+                    statement.executeBatch();
+                }
+            }
+            return null;
+        });
+        // 写入期间再次续期的key保留在索引中，下次写入
+        for (Map.Entry<String, Long> entry : deadlines.entrySet()) {
+            pendingDeadlines.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 先写入续期，再使用一条DELETE删除全部过期数据
+     */
+    public void purge() {
+        flush();
+        long currentTime = clock.currentTimeMillis();
+        execute(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(purgeSql)) {
+                statement.setLong(1, currentTime);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * 停止定时任务，并将尚未写入的续期写入数据库
+     */
+    @Override
+    public void close() {
+        flushTask.cancel(false);
+        purgeTask.cancel(false);
+        flush();
+    }
+
+    private boolean replaceAt(Object key, Object expected, Object value, Long timeout) {
+        String cacheKey = cacheKey(key);
+        byte[] valueBytes = encode(value);
+        return execute(connection -> {
+            while (true) {
+                Row row = select(connection, cacheKey);
+                if (row == null || isExpired(row.deadline) || !Objects.equals(decode(row.value), expected)) {
+                    return false;
+                }
+                long deadline = timeout == null ? row.deadline : deadline(timeout);
+                if (compareAndSet(connection, cacheKey, row, valueBytes, deadline)) {
+                    return true;
+                }
+            }
+        });
+    }
+
+    /**
+     * 按修订号比较并设置，成功后清除本地续期索引中的到期时间
+     *
+     * @param row   读取到的行，null表示期望不存在
+     * @param value 新值，null表示删除
+     * @return true:设置成功
+     */
+    private boolean compareAndSet(Connection connection, String cacheKey, Row row, byte[] value, long deadline) throws SQLException {
+        boolean succeeded;
+        if (row == null) {
+            succeeded = value == null || insert(connection, cacheKey, value, deadline);
+        } else if (value == null) {
+            try (PreparedStatement statement = connection.prepareStatement(compareAndDeleteSql)) {
+                statement.setString(1, cacheKey);
+                statement.setLong(2, row.revision);
+                succeeded = statement.executeUpdate() == 1;
+            }
+        } else {
+            try (PreparedStatement statement = connection.prepareStatement(compareAndUpdateSql)) {
+                statement.setBytes(1, value);
+                statement.setLong(2, deadline);
+                statement.setString(3, cacheKey);
+                statement.setLong(4, row.revision);
+                succeeded = statement.executeUpdate() == 1;
+            }
+        }
+        if (succeeded && row != null && row.pendingDeadline != null) {
+            pendingDeadlines.remove(cacheKey, row.pendingDeadline);
+        }
+        return succeeded;
+    }
+
+    private void upsert(Connection connection, String cacheKey, byte[] value, long deadline) throws SQLException {
+        while (true) {
+            try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+                statement.setBytes(1, value);
+                statement.setLong(2, deadline);
+                statement.setString(3, cacheKey);
+                if (statement.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            if (insert(connection, cacheKey, value, deadline)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 插入数据，key已存在时返回false
+     */
+    private boolean insert(Connection connection, String cacheKey, byte[] value, long deadline) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            statement.setString(1, cacheKey);
+            statement.setBytes(2, value);
+            statement.setLong(3, deadline);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private Row select(Connection connection, String cacheKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            statement.setString(1, cacheKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                Long pendingDeadline = pendingDeadlines.get(cacheKey);
+                return new Row(resultSet.getBytes(1), pendingDeadline != null ? pendingDeadline : resultSet.getLong(2),
+                        resultSet.getLong(3), pendingDeadline);
+            }
+        }
+    }
+
+    /**
+     * 查询到期时间，不存在返回-2
+     */
+    private long selectDeadline(Connection connection, String cacheKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(selectDeadlineSql)) {
+            statement.setString(1, cacheKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return AuthConstant.EXPIRED_DATA_NOT_EXIST;
+                }
+                return effectiveDeadline(cacheKey, resultSet.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * 本地续期索引中存在到期时间时以索引为准
+     */
+    private long effectiveDeadline(String cacheKey, long deadline) {
+        Long pendingDeadline = pendingDeadlines.get(cacheKey);
+        return pendingDeadline != null ? pendingDeadline : deadline;
+    }
+
+    private boolean isExpired(long deadline) {
+        return deadline != AuthConstant.NEVER_EXPIRE && deadline <= clock.currentTimeMillis();
+    }
+
+    private long deadline(long timeout) {
+        return timeout == AuthConstant.NEVER_EXPIRE ? AuthConstant.NEVER_EXPIRE : clock.currentTimeMillis() + timeout;
+    }
+
+    private <T> T execute(SqlFunction<T> action) {
+        try (Connection connection = dataSource.getConnection()) {
+            return action.apply(connection);
+        } catch (SQLException e) {
+            throw new AuthException("数据库缓存操作失败", e);
+        }
+    }
+
+    private <T> List<List<T>> batches(Collection<T> items) {
+        List<List<T>> batches = new ArrayList<>();
+        List<T> batch = new ArrayList<>(Math.min(items.size(), batchSize));
+        for (T item : items) {
+            batch.add(item);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3 + 2).append('(');
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(')').toString();
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException || (e.getSQLState() != null && e.getSQLState().startsWith("23"));
+    }
+
+    private static String cacheKey(Object key) {
+        return key.toString();
+    }
+
+    private byte[] encode(Object value) {
+        return codec.encode(value);
+    }
+
+    private Object decode(byte[] bytes) {
+        return codec.decode(bytes);
+    }
+
+    @FunctionalInterface
+    private interface SqlFunction<T> {
+
+        T apply(Connection connection) throws SQLException;
+
+    }
+
+    private static final class Row {
+
+        private final byte[] value;
+
+        /**
+         * 到期时间戳，本地续期索引中存在时为索引中的值
+         */
+        private final long deadline;
+
+        private final long revision;
+
+        private final Long pendingDeadline;
+
+        private Row(byte[] value, long deadline, long revision, Long pendingDeadline) {
+            this.value = value;
+            this.deadline = deadline;
+            this.revision = revision;
+            this.pendingDeadline = pendingDeadline;
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.opensef.auth.jdbc;
+
+/**
+ * 数据库缓存配置
+ */
+public class JdbcCacheConfig {
+
+    /**
+     * 默认表名
+     */
+    public static final String DEFAULT_TABLE_NAME = "venus_auth_cache";
+
+    /**
+     * 默认续期写入数据库的时间间隔（毫秒）
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+
+    /**
+     * 默认删除过期数据的时间间隔（毫秒）
+     */
+    public static final long DEFAULT_PURGE_INTERVAL = 60 * 1000L;
+
+    /**
+     * 默认每批执行的SQL数量
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * 表名，建表语句见schema-h2.sql、schema-mysql.sql、schema-postgresql.sql
+     */
+    private String tableName = DEFAULT_TABLE_NAME;
+
+    /**
+     * 续期写入数据库的时间间隔（毫秒），同一key在间隔内的多次续期合并为一次UPDATE
+     */
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    /**
+     * 删除过期数据的时间间隔（毫秒）
+     */
+    private long purgeInterval = DEFAULT_PURGE_INTERVAL;
+
+    /**
+     * 每批执行的SQL数量，批量续期、批量查询及删除时按此数量分批
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public long getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(long purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+}
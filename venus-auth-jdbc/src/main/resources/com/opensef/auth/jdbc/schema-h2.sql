@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS venus_auth_cache (
+    cache_key   VARCHAR(512)    NOT NULL PRIMARY KEY,
+    cache_value VARBINARY       NOT NULL,
+    expire_at   BIGINT          NOT NULL,
+    revision    BIGINT          NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_venus_auth_cache_expire_at ON venus_auth_cache (expire_at);
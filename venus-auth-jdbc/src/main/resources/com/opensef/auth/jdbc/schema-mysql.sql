@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS venus_auth_cache (
+    cache_key   VARCHAR(512)    NOT NULL PRIMARY KEY,
+    cache_value MEDIUMBLOB      NOT NULL,
+    expire_at   BIGINT          NOT NULL,
+    revision    BIGINT          NOT NULL,
+    INDEX idx_venus_auth_cache_expire_at (expire_at)
+);
@@ -0,0 +1,254 @@
+package com.opensef.auth.jdbc;
+
+import com.opensef.auth.constant.AuthConstant;
+import com.opensef.auth.session.AuthSession;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JdbcCache测试，使用H2内存数据库
+ */
+class JdbcCacheTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private DataSource dataSource;
+
+    private JdbcCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : schema().split(";")) {
+                if (!sql.isBlank()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+        dataSource = countingDataSource(h2);
+
+        // 定时任务间隔足够长，由测试调用flush、purge
+        JdbcCacheConfig config = new JdbcCacheConfig();
+        config.setFlushInterval(HOUR);
+        config.setPurgeInterval(HOUR);
+        config.setBatchSize(2);
+        cache = new JdbcCache(dataSource, config, now::get);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        cache.close();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    /**
+     * 续期只写入本地索引，读取时以索引为准，多次续期合并为一次批量写入
+     */
+    @Test
+    void renewalsAreCoalescedAndFlushed() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            cache.put("key" + i, "value" + i, 1000);
+        }
+        long base = now.get();
+
+        connections.set(0);
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 5; i++) {
+                cache.expire("key" + i, round * 10000L);
+            }
+        }
+        cache.expireAll(List.of("key3", "key4"), 50000);
+        assertEquals(0, connections.get());
+
+        // 数据库中仍是写入时的到期时间，读取时使用本地索引
+        assertEquals(base + 1000, storedDeadline("key0"));
+        now.addAndGet(2000);
+        assertEquals("value0", cache.get("key0"));
+        assertEquals(28000L, cache.getExpire("key0"));
+
+        connections.set(0);
+        cache.flush();
+        assertEquals(1, connections.get());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(base + 30000, storedDeadline("key" + i));
+        }
+        assertEquals(base + 50000, storedDeadline("key3"));
+        assertEquals(base + 50000, storedDeadline("key4"));
+
+        // 已全部写入，不再访问数据库
+        connections.set(0);
+        cache.flush();
+        assertEquals(0, connections.get());
+    }
+
+    /**
+     * 一条DELETE删除全部过期数据，删除前先写入续期，永不过期的数据保留
+     */
+    @Test
+    void purgeDeletesExpiredRows() throws SQLException {
+        for (int i = 0; i < 5; i++) {
+            cache.put("expired" + i, i, 1000);
+        }
+        cache.put("renewed", "value", 1000);
+        cache.put("alive", "value", 10000);
+        cache.put("forever", "value", AuthConstant.NEVER_EXPIRE);
+        cache.expire("renewed", 10000);
+
+        now.addAndGet(5000);
+        cache.purge();
+
+        assertEquals(3, rowCount());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AuthConstant.EXPIRED_DATA_NOT_EXIST, storedDeadline("expired" + i));
+        }
+        assertEquals("value", cache.get("renewed"));
+        assertEquals("value", cache.get("alive"));
+        assertEquals(AuthConstant.NEVER_EXPIRE, cache.getExpire("forever"));
+
+        now.addAndGet(HOUR);
+        cache.purge();
+        assertEquals(1, rowCount());
+        assertNull(cache.get("alive"));
+    }
+
+    /**
+     * 同一用户并发登录，session按修订号比较并设置，全部token都保留
+     */
+    @Test
+    void concurrentLoginsKeepAllTokens() throws Exception {
+        int threads = 8;
+        int loginsPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < loginsPerThread; i++) {
+                        String token = "token-" + thread + "-" + i;
+                        cache.putAndCompute("auth:token:" + token, "1", "auth:session:user",
+                                (key, session) -> attachToken((AuthSession) session, token), HOUR);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        AuthSession session = (AuthSession) cache.get("auth:session:user");
+        assertEquals(threads * loginsPerThread, session.tokenCount());
+        assertEquals(threads * loginsPerThread - 1, session.getRevision());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < loginsPerThread; i++) {
+                assertTrue(session.containsToken("token-" + t + "-" + i));
+            }
+        }
+        assertEquals(threads * loginsPerThread + 1, rowCount());
+    }
+
+    private long storedDeadline(String key) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT expire_at FROM venus_auth_cache WHERE cache_key = ?")) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : AuthConstant.EXPIRED_DATA_NOT_EXIST;
+            }
+        }
+    }
+
+    private int rowCount() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM venus_auth_cache")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * 统计获取连接的次数
+     */
+    private DataSource countingDataSource(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        connections.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static String schema() throws IOException {
+        try (InputStream in = JdbcCache.class.getResourceAsStream("schema-h2.sql")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 与AuthManager相同，复制session后添加token
+     */
+    private static AuthSession attachToken(AuthSession session, String token) {
+        AuthSession newSession = new AuthSession();
+        if (session == null) {
+            newSession.setSessionId("user");
+            newSession.setCreatedTime(System.currentTimeMillis());
+        } else {
+            newSession.setSessionId(session.getSessionId());
+            newSession.setCreatedTime(session.getCreatedTime());
+            newSession.setRevision(session.getRevision() + 1);
+            Set<String> tokens = session.getTokens();
+            newSession.setTokens(tokens == null ? new LinkedHashSet<>() : new LinkedHashSet<>(tokens));
+        }
+        newSession.addToken(token);
+        return newSession;
+    }
+
+}
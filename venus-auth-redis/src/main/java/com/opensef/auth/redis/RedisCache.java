@@ -0,0 +1,400 @@
+package com.opensef.auth.redis;
+
+import com.opensef.auth.cache.AuthCodec;
+import com.opensef.auth.cache.BinaryAuthCodec;
+import com.opensef.auth.cache.Cache;
+import com.opensef.auth.cache.CacheKey;
+import com.opensef.auth.cache.JacksonAuthCodec;
+import com.opensef.auth.constant.AuthConstant;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Redis缓存<br/>
+ * 批量操作使用管道，putIfAbsent、replace、remove(key, expected)及compute使用Lua脚本比较并设置，
+ * 登录时保存token和更新session在一次网络往返内完成（session已存在时为两次）。<br/>
+ * 比较并设置按序列化后的字节比较，compute、computeIfPresent直接使用读取到的字节作为期望值，不受序列化结果是否稳定的影响
+ */
+public class RedisCache implements Cache<Object, Object> {
+
+    /**
+     * 保持剩余过期时间，与COMPARE_AND_SET脚本中的约定一致
+     */
+    private static final long KEEP_TTL = -3;
+
+    private static final byte[] ZERO = {'0'};
+
+    private static final byte[] ONE = {'1'};
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final AuthCodec codec;
+
+    /**
+     * value使用二进制编码，不支持的类型及切换前写入的数据使用JSON
+     *
+     * @param connectionFactory 连接工厂
+     */
+    public RedisCache(RedisConnectionFactory connectionFactory) {
+        this(connectionFactory, new BinaryAuthCodec(new JacksonAuthCodec()));
+    }
+
+    /**
+     * @param connectionFactory 连接工厂
+     * @param codec             value编码
+     */
+    public RedisCache(RedisConnectionFactory connectionFactory, AuthCodec codec) {
+        this.connectionFactory = connectionFactory;
+        this.codec = codec;
+    }
+
+    /**
+     * 使用CacheKey的字节编码，前缀部分不再重复编码
+     */
+    @Override
+    public Object resolveKey(CacheKey key) {
+        return key;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return decode(execute(connection -> connection.stringCommands().get(keyBytes(key))));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, AuthConstant.NEVER_EXPIRE);
+    }
+
+    @Override
+    public void put(Object key, Object value, long timeout) {
+        execute(connection -> set(connection, keyBytes(key), encode(value), timeout));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return decode((byte[]) execute(connection -> eval(connection, RedisScript.GET_AND_DELETE, ReturnType.VALUE, keyBytes(key))));
+    }
+
+    @Override
+    public void expire(Object key, long timeout) {
+        execute(connection -> expire(connection, keyBytes(key), timeout));
+    }
+
+    /**
+     * 数据不存在返回-2；永不过期返回-1；其他值表示剩余过期时间
+     *
+     * @param key key值
+     * @return 剩余过期时间
+     */
+    @Override
+    public Long getExpire(Object key) {
+        return execute(connection -> connection.keyCommands().pTtl(keyBytes(key)));
+    }
+
+    @Override
+    public boolean isUnExpired(Object key) {
+        return Boolean.TRUE.equals(execute(connection -> connection.keyCommands().exists(keyBytes(key))));
+    }
+
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Object> keyList = new ArrayList<>(keys);
+        List<byte[]> values = execute(connection -> connection.stringCommands().mGet(keysBytes(keyList)));
+        Map<Object, Object> result = new LinkedHashMap<>(Math.max(16, (int) (keyList.size() / 0.75f) + 1));
+        for (int i = 0; i < keyList.size(); i++) {
+            Object value = decode(values.get(i));
+            if (value != null) {
+                result.put(keyList.get(i), value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 使用管道批量设置，一次网络往返
+     */
+    @Override
+    public void putAll(Map<?, ?> map, long timeout) {
+        if (map.isEmpty()) {
+            return;
+        }
+        pipelined(connection -> {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                set(connection, keyBytes(entry.getKey()), encode(entry.getValue()), timeout);
+            }
+        });
+    }
+
+    @Override
+    public void removeAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        execute(connection -> connection.keyCommands().del(keysBytes(keys)));
+    }
+
+    /**
+     * 使用管道批量设置过期时间，一次网络往返
+     */
+    @Override
+    public void expireAll(Collection<?> keys, long timeout) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        pipelined(connection -> {
+            for (Object key : keys) {
+                expire(connection, keyBytes(key), timeout);
+            }
+        });
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value, long timeout) {
+        byte[] keyBytes = keyBytes(key);
+        byte[] valueBytes = encode(value);
+        return execute(connection -> {
+            while (true) {
+                List<Object> result = compareAndSet(connection, keyBytes, null, valueBytes, timeout);
+                if (succeeded(result)) {
+                    return null;
+                }
+                // 当前值在读取前已过期或被删除时重试
+                Object current = decode(current(result));
+                if (current != null) {
+                    return current;
+                }
+            }
+        });
+    }
+
+    /**
+     * 按序列化后的字节比较当前值和期望值
+     */
+    @Override
+    public boolean replace(Object key, Object expected, Object value) {
+        return replace(key, expected, value, KEEP_TTL);
+    }
+
+    /**
+     * 按序列化后的字节比较当前值和期望值
+     */
+    @Override
+    public boolean replace(Object key, Object expected, Object value, long timeout) {
+        if (expected == null) {
+            return false;
+        }
+        return succeeded(execute(connection -> compareAndSet(connection, keyBytes(key), encode(expected), encode(value), timeout)));
+    }
+
+    /**
+     * 按序列化后的字节比较当前值和期望值
+     */
+    @Override
+    public boolean remove(Object key, Object expected) {
+        if (expected == null) {
+            return false;
+        }
+        return succeeded(execute(connection -> compareAndSet(connection, keyBytes(key), encode(expected), null, KEEP_TTL)));
+    }
+
+    /**
+     * 读取当前值后使用Lua脚本比较并设置，比较失败时脚本返回最新值，不需要再次读取
+     */
+    @Override
+    public Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remapping, long timeout) {
+        byte[] keyBytes = keyBytes(key);
+        return execute(connection -> computeFrom(connection, key, keyBytes, connection.stringCommands().get(keyBytes), remapping, timeout));
+    }
+
+    /**
+     * 读取当前值后使用Lua脚本比较并设置，比较失败时脚本返回最新值，不需要再次读取
+     */
+    @Override
+    public Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> remapping) {
+        byte[] keyBytes = keyBytes(key);
+        return execute(connection -> {
+            byte[] current = connection.stringCommands().get(keyBytes);
+            while (current != null) {
+                Object value = remapping.apply(key, decode(current));
+                List<Object> result = compareAndSet(connection, keyBytes, current, value == null ? null : encode(value), KEEP_TTL);
+                if (succeeded(result)) {
+                    return value;
+                }
+                current = current(result);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 设置token的同时按key不存在计算session，二者在同一个管道中发送，session不存在时一次网络往返完成；
+     * session已存在时脚本返回当前值，再比较并设置一次
+     */
+    @Override
+    public Object putAndCompute(Object putKey, Object putValue, Object key, BiFunction<? super Object, ? super Object, ?> remapping, long timeout) {
+        byte[] putKeyBytes = keyBytes(putKey);
+        byte[] putValueBytes = encode(putValue);
+        byte[] keyBytes = keyBytes(key);
+        return execute(connection -> {
+            Object value = remapping.apply(key, null);
+            byte[] valueBytes = value == null ? null : encode(value);
+            connection.openPipeline();
+            set(connection, putKeyBytes, putValueBytes, timeout);
+            compareAndSet(connection, keyBytes, null, valueBytes, timeout);
+            @SuppressWarnings("unchecked")
+            List<Object> result = (List<Object>) connection.closePipeline().get(1);
+            if (succeeded(result)) {
+                return value;
+            }
+            return computeFrom(connection, key, keyBytes, current(result), remapping, timeout);
+        });
+    }
+
+    private Object computeFrom(RedisConnection connection, Object key, byte[] keyBytes, byte[] current,
+                               BiFunction<? super Object, ? super Object, ?> remapping, long timeout) {
+        while (true) {
+            Object value = remapping.apply(key, decode(current));
+            if (current == null && value == null) {
+                return null;
+            }
+            List<Object> result = compareAndSet(connection, keyBytes, current, value == null ? null : encode(value), timeout);
+            if (succeeded(result)) {
+                return value;
+            }
+            current = current(result);
+        }
+    }
+
+    /**
+     * 执行COMPARE_AND_SET脚本
+     *
+     * @param expected 期望值，null为期望不存在
+     * @param value    新值，null为删除
+     * @param timeout  过期时间（毫秒），-1为永不过期，KEEP_TTL为保持剩余过期时间
+     * @return 脚本结果，管道中执行时为null
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> compareAndSet(RedisConnection connection, byte[] key, byte[] expected, byte[] value, long timeout) {
+        return (List<Object>) eval(connection, RedisScript.COMPARE_AND_SET, ReturnType.MULTI, key,
+                expected == null ? ZERO : ONE, expected == null ? EMPTY : expected,
+                value == null ? ZERO : ONE, value == null ? EMPTY : value,
+                String.valueOf(timeout).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean succeeded(List<Object> result) {
+        return ((Number) result.get(0)).longValue() == 1;
+    }
+
+    private static byte[] current(List<Object> result) {
+        return result.size() > 1 ? (byte[]) result.get(1) : null;
+    }
+
+    private static Object eval(RedisConnection connection, RedisScript script, ReturnType returnType, byte[] key, byte[]... args) {
+        byte[][] keysAndArgs = new byte[args.length + 1][];
+        keysAndArgs[0] = key;
+        System.arraycopy(args, 0, keysAndArgs, 1, args.length);
+        return connection.scriptingCommands().evalSha(script.getSha1(), returnType, 1, keysAndArgs);
+    }
+
+    private static Object set(RedisConnection connection, byte[] key, byte[] value, long timeout) {
+        if (timeout == AuthConstant.NEVER_EXPIRE) {
+            return connection.stringCommands().set(key, value);
+        }
+        return connection.stringCommands().set(key, value, Expiration.milliseconds(timeout), RedisStringCommands.SetOption.upsert());
+    }
+
+    private static Object expire(RedisConnection connection, byte[] key, long timeout) {
+        if (timeout == AuthConstant.NEVER_EXPIRE) {
+            return connection.keyCommands().persist(key);
+        }
+        return connection.keyCommands().pExpire(key, timeout);
+    }
+
+    private void pipelined(Consumer<RedisConnection> action) {
+        execute(connection -> {
+            connection.openPipeline();
+            action.accept(connection);
+            return connection.closePipeline();
+        });
+    }
+
+    /**
+     * 获取连接执行操作，脚本未加载（例如Redis重启或执行了SCRIPT FLUSH）时加载全部脚本后重试一次
+     */
+    private <T> T execute(Function<RedisConnection, T> action) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            try {
+                return action.apply(connection);
+            } catch (DataAccessException e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                if (connection.isPipelined()) {
+                    connection.closePipeline();
+                }
+                for (RedisScript script : RedisScript.values()) {
+                    connection.scriptingCommands().scriptLoad(script.getSource());
+                }
+                return action.apply(connection);
+            }
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] encode(Object value) {
+        return codec.encode(value);
+    }
+
+    private Object decode(byte[] bytes) {
+        return bytes == null ? null : codec.decode(bytes);
+    }
+
+    private static byte[][] keysBytes(Collection<?> keys) {
+        byte[][] keysBytes = new byte[keys.size()][];
+        int i = 0;
+        for (Object key : keys) {
+            keysBytes[i++] = keyBytes(key);
+        }
+        return keysBytes;
+    }
+
+    private static byte[] keyBytes(Object key) {
+        if (key instanceof CacheKey) {
+            return ((CacheKey) key).toBytes();
+        }
+        if (key instanceof byte[]) {
+            return (byte[]) key;
+        }
+        return String.valueOf(key).getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.opensef.auth.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Lua脚本，按SHA1执行，Redis中不存在脚本时由RedisCache加载后重试
+ */
+final class RedisScript {
+
+    /**
+     * 读取并删除
+     * KEYS[1] key
+     */
+    static final RedisScript GET_AND_DELETE = new RedisScript(
+            "local value = redis.call('GET', KEYS[1])\n" +
+            "if value then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return value");
+
+    /**
+     * 比较并设置，成功返回{1}，失败返回{0, 当前值}
+     * KEYS[1] key
+     * ARGV[1] 1:期望值为ARGV[2]，0:期望不存在
+     * ARGV[2] 期望值
+     * ARGV[3] 1:设置为ARGV[4]，0:删除
+     * ARGV[4] 新值
+     * ARGV[5] 过期时间（毫秒），-1为永不过期，-3为保持剩余过期时间
+     */
+    static final RedisScript COMPARE_AND_SET = new RedisScript(
+            "local current = redis.call('GET', KEYS[1])\n" +
+            "if ARGV[1] == '1' then\n" +
+            "  if current ~= ARGV[2] then\n" +
+            "    return {0, current}\n" +
+            "  end\n" +
+            "elseif current then\n" +
+            "  return {0, current}\n" +
+            "end\n" +
+            "if ARGV[3] == '0' then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "  return {1}\n" +
+            "end\n" +
+            "local ttl = tonumber(ARGV[5])\n" +
+            "if ttl == -3 then\n" +
+            "  ttl = redis.call('PTTL', KEYS[1])\n" +
+            "end\n" +
+            "if ttl > 0 then\n" +
+            "  redis.call('SET', KEYS[1], ARGV[4], 'PX', ttl)\n" +
+            "else\n" +
+            "  redis.call('SET', KEYS[1], ARGV[4])\n" +
+            "end\n" +
+            "return {1}");
+
+    private final byte[] source;
+
+    private final String sha1;
+
+    private RedisScript(String source) {
+        this.source = source.getBytes(StandardCharsets.UTF_8);
+        this.sha1 = sha1(this.source);
+    }
+
+    byte[] getSource() {
+        return source;
+    }
+
+    String getSha1() {
+        return sha1;
+    }
+
+    static RedisScript[] values() {
+        return new RedisScript[]{GET_AND_DELETE, COMPARE_AND_SET};
+    }
+
+    private static String sha1(byte[] source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.opensef.auth.redis;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.opensef.auth.authc.AuthToken;
+import com.opensef.auth.authc.AuthTokenValue;
+import com.opensef.auth.authc.DefaultTokenHandler;
+import com.opensef.auth.clock.ManualClock;
+import com.opensef.auth.config.AuthConfig;
+import com.opensef.auth.config.TokenStyle;
+import com.opensef.auth.manager.AuthManager;
+import com.opensef.auth.session.AuthSession;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RedisCache测试，使用内嵌的模拟Redis服务
+ */
+class RedisCacheTest {
+
+    private RedisServer server;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        // 模拟服务只支持RESP2
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+                .build();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", server.getBindPort()),
+                clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        cache = new RedisCache(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    /**
+     * 同一用户并发登录，每次登录都保存token并向session添加token，全部token都保留
+     */
+    @Test
+    void concurrentLoginsKeepAllTokens() throws Exception {
+        int threads = 8;
+        int loginsPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < loginsPerThread; i++) {
+                        String token = "token-" + thread + "-" + i;
+                        cache.putAndCompute("auth:token:" + token, "1", "auth:session:user",
+                                (key, session) -> attachToken((AuthSession) session, token), 60000);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        AuthSession session = (AuthSession) cache.get("auth:session:user");
+        assertEquals(threads * loginsPerThread, session.tokenCount());
+        assertEquals(threads * loginsPerThread - 1, session.getRevision());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < loginsPerThread; i++) {
+                assertTrue(session.containsToken("token-" + t + "-" + i));
+                assertTrue(cache.isUnExpired("auth:token:token-" + t + "-" + i));
+            }
+        }
+    }
+
+    /**
+     * putIfAbsent、replace、remove(key, expected)按序列化后的字节比较
+     */
+    @Test
+    void compareAndSet() {
+        assertNull(cache.putIfAbsent("key", "a", 60000));
+        assertEquals("a", cache.putIfAbsent("key", "b", 60000));
+
+        assertFalse(cache.replace("key", "b", "c"));
+        assertTrue(cache.replace("key", "a", "c"));
+        assertEquals("c", cache.get("key"));
+        // 保持剩余过期时间
+        long expire = cache.getExpire("key");
+        assertTrue(expire > 0 && expire <= 60000);
+
+        assertTrue(cache.replace("key", "c", "d", 120000));
+        assertTrue(cache.getExpire("key") > 60000);
+
+        assertFalse(cache.remove("key", "c"));
+        assertTrue(cache.remove("key", "d"));
+        assertNull(cache.get("key"));
+        assertFalse(cache.replace("key", "d", "e"));
+    }
+
+    /**
+     * compute返回null时删除，computeIfPresent在key不存在时不计算
+     */
+    @Test
+    void compute() {
+        assertEquals(1L, cache.compute("counter", (key, value) -> value == null ? 1L : (Long) value + 1, 60000));
+        assertEquals(2L, cache.compute("counter", (key, value) -> value == null ? 1L : (Long) value + 1, 60000));
+        assertEquals(3L, cache.computeIfPresent("counter", (key, value) -> (Long) value + 1));
+        assertNull(cache.compute("counter", (key, value) -> null, 60000));
+        assertNull(cache.get("counter"));
+        assertNull(cache.computeIfPresent("counter", (key, value) -> 1L));
+        assertNull(cache.get("counter"));
+    }
+
+    /**
+     * 续期按读取到的字节比较并设置，附加信息反序列化后类型变化（Float读取为Double）时仍能续期
+     */
+    @Test
+    void renewTokenWithAddInfoNotRoundTripping() {
+        ManualClock clock = new ManualClock(1_000_000L);
+        AuthConfig authConfig = new AuthConfig();
+        authConfig.setTimeout(3600L);
+        authConfig.setTokenKey("auth:token");
+        authConfig.setSessionKey("auth:session");
+        authConfig.setClock(clock);
+        String[] currentToken = new String[1];
+        AuthManager authManager = new AuthManager();
+        authManager.init(new DefaultTokenHandler(TokenStyle.UUID), () -> currentToken[0], null, cache, authConfig);
+
+        Map<String, Object> addInfo = new HashMap<>();
+        addInfo.put("score", 1.5F);
+        AuthToken token = authManager.login("user", addInfo, null);
+        currentToken[0] = token.getToken();
+        AuthTokenValue tokenValue = authManager.getTokenValue(token.getToken());
+        // 重新编码后与缓存中的字节不一致，按值比较并设置会失败
+        assertFalse(cache.replace(authManager.getTokenCacheKey(token.getToken()), tokenValue, tokenValue));
+
+        // 剩余有效期低于一半时续期
+        clock.advance(2000_000L);
+        authManager.updateTokenAndSessionTimeout();
+        AuthTokenValue renewed = authManager.getTokenValue(token.getToken());
+        assertEquals(clock.currentTimeMillis() + 3600_000L, (long) renewed.getExpireTime());
+        assertEquals(1.5, ((Number) renewed.getAddInfo().get("score")).doubleValue());
+        assertTrue(cache.getExpire(authManager.getTokenCacheKey(token.getToken())) > 3600_000L - 2000_000L);
+    }
+
+    /**
+     * Redis中的脚本被清除后，加载脚本并重试
+     */
+    @Test
+    void reloadScriptsAfterFlush() {
+        assertNull(cache.putIfAbsent("key", "a", 60000));
+        flushScripts();
+        assertTrue(cache.replace("key", "a", "b"));
+        assertEquals("b", cache.get("key"));
+
+        flushScripts();
+        assertEquals("b", cache.remove("key"));
+
+        // 管道中执行脚本时同样重试
+        flushScripts();
+        AuthSession session = (AuthSession) cache.putAndCompute("auth:token:t1", "1", "auth:session:user",
+                (key, current) -> attachToken((AuthSession) current, "t1"), 60000);
+        assertTrue(session.containsToken("t1"));
+        assertEquals("1", cache.get("auth:token:t1"));
+    }
+
+    private void flushScripts() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().scriptFlush();
+        }
+    }
+
+    /**
+     * 与AuthManager相同，复制session后添加token
+     */
+    private static AuthSession attachToken(AuthSession session, String token) {
+        AuthSession newSession = new AuthSession();
+        if (session == null) {
+            newSession.setSessionId("user");
+            newSession.setCreatedTime(System.currentTimeMillis());
+        } else {
+            newSession.setSessionId(session.getSessionId());
+            newSession.setCreatedTime(session.getCreatedTime());
+            newSession.setRevision(session.getRevision() + 1);
+            Set<String> tokens = session.getTokens();
+            newSession.setTokens(tokens == null ? new LinkedHashSet<>() : new LinkedHashSet<>(tokens));
+        }
+        newSession.addToken(token);
+        return newSession;
+    }
+
+}
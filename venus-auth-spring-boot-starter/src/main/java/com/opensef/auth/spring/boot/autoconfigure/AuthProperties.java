@@ -1,6 +1,9 @@
 package com.opensef.auth.spring.boot.autoconfigure;
 
+import com.opensef.auth.config.MemoryCacheConfig;
+import com.opensef.auth.config.PermissionCacheConfig;
 import com.opensef.auth.config.TokenStyle;
+import com.opensef.auth.constant.AuthConstant;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.Objects;
@@ -28,6 +31,11 @@ public class AuthProperties {
      */
     public static final String DEFAULT_SESSION_KEY = "auth:session";
 
+    /**
+     * 默认签名密钥ID
+     */
+    public static final String DEFAULT_SIGNING_KEY_ID = "1";
+
     /**
      * token名称，系统根据此名称从请求头和URL中获取token值
      */
@@ -39,7 +47,7 @@ public class AuthProperties {
     private Long timeout = DEFAULT_TIMEOUT;
 
     /**
-     * token风格，UUID、random32,random64、random128，默认为uuid
+     * token风格，UUID、random32,random64、random128、base64-128、base64-256、signed，默认为uuid
      * 当实现TokenHandler接口自定义实现时，此配置不生效
      */
     private TokenStyle tokenStyle = DEFAULT_TOKEN_STYLE;
@@ -54,6 +62,57 @@ public class AuthProperties {
      */
     private String sessionKey = DEFAULT_SESSION_KEY;
 
+    /**
+     * 时钟精度（毫秒），大于0时由后台线程按此精度缓存当前时间，降低高并发下读取系统时间的开销；
+     * 默认为0，每次读取系统时间。容器中存在AuthClock时此配置不生效
+     */
+    private long clockPrecision;
+
+    /**
+     * 续期阈值，剩余有效期低于有效期的此比例时才续期，默认0.5；为1时每次请求都续期
+     */
+    private double renewThreshold = AuthConstant.DEFAULT_RENEW_THRESHOLD;
+
+    /**
+     * 续期去重时间窗口（毫秒），同一token在窗口内只续期一次，默认1000
+     */
+    private long renewWindow = AuthConstant.DEFAULT_RENEW_WINDOW;
+
+    /**
+     * 同一登录唯一标识的token数量上限，超出时按登录顺序淘汰最早的token；小于等于0时不限制，默认0
+     */
+    private int maxTokens;
+
+    /**
+     * 签名密钥，token风格为signed时必须配置，长度不能少于32字节
+     */
+    private String signingKey;
+
+    /**
+     * 签名密钥ID，写入token中，更换密钥时使用新的ID，默认为1
+     */
+    private String signingKeyId = DEFAULT_SIGNING_KEY_ID;
+
+    /**
+     * 是否使用路由token，token中包含分片及由登录唯一标识计算的路由标识，根据token读取session时token和session在一次批量读取中获取，默认false
+     */
+    private boolean routingToken;
+
+    /**
+     * 路由密钥，使用路由token时必须配置，长度不能少于32字节；路由标识为登录唯一标识的HMAC，token中不包含登录唯一标识
+     */
+    private String routingKey;
+
+    /**
+     * 内存缓存配置，仅在未自定义Cache实现时生效
+     */
+    private MemoryCacheConfig memoryCache = new MemoryCacheConfig();
+
+    /**
+     * 角色权限缓存配置，开启后缓存PermissionHandler返回的角色和权限
+     */
+    private PermissionCacheConfig permissionCache = new PermissionCacheConfig();
+
     public String getTokenName() {
         return tokenName;
     }
@@ -94,4 +153,84 @@ public class AuthProperties {
         this.sessionKey = Objects.requireNonNullElse(sessionKey, DEFAULT_SESSION_KEY);
     }
 
+    public long getClockPrecision() {
+        return clockPrecision;
+    }
+
+    public void setClockPrecision(long clockPrecision) {
+        this.clockPrecision = clockPrecision;
+    }
+
+    public double getRenewThreshold() {
+        return renewThreshold;
+    }
+
+    public void setRenewThreshold(double renewThreshold) {
+        this.renewThreshold = renewThreshold;
+    }
+
+    public long getRenewWindow() {
+        return renewWindow;
+    }
+
+    public void setRenewWindow(long renewWindow) {
+        this.renewWindow = renewWindow;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public String getSigningKey() {
+        return signingKey;
+    }
+
+    public void setSigningKey(String signingKey) {
+        this.signingKey = signingKey;
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    public void setSigningKeyId(String signingKeyId) {
+        this.signingKeyId = Objects.requireNonNullElse(signingKeyId, DEFAULT_SIGNING_KEY_ID);
+    }
+
+    public boolean isRoutingToken() {
+        return routingToken;
+    }
+
+    public void setRoutingToken(boolean routingToken) {
+        this.routingToken = routingToken;
+    }
+
+    public String getRoutingKey() {
+        return routingKey;
+    }
+
+    public void setRoutingKey(String routingKey) {
+        this.routingKey = routingKey;
+    }
+
+    public MemoryCacheConfig getMemoryCache() {
+        return memoryCache;
+    }
+
+    public void setMemoryCache(MemoryCacheConfig memoryCache) {
+        this.memoryCache = Objects.requireNonNullElseGet(memoryCache, MemoryCacheConfig::new);
+    }
+
+    public PermissionCacheConfig getPermissionCache() {
+        return permissionCache;
+    }
+
+    public void setPermissionCache(PermissionCacheConfig permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
 }
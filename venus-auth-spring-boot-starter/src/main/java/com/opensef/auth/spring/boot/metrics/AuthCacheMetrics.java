@@ -0,0 +1,56 @@
+package com.opensef.auth.spring.boot.metrics;
+
+import com.opensef.auth.cache.CacheStats;
+import com.opensef.auth.manager.AuthManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 将认证缓存的统计信息注册为Micrometer指标
+ */
+public class AuthCacheMetrics implements MeterBinder {
+
+    private static final String PREFIX = "venus.auth.cache";
+
+    private final AuthManager authManager;
+
+    public AuthCacheMetrics(AuthManager authManager) {
+        this.authManager = authManager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(PREFIX + ".size", authManager, stats(CacheStats::getSize))
+                .description("缓存数量，包含已过期但尚未清理的数据")
+                .register(registry);
+        counter(registry, PREFIX + ".gets", CacheStats::getHitCount, "读取次数", "result", "hit");
+        counter(registry, PREFIX + ".gets", CacheStats::getMissCount, "读取次数", "result", "miss");
+        counter(registry, PREFIX + ".evictions", CacheStats::getEvictionCount, "因超出最大缓存数量被淘汰的数量");
+        counter(registry, PREFIX + ".expirations", CacheStats::getExpiredOnReadCount, "过期删除的数量", "cause", "read");
+        counter(registry, PREFIX + ".expirations", CacheStats::getExpiredBySweepCount, "过期删除的数量", "cause", "sweep");
+        FunctionTimer.builder(PREFIX + ".sweeps", authManager,
+                        manager -> manager.getCacheStats().getSweepCount(),
+                        manager -> manager.getCacheStats().getTotalSweepTime(), TimeUnit.NANOSECONDS)
+                .description("过期检查次数及耗时")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, ToLongFunction<CacheStats> function, String description, String... tags) {
+        FunctionCounter.builder(name, authManager, stats(function))
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    private static ToDoubleFunction<AuthManager> stats(ToLongFunction<CacheStats> function) {
+        return manager -> function.applyAsLong(manager.getCacheStats());
+    }
+
+}
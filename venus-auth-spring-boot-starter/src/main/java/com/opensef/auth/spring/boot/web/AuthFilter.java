@@ -30,20 +30,26 @@ public class AuthFilter implements Filter {
         // 将request、response加入线程变量中
         AuthContextHolder.put(new AuthContext(httpServletRequest, httpServletResponse));
 
-        if (!isExcludeUrl(httpServletRequest.getRequestURI())) {
-            if (!AuthUtil.isLogin()) {
-                // 将错误信息交给spring处理
-                httpServletResponse.sendError(401, "认证失败");
-                // 使用上面一种方式即可，下面这种方式只能返回必须在@ControllerAdvice中处理，这里仅做记录
-                // HandlerExceptionResolver handlerExceptionResolver = AuthApplicationContext.getBean("handlerExceptionResolver", HandlerExceptionResolver.class);
-                // handlerExceptionResolver.resolveException(httpServletRequest, httpServletResponse, null, new NoAuthenticationException("认证失败"));
-                return;
+        try {
+            // 登录检查、续期及注解检查共用同一请求内的认证信息，token值信息只读取一次
+            if (!isExcludeUrl(httpServletRequest.getRequestURI())) {
+                if (!AuthUtil.isLogin()) {
+                    // 将错误信息交给spring处理
+                    httpServletResponse.sendError(401, "认证失败");
+                    // 使用上面一种方式即可，下面这种方式只能返回必须在@ControllerAdvice中处理，这里仅做记录
+                    // HandlerExceptionResolver handlerExceptionResolver = AuthApplicationContext.getBean("handlerExceptionResolver", HandlerExceptionResolver.class);
+                    // handlerExceptionResolver.resolveException(httpServletRequest, httpServletResponse, null, new NoAuthenticationException("认证失败"));
+                    return;
+                }
+                // 更新token和session的过期时间
+                AuthUtil.updateTokenAndSessionTimeout();
             }
-            // 更新token和session的过期时间
-            AuthUtil.updateTokenAndSessionTimeout();
-        }
 
-        chain.doFilter(request, response);
+            chain.doFilter(request, response);
+        } finally {
+            // 每个请求结束时清空线程变量，避免线程复用时读取到上一个请求
+            AuthContextHolder.clear();
+        }
     }
 
     private boolean isExcludeUrl(String currentUri) {
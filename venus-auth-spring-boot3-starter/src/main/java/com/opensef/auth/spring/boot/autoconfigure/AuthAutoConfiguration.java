@@ -2,28 +2,56 @@ package com.opensef.auth.spring.boot.autoconfigure;
 
 import com.opensef.auth.AuthUtil;
 import com.opensef.auth.authc.DefaultTokenHandler;
+import com.opensef.auth.authc.RoutingTokenHandler;
+import com.opensef.auth.authc.SignedTokenHandler;
 import com.opensef.auth.authc.TokenAnalysisHandler;
 import com.opensef.auth.authc.TokenHandler;
+import com.opensef.auth.authz.CachingPermissionHandler;
 import com.opensef.auth.authz.DefaultPermissionHandler;
 import com.opensef.auth.authz.PermissionHandler;
 import com.opensef.auth.authz.strategy.AuthStrategyFactory;
+import com.opensef.auth.cache.AsyncCache;
 import com.opensef.auth.cache.Cache;
+import com.opensef.auth.cache.CacheScheduler;
 import com.opensef.auth.cache.MemoryCache;
+import com.opensef.auth.cache.NearCache;
+import com.opensef.auth.clock.AuthClock;
+import com.opensef.auth.clock.CachedClock;
 import com.opensef.auth.config.AuthConfig;
+import com.opensef.auth.config.TokenStyle;
+import com.opensef.auth.exception.AuthException;
 import com.opensef.auth.manager.AuthManager;
 import com.opensef.auth.spring.boot.aop.AuthAop;
 import com.opensef.auth.spring.boot.handler.SpringTokenAnalysisHandler;
 import com.opensef.auth.spring.boot.web.AuthApplicationContext;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableConfigurationProperties(AuthProperties.class)
-public class AuthAutoConfiguration {
+public class AuthAutoConfiguration implements DisposableBean {
+
+    /**
+     * 角色权限线程池的bean名称
+     */
+    public static final String PERMISSION_EXECUTOR_BEAN_NAME = "authPermissionExecutor";
+
+    /**
+     * 异步缓存的bean名称
+     */
+    public static final String ASYNC_CACHE_BEAN_NAME = "authAsyncCache";
 
     @Autowired(required = false)
     private TokenHandler tokenHandler;
@@ -34,14 +62,47 @@ public class AuthAutoConfiguration {
     @Autowired(required = false)
     private PermissionHandler permissionHandler;
 
-    @Autowired(required = false)
+    /**
+     * 存在多个Cache时，优先使用@Primary标注的Cache，其次使用NearCache（其代理的远程缓存也是Cache）
+     */
+    @Autowired
+    private ObjectProvider<Cache<?, ?>> caches;
+
     private Cache<?, ?> cache;
 
+    /**
+     * 只使用指定名称的异步缓存，未配置时由框架使用的Cache得到：Cache实现了AsyncCache则直接使用，否则通过BlockingAsyncCache适配；
+     * 不按类型注入，避免NearCache中的MemoryCache等其他实现了AsyncCache的bean被当作异步缓存
+     */
+    @Autowired(required = false)
+    @Qualifier(ASYNC_CACHE_BEAN_NAME)
+    private AsyncCache<?, ?> asyncCache;
+
+    @Autowired(required = false)
+    private AuthClock clock;
+
+    /**
+     * 调用PermissionHandler的线程池：角色权限缓存的后台刷新及异步角色、权限检查，未配置时使用ForkJoinPool.commonPool()
+     */
+    @Autowired(required = false)
+    @Qualifier(PERMISSION_EXECUTOR_BEAN_NAME)
+    private Executor permissionExecutor;
+
     @Autowired(required = false)
     private AuthProperties authProperties;
 
     private AuthManager authManager;
 
+    /**
+     * 由框架创建的内存缓存，容器关闭时需要关闭
+     */
+    private MemoryCache<String, Objects> memoryCache;
+
+    /**
+     * 由框架创建的缓存时间的时钟，容器关闭时需要关闭
+     */
+    private CachedClock cachedClock;
+
     @Bean
     public AuthApplicationContext venusAuthApplicationContext() {
         return new AuthApplicationContext();
@@ -49,7 +110,22 @@ public class AuthAutoConfiguration {
 
     public void init() {
         if (this.tokenHandler == null) {
-            this.tokenHandler = new DefaultTokenHandler(authProperties.getTokenStyle());
+            if (authProperties.getTokenStyle() == TokenStyle.SIGNED) {
+                if (authProperties.getSigningKey() == null) {
+                    throw new AuthException("使用签名token时需要配置auth.signing-key");
+                }
+                this.tokenHandler = new SignedTokenHandler(authProperties.getSigningKeyId(),
+                        authProperties.getSigningKey().getBytes(StandardCharsets.UTF_8));
+            } else {
+                this.tokenHandler = new DefaultTokenHandler(authProperties.getTokenStyle());
+            }
+        }
+        if (authProperties.isRoutingToken() && !(this.tokenHandler instanceof RoutingTokenHandler)) {
+            if (authProperties.getRoutingKey() == null) {
+                throw new AuthException("使用路由token时需要配置auth.routing-key");
+            }
+            this.tokenHandler = new RoutingTokenHandler(this.tokenHandler,
+                    authProperties.getRoutingKey().getBytes(StandardCharsets.UTF_8));
         }
         if (tokenAnalysisHandler == null) {
             this.tokenAnalysisHandler = new SpringTokenAnalysisHandler(authProperties.getTokenName());
@@ -57,24 +133,69 @@ public class AuthAutoConfiguration {
         if (this.permissionHandler == null) {
             this.permissionHandler = new DefaultPermissionHandler();
         }
+        if (this.clock == null) {
+            if (authProperties.getClockPrecision() > 0) {
+                this.cachedClock = new CachedClock(authProperties.getClockPrecision());
+                this.clock = this.cachedClock;
+            } else {
+                this.clock = AuthClock.system();
+            }
+        }
+        if (this.permissionExecutor == null) {
+            this.permissionExecutor = ForkJoinPool.commonPool();
+        }
+        if (authProperties.getPermissionCache().isEnabled() && !(this.permissionHandler instanceof CachingPermissionHandler)) {
+            this.permissionHandler = new CachingPermissionHandler(this.permissionHandler, authProperties.getPermissionCache(),
+                    clock, permissionExecutor);
+        }
+        if (this.cache == null) {
+            this.cache = resolveCache();
+        }
         if (this.cache == null) {
-            this.cache = new MemoryCache<String, Objects>();
+            this.memoryCache = new MemoryCache<>(authProperties.getMemoryCache(), clock);
+            this.cache = this.memoryCache;
         }
     }
 
+    /**
+     * 选择框架使用的Cache，没有Cache时返回null
+     */
+    private Cache<?, ?> resolveCache() {
+        Cache<?, ?> unique = caches.getIfUnique();
+        if (unique != null) {
+            return unique;
+        }
+        List<Cache<?, ?>> candidates = caches.orderedStream().collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        List<Cache<?, ?>> nearCaches = candidates.stream().filter(NearCache.class::isInstance).collect(Collectors.toList());
+        if (nearCaches.size() == 1) {
+            return nearCaches.get(0);
+        }
+        throw new AuthException("存在多个Cache，请使用@Primary指定框架使用的Cache");
+    }
+
     @SuppressWarnings("unchecked")
     @Bean
     public AuthManager authManager() {
         init();
+        CacheScheduler.shared().retain();
 
         AuthConfig authConfig = new AuthConfig();
         authConfig.setTimeout(authProperties.getTimeout());
         authConfig.setTokenStyle(authProperties.getTokenStyle());
         authConfig.setTokenKey(authProperties.getTokenKey());
         authConfig.setSessionKey(authProperties.getSessionKey());
+        authConfig.setClock(clock);
+        authConfig.setPermissionExecutor(permissionExecutor);
+        authConfig.setRenewThreshold(authProperties.getRenewThreshold());
+        authConfig.setRenewWindow(authProperties.getRenewWindow());
+        authConfig.setMaxTokens(authProperties.getMaxTokens());
 
         AuthManager authManager = new AuthManager();
-        authManager.init(tokenHandler, tokenAnalysisHandler, permissionHandler, (Cache<Object, Object>) cache, authConfig);
+        authManager.init(tokenHandler, tokenAnalysisHandler, permissionHandler, (Cache<Object, Object>) cache,
+                (AsyncCache<Object, Object>) asyncCache, authConfig);
 
         this.authManager = authManager;
         AuthUtil.setAuthManager(authManager);
@@ -91,4 +212,18 @@ public class AuthAutoConfiguration {
         return new AuthAop(authStrategyFactory(), authManager);
     }
 
+    /**
+     * 关闭默认的内存缓存、时钟，并注销缓存共用的定时任务线程池，同一JVM中的其他容器都已关闭时才关闭线程池
+     */
+    @Override
+    public void destroy() {
+        if (this.memoryCache != null) {
+            this.memoryCache.close();
+        }
+        if (this.cachedClock != null) {
+            this.cachedClock.close();
+        }
+        CacheScheduler.shared().release();
+    }
+
 }
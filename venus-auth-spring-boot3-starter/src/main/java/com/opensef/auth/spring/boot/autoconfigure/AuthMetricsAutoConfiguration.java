@@ -0,0 +1,26 @@
+package com.opensef.auth.spring.boot.autoconfigure;
+
+import com.opensef.auth.manager.AuthManager;
+import com.opensef.auth.spring.boot.metrics.AuthCacheMetrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 引入Micrometer（例如spring-boot-starter-actuator）时，自动注册认证缓存的统计指标
+ */
+@Configuration
+@ConditionalOnClass(MeterBinder.class)
+@AutoConfigureAfter(AuthAutoConfiguration.class)
+public class AuthMetricsAutoConfiguration {
+
+    @Bean
+    @ConditionalOnBean(AuthManager.class)
+    public AuthCacheMetrics authCacheMetrics(AuthManager authManager) {
+        return new AuthCacheMetrics(authManager);
+    }
+
+}
@@ -1,12 +1,19 @@
 package com.opensef.auth.spring.boot.handler;
 
+import com.opensef.auth.authc.AuthRequestContext;
 import com.opensef.auth.authc.TokenAnalysisHandler;
 import com.opensef.auth.spring.boot.web.AuthApplicationContext;
+import com.opensef.auth.spring.boot.web.AuthContext;
 import com.opensef.auth.spring.boot.web.AuthContextHolder;
 import jakarta.servlet.http.HttpServletRequest;
 
 public class SpringTokenAnalysisHandler implements TokenAnalysisHandler {
 
+    /**
+     * 请求内认证信息在request属性中的名称
+     */
+    private static final String REQUEST_CONTEXT_ATTRIBUTE = AuthRequestContext.class.getName();
+
     private final String tokenName;
 
     public SpringTokenAnalysisHandler(String tokenName) {
@@ -26,4 +33,26 @@ public class SpringTokenAnalysisHandler implements TokenAnalysisHandler {
         return token;
     }
 
+    /**
+     * 请求内认证信息保存在request属性中，随请求结束释放；过滤器、拦截器及注解检查共用
+     */
+    @Override
+    public AuthRequestContext getRequestContext() {
+        HttpServletRequest httpServletRequest = AuthApplicationContext.getHttpServletRequest();
+        if (httpServletRequest == null) {
+            AuthContext authContext = AuthContextHolder.get();
+            if (authContext == null || authContext.getRequest() == null) {
+                return null;
+            }
+            httpServletRequest = authContext.getRequest();
+        }
+        Object context = httpServletRequest.getAttribute(REQUEST_CONTEXT_ATTRIBUTE);
+        if (context instanceof AuthRequestContext) {
+            return (AuthRequestContext) context;
+        }
+        AuthRequestContext requestContext = new AuthRequestContext();
+        httpServletRequest.setAttribute(REQUEST_CONTEXT_ATTRIBUTE, requestContext);
+        return requestContext;
+    }
+
 }